@@ -45,12 +45,28 @@ export const getPayoutHistory = createAsyncThunk(
     }
 );
 
+// Keyset listing, newest first; pass the previous page's nextCursor to load the next one
 export const getAllPayouts = createAsyncThunk(
     'payout/getAll',
+    async (cursor, thunkAPI) => {
+        try {
+            const config = getAuthHeader(thunkAPI);
+            const response = await axios.get(API_URL, { ...config, params: { limit: 50, cursor } });
+            return { ...response.data, append: Boolean(cursor) };
+        } catch (error) {
+            const message = error.response?.data?.message || error.message || error.toString();
+            return thunkAPI.rejectWithValue(message);
+        }
+    }
+);
+
+// Totals per status across all payouts, not just the pages loaded so far
+export const fetchPayoutCounts = createAsyncThunk(
+    'payout/fetchCounts',
     async (_, thunkAPI) => {
         try {
             const config = getAuthHeader(thunkAPI);
-            const response = await axios.get(`${API_URL}/all`, config);
+            const response = await axios.get(`${API_URL}/counts`, config);
             return response.data;
         } catch (error) {
             const message = error.response?.data?.message || error.message || error.toString();
@@ -93,6 +109,9 @@ export const initiateManualPayout = createAsyncThunk(
         try {
             const config = getAuthHeader(thunkAPI);
             const response = await axios.post(`${API_URL}/initiate-manual`, payoutData, config);
+            // The new payout is the newest row, so reload the first page and the totals
+            thunkAPI.dispatch(getAllPayouts());
+            thunkAPI.dispatch(fetchPayoutCounts());
             return response.data;
         } catch (error) {
             const message = error.response?.data?.message || error.message || error.toString();
@@ -103,6 +122,8 @@ export const initiateManualPayout = createAsyncThunk(
 
 const initialState = {
     payouts: [],
+    nextCursor: null,
+    counts: null,
     users: [],
     balance: null,
     isError: false,
@@ -141,7 +162,12 @@ export const payoutSlice = createSlice({
                 state.payouts = action.payload;
             })
             .addCase(getAllPayouts.fulfilled, (state, action) => {
-                state.payouts = action.payload;
+                const { items, nextCursor, append } = action.payload;
+                state.payouts = append ? [...state.payouts, ...items] : items;
+                state.nextCursor = nextCursor;
+            })
+            .addCase(fetchPayoutCounts.fulfilled, (state, action) => {
+                state.counts = action.payload;
             })
             .addCase(fetchPayoutBalance.fulfilled, (state, action) => {
                 state.balance = action.payload;
@@ -156,7 +182,6 @@ export const payoutSlice = createSlice({
                 state.isLoading = false;
                 state.isSuccess = true;
                 state.message = 'Manual payout initiated successfully';
-                state.payouts.unshift(action.payload);
             })
             .addCase(initiateManualPayout.rejected, (state, action) => {
                 state.isLoading = false;
@@ -1,7 +1,7 @@
 import { toast } from 'react-toastify';
 import { useEffect, useState } from 'react';
 import { useDispatch, useSelector } from 'react-redux';
-import { getAllPayouts, fetchPayoutBalance, initiateManualPayout, resetPayout, getUsers } from '../features/payouts/payoutSlice';
+import { getAllPayouts, fetchPayoutBalance, fetchPayoutCounts, initiateManualPayout, resetPayout, getUsers } from '../features/payouts/payoutSlice';
 import { Activity } from 'lucide-react';
 
 import DashboardNavbar from '../components/DashboardNavbar';
@@ -9,7 +9,7 @@ import { Banknote, TrendingUp, UsersIcon, Clock, Send, CheckCircle2, AlertCircle
 
 const AdminPayoutDashboard = () => {
     const dispatch = useDispatch();
-    const { payouts, balance, users, isLoading, isError, isSuccess, message } = useSelector((state) => state.payout);
+    const { payouts, nextCursor, counts, balance, users, isLoading, isError, isSuccess, message } = useSelector((state) => state.payout);
 
     const [selectedUserEmail, setSelectedUserEmail] = useState('');
     const [manualAmount, setManualAmount] = useState('1');
@@ -19,6 +19,7 @@ const AdminPayoutDashboard = () => {
 
     useEffect(() => {
         dispatch(getAllPayouts());
+        dispatch(fetchPayoutCounts());
         dispatch(fetchPayoutBalance());
         dispatch(getUsers());
     }, [dispatch]);
@@ -45,6 +46,9 @@ const AdminPayoutDashboard = () => {
         }));
     };
 
+    const totalPayouts = counts ? Object.values(counts).reduce((sum, n) => sum + n, 0) : null;
+    const inFlightPayouts = counts ? counts.PENDING + counts.PROCESSING : null;
+
     const filteredUsers = users.filter(u =>
         (u.email && u.email.toLowerCase().includes(searchTerm.toLowerCase())) ||
         (u.name && u.name.toLowerCase().includes(searchTerm.toLowerCase()))
@@ -55,6 +59,7 @@ const AdminPayoutDashboard = () => {
             case 'SUCCESS': return 'bg-green-100 text-green-700';
             case 'PROCESSING': return 'bg-blue-100 text-blue-700';
             case 'FAILED': return 'bg-red-100 text-red-700';
+            case 'AWAITING_BANK_DETAILS': return 'bg-amber-100 text-amber-700';
             default: return 'bg-gray-100 text-gray-700';
         }
     };
@@ -129,8 +134,8 @@ const AdminPayoutDashboard = () => {
                             <UsersIcon size={24} />
                         </div>
                         <p className="text-gray-400 font-bold uppercase text-[10px] tracking-widest mb-1">Total Payouts</p>
-                        <h3 className="text-4xl font-black text-gray-900 mb-2">{payouts.length}</h3>
-                        <p className="text-gray-500 text-sm font-medium">Global history</p>
+                        <h3 className="text-4xl font-black text-gray-900 mb-2">{totalPayouts ?? '—'}</h3>
+                        <p className="text-gray-500 text-sm font-medium">All time, every status</p>
                     </div>
 
                     {/* Pending Payouts Card */}
@@ -138,11 +143,9 @@ const AdminPayoutDashboard = () => {
                         <div className="w-12 h-12 bg-amber-50 text-amber-600 rounded-2xl flex items-center justify-center mb-6 group-hover:bg-amber-600 group-hover:text-white transition-all">
                             <Clock size={24} />
                         </div>
-                        <p className="text-gray-400 font-bold uppercase text-[10px] tracking-widest mb-1">Processing</p>
-                        <h3 className="text-4xl font-black text-gray-900 mb-2">
-                            {payouts.filter(p => p.status === 'PROCESSING' || p.status === 'PENDING').length}
-                        </h3>
-                        <p className="text-gray-500 text-sm font-medium">Sync required</p>
+                        <p className="text-gray-400 font-bold uppercase text-[10px] tracking-widest mb-1">Pending / Processing</p>
+                        <h3 className="text-4xl font-black text-gray-900 mb-2">{inFlightPayouts ?? '—'}</h3>
+                        <p className="text-gray-500 text-sm font-medium">Awaiting gateway confirmation</p>
                     </div>
                 </div>
 
@@ -333,13 +336,13 @@ const AdminPayoutDashboard = () => {
                         </div>
 
                         <div className="bg-white rounded-[32px] p-8 border border-gray-100 shadow-sm">
-                            <h4 className="font-black text-gray-900 mb-6 uppercase text-xs tracking-widest">Manual History</h4>
+                            <h4 className="font-black text-gray-900 mb-6 uppercase text-xs tracking-widest">Recent Manual Transfers</h4>
                             <div className="space-y-4">
                                 {payouts.filter(p => p.payoutRef?.startsWith('MAN_')).slice(0, 3).map(p => (
                                     <div key={p.id} className="flex items-center justify-between">
                                         <div>
                                             <p className="font-bold text-gray-900 text-sm">₹{p.amount}</p>
-                                            <p className="text-[10px] font-bold text-gray-400">{p.user?.email}</p>
+                                            <p className="text-[10px] font-bold text-gray-400">{p.userEmail}</p>
                                         </div>
                                         <span className={`px-2 py-0.5 rounded-full text-[8px] font-black uppercase tracking-widest ${getStatusColor(p.status)}`}>
                                             {p.status}
@@ -347,7 +350,7 @@ const AdminPayoutDashboard = () => {
                                     </div>
                                 ))}
                                 {payouts.filter(p => p.payoutRef?.startsWith('MAN_')).length === 0 && (
-                                    <p className="text-sm text-gray-400 font-medium italic">No manual transfers yet.</p>
+                                    <p className="text-sm text-gray-400 font-medium italic">No recent manual transfers.</p>
                                 )}
                             </div>
                         </div>
@@ -392,7 +395,7 @@ const AdminPayoutDashboard = () => {
                                         </td>
                                         <td className="px-8 py-6">
                                             <p className="font-bold text-gray-900">{payout.beneficiaryName}</p>
-                                            <p className="text-xs text-gray-400 font-medium">{payout.user?.email}</p>
+                                            <p className="text-xs text-gray-400 font-medium">{payout.userEmail}</p>
                                         </td>
                                         <td className="px-8 py-6">
                                             <span className="text-lg font-black text-gray-900">₹{payout.amount}</span>
@@ -427,6 +430,17 @@ const AdminPayoutDashboard = () => {
                             </tbody>
                         </table>
                     </div>
+                    {nextCursor && (
+                        <div className="p-6 border-t border-gray-50 flex justify-center">
+                            <button
+                                type="button"
+                                onClick={() => dispatch(getAllPayouts(nextCursor))}
+                                className="bg-white border border-gray-100 px-6 py-3 rounded-2xl text-gray-700 font-bold shadow-sm hover:bg-gray-50 transition-all"
+                            >
+                                Load more
+                            </button>
+                        </div>
+                    )}
                 </div>
             </main>
         </div>
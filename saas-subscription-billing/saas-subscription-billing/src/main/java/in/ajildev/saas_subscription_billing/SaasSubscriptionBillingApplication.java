@@ -2,8 +2,10 @@ package in.ajildev.saas_subscription_billing;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class SaasSubscriptionBillingApplication {
 
 	public static void main(String[] args) {
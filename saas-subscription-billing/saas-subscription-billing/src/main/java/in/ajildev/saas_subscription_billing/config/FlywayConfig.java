@@ -0,0 +1,20 @@
+package in.ajildev.saas_subscription_billing.config;
+
+import org.springframework.boot.flyway.autoconfigure.FlywayConfigurationCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Schema changes Hibernate's {@code ddl-auto} cannot make live in
+ * {@code db/migration}. Databases created before Flyway was added have tables
+ * but no history table; they are baselined below V1 so every migration still
+ * runs on them.
+ */
+@Configuration
+public class FlywayConfig {
+
+    @Bean
+    public FlywayConfigurationCustomizer baselineExistingSchema() {
+        return configuration -> configuration.baselineOnMigrate(true).baselineVersion("0");
+    }
+}
@@ -0,0 +1,33 @@
+package in.ajildev.saas_subscription_billing.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * HTTP client settings for each payment gateway, bound from {@code gateway.http.*}, e.g.
+ * {@code gateway.http.razorpay.max-connections=100}. Every gateway gets its own
+ * connection pool so one slow provider cannot exhaust sockets for the others.
+ */
+@Data
+@ConfigurationProperties(prefix = "gateway.http")
+public class GatewayHttpProperties {
+
+    private Pool paynproPayin = new Pool();
+    private Pool paynproPayout = new Pool();
+    private Pool razorpay = new Pool();
+
+    @Data
+    public static class Pool {
+        private int maxConnections = 50;
+        private int pendingAcquireMaxCount = 200;
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(5);
+        private Duration maxIdleTime = Duration.ofSeconds(30);
+        private Duration maxLifeTime = Duration.ofMinutes(5);
+        private Duration evictInBackground = Duration.ofSeconds(30);
+        private Duration connectTimeout = Duration.ofSeconds(5);
+        private Duration responseTimeout = Duration.ofSeconds(30);
+        private boolean keepAlive = true;
+    }
+}
@@ -0,0 +1,38 @@
+package in.ajildev.saas_subscription_billing.config;
+
+import in.ajildev.saas_subscription_billing.enums.GatewayOperation;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Outbound request quotas per gateway operation, bound from
+ * {@code gateway.rate-limit.*}, e.g.
+ * {@code gateway.rate-limit.operations.razorpay-payout.permits-per-second=10}.
+ * A non-positive {@code permitsPerSecond} disables limiting for that operation.
+ */
+@Data
+@ConfigurationProperties(prefix = "gateway.rate-limit")
+public class GatewayRateLimitProperties {
+
+    private Limit defaults = new Limit();
+    private Map<GatewayOperation, Limit> operations = new EnumMap<>(GatewayOperation.class);
+
+    public Limit limitFor(GatewayOperation operation) {
+        return operations.getOrDefault(operation, defaults);
+    }
+
+    @Data
+    public static class Limit {
+        private double permitsPerSecond = 20;
+        // Calls allowed back-to-back after an idle period
+        private int burst = 20;
+        // Calls that may wait for a slot at the same time
+        private int maxQueueDepth = 200;
+        // Calls whose slot is further away than this are rejected up front
+        private Duration maxWait = Duration.ofSeconds(5);
+    }
+}
@@ -0,0 +1,39 @@
+package in.ajildev.saas_subscription_billing.config;
+
+import in.ajildev.saas_subscription_billing.enums.GatewayOperation;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Circuit breaker and bulkhead settings per gateway operation, bound from
+ * {@code gateway.resilience.*}. {@code defaults} applies to every operation
+ * without an entry in {@code operations}, e.g.
+ * {@code gateway.resilience.operations.paynpro-payout.max-concurrent-calls=10}.
+ */
+@Data
+@ConfigurationProperties(prefix = "gateway.resilience")
+public class GatewayResilienceProperties {
+
+    private Policy defaults = new Policy();
+    private Map<GatewayOperation, Policy> operations = new EnumMap<>(GatewayOperation.class);
+
+    public Policy policyFor(GatewayOperation operation) {
+        return operations.getOrDefault(operation, defaults);
+    }
+
+    @Data
+    public static class Policy {
+        private int slidingWindowSize = 20;
+        private int minimumNumberOfCalls = 10;
+        private float failureRateThreshold = 50;
+        private Duration slowCallDurationThreshold = Duration.ofSeconds(10);
+        private float slowCallRateThreshold = 80;
+        private Duration waitDurationInOpenState = Duration.ofSeconds(30);
+        private int permittedCallsInHalfOpenState = 3;
+        private int maxConcurrentCalls = 25;
+    }
+}
@@ -1,24 +1,132 @@
 package in.ajildev.saas_subscription_billing.config;
 
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.codec.json.JacksonJsonDecoder;
+import org.springframework.http.codec.json.JacksonJsonEncoder;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.function.Function;
+import java.util.regex.Pattern;
 
 @Configuration
+@EnableConfigurationProperties({ GatewayHttpProperties.class, GatewayResilienceProperties.class,
+        GatewayRateLimitProperties.class })
 public class PaynproConfig {
 
+    private static final Pattern NUMERIC_SEGMENT = Pattern.compile("/[0-9]+(?=/|$)");
+
+    // Collapses ids and account numbers in paths so per-URI metrics stay low-cardinality
+    private static final Function<String, String> URI_TAG = uri -> {
+        int query = uri.indexOf('?');
+        String path = query >= 0 ? uri.substring(0, query) : uri;
+        return NUMERIC_SEGMENT.matcher(path).replaceAll("/{id}");
+    };
+
     @Value("${paynpro.base.url}")
     private String baseUrl;
 
+    @Value("${paynpro.payout.url}")
+    private String payoutUrl;
+
+    @Value("${razorpay.base.url:https://api.razorpay.com}")
+    private String razorpayBaseUrl;
+
+    private final JsonMapper jsonMapper;
+
+    public PaynproConfig(JsonMapper jsonMapper) {
+        this.jsonMapper = jsonMapper;
+    }
+
+    // ─── Connection Pools ───────────────────────────────────────────────────────
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider paynproPayinConnectionProvider(GatewayHttpProperties properties) {
+        return connectionProvider("paynpro-payin", properties.getPaynproPayin());
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider paynproPayoutConnectionProvider(GatewayHttpProperties properties) {
+        return connectionProvider("paynpro-payout", properties.getPaynproPayout());
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider razorpayConnectionProvider(GatewayHttpProperties properties) {
+        return connectionProvider("razorpay", properties.getRazorpay());
+    }
+
+    // ─── Gateway Clients ────────────────────────────────────────────────────────
+
+    @Bean
+    public WebClient paynproPayinWebClient(WebClient.Builder builder, GatewayHttpProperties properties,
+            @Qualifier("paynproPayinConnectionProvider") ConnectionProvider provider) {
+        return gatewayClient(builder, baseUrl, provider, properties.getPaynproPayin());
+    }
 
     @Bean
-    public WebClient.Builder webClientBuilder() {
-        return WebClient.builder();
+    public WebClient paynproPayoutWebClient(WebClient.Builder builder, GatewayHttpProperties properties,
+            @Qualifier("paynproPayoutConnectionProvider") ConnectionProvider provider) {
+        return gatewayClient(builder, payoutUrl, provider, properties.getPaynproPayout());
     }
 
     @Bean
-    public WebClient paynproWebClient(WebClient.Builder builder) {
-        return builder.baseUrl(baseUrl).build();
+    public WebClient razorpayWebClient(WebClient.Builder builder, GatewayHttpProperties properties,
+            @Qualifier("razorpayConnectionProvider") ConnectionProvider provider) {
+        return gatewayClient(builder, razorpayBaseUrl, provider, properties.getRazorpay());
+    }
+
+    /**
+     * Pool metrics ({@code reactor.netty.connection.provider.*}, including pending
+     * acquire time) are published to the global Micrometer registry, tagged by pool name.
+     */
+    private ConnectionProvider connectionProvider(String name, GatewayHttpProperties.Pool pool) {
+        return ConnectionProvider.builder(name)
+                .maxConnections(pool.getMaxConnections())
+                .pendingAcquireMaxCount(pool.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(pool.getPendingAcquireTimeout())
+                .maxIdleTime(pool.getMaxIdleTime())
+                .maxLifeTime(pool.getMaxLifeTime())
+                .evictInBackground(pool.getEvictInBackground())
+                .metrics(true)
+                .build();
+    }
+
+    /**
+     * A clone of Boot's prototype builder, so its customizers and observation
+     * setup still apply. Gateway bodies are encoded and decoded by Jackson
+     * straight from Netty buffers; PaynPro labels some JSON responses
+     * text/plain or text/html, so the decoder accepts those too.
+     */
+    public WebClient.Builder gatewayBuilder(WebClient.Builder builder) {
+        return builder.clone()
+                .codecs(codecs -> {
+                    codecs.defaultCodecs().jacksonJsonEncoder(new JacksonJsonEncoder(jsonMapper));
+                    codecs.defaultCodecs().jacksonJsonDecoder(new JacksonJsonDecoder(jsonMapper,
+                            MediaType.APPLICATION_JSON, new MediaType("application", "*+json"),
+                            MediaType.TEXT_PLAIN, MediaType.TEXT_HTML));
+                });
+    }
+
+    private WebClient gatewayClient(WebClient.Builder builder, String url, ConnectionProvider provider,
+            GatewayHttpProperties.Pool pool) {
+        HttpClient httpClient = HttpClient.create(provider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) pool.getConnectTimeout().toMillis())
+                .keepAlive(pool.isKeepAlive())
+                .responseTimeout(pool.getResponseTimeout())
+                .metrics(true, URI_TAG);
+
+        return gatewayBuilder(builder)
+                .baseUrl(url)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
     }
 }
@@ -1,12 +1,10 @@
 package in.ajildev.saas_subscription_billing.config;
 
 import in.ajildev.saas_subscription_billing.security.JwtAuthFilter;
-import in.ajildev.saas_subscription_billing.security.UserDetailsServiceImpl;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
@@ -35,6 +33,12 @@ public class SecurityConfig {
             "/api/webhook/**" // payment gateway webhooks (verified by signature)
     };
 
+    // ─── Admin paths open to every signed-in user ───────────────────────────────
+    private static final String[] SELF_SERVICE_PAYOUT_URLS = {
+            "/api/admin/payouts/update-bank-details",
+            "/api/admin/payouts/history/*"
+    };
+
     // ─── Security Filter Chain ───────────────────────────────────────────────────
 
     @Bean
@@ -48,7 +52,12 @@ public class SecurityConfig {
 
                 // Route-level authorization
                 .authorizeHttpRequests(auth -> auth
+                        // Async (Mono-returning) endpoints were already authorized on the initial dispatch
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers(PUBLIC_URLS).permitAll()
+                        // Self-service payout settings; the controller scopes them to the caller's own account
+                        .requestMatchers(SELF_SERVICE_PAYOUT_URLS).authenticated()
+                        .requestMatchers("/api/admin/**").hasRole("ADMIN")
                         .anyRequest().authenticated())
 
                 // Stateless session — no server-side sessions, JWT only
@@ -79,15 +88,6 @@ public class SecurityConfig {
                 .build();
     }
 
-    // ─── Authentication Provider ─────────────────────────────────────────────────
-
-    // ─── Authentication Manager ──────────────────────────────────────────────────
-
-    @Bean
-    public AuthenticationManager authenticationManager(AuthenticationConfiguration config) throws Exception {
-        return config.getAuthenticationManager();
-    }
-
     // ─── Password Encoder ────────────────────────────────────────────────────────
 
     @Bean
@@ -1,11 +1,12 @@
 package in.ajildev.saas_subscription_billing.controller;
 
 import in.ajildev.saas_subscription_billing.repository.UserRepository;
+import in.ajildev.saas_subscription_billing.service.UserService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/admin/users")
@@ -13,9 +14,15 @@ import org.springframework.web.bind.annotation.RestController;
 public class AdminController {
 
     private final UserRepository userRepository;
+    private final UserService userService;
 
     @GetMapping
     public ResponseEntity<?> getAllUsers() {
         return ResponseEntity.ok(userRepository.findAll());
     }
+
+    @PutMapping("/{id}/role")
+    public ResponseEntity<?> updateRole(@PathVariable Long id, @RequestBody Map<String, String> request) {
+        return ResponseEntity.ok(userService.updateRole(id, request.get("role")));
+    }
 }
@@ -2,6 +2,7 @@ package in.ajildev.saas_subscription_billing.controller;
 
 import in.ajildev.saas_subscription_billing.dto.AuthRequest;
 import in.ajildev.saas_subscription_billing.dto.AuthResponse;
+import in.ajildev.saas_subscription_billing.dto.RefreshRequest;
 import in.ajildev.saas_subscription_billing.dto.SignupRequest;
 import in.ajildev.saas_subscription_billing.service.AuthService;
 import lombok.RequiredArgsConstructor;
@@ -26,4 +27,9 @@ public class AuthController {
     public ResponseEntity<AuthResponse> login(@RequestBody AuthRequest request) {
         return ResponseEntity.ok(authService.login(request));
     }
+
+    @PostMapping("/refresh")
+    public ResponseEntity<AuthResponse> refresh(@RequestBody RefreshRequest request) {
+        return ResponseEntity.ok(authService.refresh(request));
+    }
 }
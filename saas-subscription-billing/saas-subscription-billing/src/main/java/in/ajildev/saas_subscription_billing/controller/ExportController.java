@@ -0,0 +1,73 @@
+package in.ajildev.saas_subscription_billing.controller;
+
+import in.ajildev.saas_subscription_billing.enums.ExportFormat;
+import in.ajildev.saas_subscription_billing.enums.PaymentGateway;
+import in.ajildev.saas_subscription_billing.enums.PaymentStatus;
+import in.ajildev.saas_subscription_billing.enums.PayoutStatus;
+import in.ajildev.saas_subscription_billing.service.ExportService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDateTime;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Finance exports. Filters are optional and {@code to} is exclusive; with
+ * {@code gzip=true} the file is sent compressed as {@code .gz}.
+ */
+@RestController
+@RequestMapping("/api/admin/export")
+@RequiredArgsConstructor
+public class ExportController {
+
+    private final ExportService exportService;
+
+    @GetMapping("/payouts")
+    public ResponseEntity<StreamingResponseBody> exportPayouts(@RequestParam(required = false) PayoutStatus status,
+            @RequestParam(required = false) PaymentGateway gateway,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "CSV") ExportFormat format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        String statusName = status != null ? status.name() : null;
+        return stream("payouts", format, gzip,
+                out -> exportService.exportPayouts(statusName, gateway, from, to, format, out));
+    }
+
+    @GetMapping("/payments")
+    public ResponseEntity<StreamingResponseBody> exportPayments(@RequestParam(required = false) PaymentStatus status,
+            @RequestParam(required = false) PaymentGateway gateway,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "CSV") ExportFormat format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        String statusName = status != null ? status.name() : null;
+        return stream("payments", format, gzip,
+                out -> exportService.exportPayments(statusName, gateway, from, to, format, out));
+    }
+
+    private static ResponseEntity<StreamingResponseBody> stream(String name, ExportFormat format, boolean gzip,
+            StreamingResponseBody body) {
+        String fileName = name + (format == ExportFormat.NDJSON ? ".ndjson" : ".csv") + (gzip ? ".gz" : "");
+        MediaType contentType = gzip ? new MediaType("application", "gzip")
+                : format == ExportFormat.NDJSON ? new MediaType("application", "x-ndjson")
+                        : new MediaType("text", "csv");
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .body(gzip ? out -> {
+                    // finish() writes the gzip trailer without closing the response stream
+                    GZIPOutputStream compressed = new GZIPOutputStream(out, 64 * 1024);
+                    body.writeTo(compressed);
+                    compressed.finish();
+                } : body);
+    }
+}
@@ -1,11 +1,11 @@
 package in.ajildev.saas_subscription_billing.controller;
 
 import in.ajildev.saas_subscription_billing.entity.Payment;
+import in.ajildev.saas_subscription_billing.security.AuthenticatedUser;
 import in.ajildev.saas_subscription_billing.service.PaymentService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
@@ -20,7 +20,7 @@ public class PaymentController {
     private final PaymentService paymentService;
 
     @GetMapping("/me")
-    public ResponseEntity<List<Payment>> getMyPaymentHistory(@AuthenticationPrincipal UserDetails userDetails) {
-        return ResponseEntity.ok(paymentService.getPaymentHistory(userDetails.getUsername()));
+    public ResponseEntity<List<Payment>> getMyPaymentHistory(@AuthenticationPrincipal AuthenticatedUser principal) {
+        return ResponseEntity.ok(paymentService.getPaymentHistory(principal.id()));
     }
 }
@@ -1,14 +1,36 @@
 package in.ajildev.saas_subscription_billing.controller;
 
+import in.ajildev.saas_subscription_billing.dto.PayoutRoutingConfig;
+import in.ajildev.saas_subscription_billing.entity.BulkPayoutJob;
+import in.ajildev.saas_subscription_billing.enums.PaymentGateway;
+import in.ajildev.saas_subscription_billing.enums.PayoutStatus;
+import in.ajildev.saas_subscription_billing.security.AuthenticatedUser;
+import in.ajildev.saas_subscription_billing.service.BulkPayoutService;
+import in.ajildev.saas_subscription_billing.service.GatewayBalanceLedger;
+import in.ajildev.saas_subscription_billing.service.GatewayBalanceService;
+import in.ajildev.saas_subscription_billing.service.GatewayResponseStreamer;
 import in.ajildev.saas_subscription_billing.service.PaynProService;
+import in.ajildev.saas_subscription_billing.service.PaynproReportCache;
+import in.ajildev.saas_subscription_billing.service.PayoutOutboxDispatcher;
+import in.ajildev.saas_subscription_billing.service.PayoutRouter;
 import in.ajildev.saas_subscription_billing.service.PayoutService;
-import in.ajildev.saas_subscription_billing.service.RazorpayService;
 import lombok.RequiredArgsConstructor;
-import org.json.JSONObject;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.io.InputStream;
+import java.time.LocalDateTime;
 import java.util.Map;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/admin/payouts")
@@ -17,37 +39,72 @@ public class PayoutController {
 
     private final PayoutService payoutService;
     private final PaynProService paynProService;
-    private final RazorpayService razorpayService;
+    private final PaynproReportCache paynproReportCache;
+    private final GatewayResponseStreamer gatewayResponseStreamer;
+    private final GatewayBalanceService gatewayBalanceService;
+    private final GatewayBalanceLedger gatewayBalanceLedger;
+    private final BulkPayoutService bulkPayoutService;
+    private final PayoutRouter payoutRouter;
+    private final PayoutOutboxDispatcher payoutOutboxDispatcher;
 
     @GetMapping("/balance")
-    public ResponseEntity<?> getPayoutBalance() {
-        Map<String, Object> balances = new java.util.HashMap<>();
-        try {
-            JSONObject pnpResponse = paynProService.fetchBalance();
-            balances.put("paynpro", pnpResponse.toMap());
-        } catch (Exception e) {
-            balances.put("paynpro", Map.of("error", e.getMessage()));
-        }
+    public Mono<ResponseEntity<?>> getPayoutBalance() {
+        return gatewayBalanceService.getBalances().map(ResponseEntity::ok);
+    }
+
+    @GetMapping("/balance/ledger")
+    public ResponseEntity<?> getBalanceLedger() {
+        return ResponseEntity.ok(gatewayBalanceLedger.snapshot());
+    }
 
-        try {
-            JSONObject rzpResponse = razorpayService.fetchBalance();
-            balances.put("razorpay", rzpResponse.toMap());
-        } catch (Exception e) {
-            balances.put("razorpay", Map.of("error", e.getMessage()));
-        }
+    @GetMapping("/routing")
+    public ResponseEntity<?> getRouting() {
+        return ResponseEntity.ok(payoutRouter.snapshot());
+    }
 
-        return ResponseEntity.ok(balances);
+    /**
+     * Sets gateway weights, sharpness and pinning; omitted fields keep their
+     * current value.
+     */
+    @PutMapping("/routing")
+    public ResponseEntity<?> updateRouting(@RequestBody PayoutRoutingConfig request) {
+        return ResponseEntity.ok(payoutRouter.updateConfig(request));
     }
 
-    @GetMapping("/all")
-    public ResponseEntity<?> getAllPayouts() {
-        return ResponseEntity.ok(payoutService.getAllPayouts());
+    @DeleteMapping("/routing/pinned")
+    public ResponseEntity<?> unpinRouting() {
+        return ResponseEntity.ok(payoutRouter.unpin());
     }
 
+    /**
+     * Keyset-paginated listing; all filters are optional and {@code to} is
+     * exclusive.
+     */
+    @GetMapping
+    public ResponseEntity<?> listPayouts(@RequestParam(required = false) PayoutStatus status,
+            @RequestParam(required = false) PaymentGateway gateway,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(payoutService.listPayouts(status, gateway, userId, from, to, cursor, limit));
+    }
+
+    @GetMapping("/counts")
+    public ResponseEntity<?> countPayouts() {
+        return ResponseEntity.ok(payoutService.countByStatus());
+    }
+
+    /**
+     * Open to every signed-in user for their own account; only admins may
+     * name another user's {@code email}.
+     */
     @PostMapping("/update-bank-details")
-    public ResponseEntity<?> updateBankDetails(@RequestBody Map<String, String> request) {
+    public ResponseEntity<?> updateBankDetails(@AuthenticationPrincipal AuthenticatedUser principal,
+            @RequestBody Map<String, String> request) {
         payoutService.updateBeneficiaryDetails(
-                request.get("email"),
+                targetEmail(principal, request.get("email")),
                 request.get("accountNo"),
                 request.get("ifsc"),
                 request.get("beneficiaryName"),
@@ -55,31 +112,111 @@ public class PayoutController {
         return ResponseEntity.ok(Map.of("message", "Bank details updated successfully"));
     }
 
+    /**
+     * Same access rule as {@link #updateBankDetails}.
+     */
     @GetMapping("/history/{email}")
-    public ResponseEntity<?> getPayoutHistory(@PathVariable String email) {
-        return ResponseEntity.ok(payoutService.getUserPayouts(email));
+    public ResponseEntity<?> getPayoutHistory(@AuthenticationPrincipal AuthenticatedUser principal,
+            @PathVariable String email) {
+        return ResponseEntity.ok(payoutService.getUserPayouts(targetEmail(principal, email)));
+    }
+
+    private static String targetEmail(AuthenticatedUser principal, String requested) {
+        return "ADMIN".equals(principal.role()) && requested != null ? requested : principal.email();
+    }
+
+    /**
+     * Payouts parked until their user adds bank details, as a keyset page of
+     * {@link #listPayouts} filtered on {@code AWAITING_BANK_DETAILS}.
+     */
+    @GetMapping("/awaiting-bank-details")
+    public ResponseEntity<?> getParkedPayouts(@RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(payoutService.listPayouts(PayoutStatus.AWAITING_BANK_DETAILS, null, null, null, null,
+                cursor, limit));
     }
 
     @GetMapping("/status/{payoutRef}")
-    public ResponseEntity<?> getPayoutStatus(@PathVariable String payoutRef) {
-        JSONObject response = paynProService.getPayoutStatus(payoutRef);
-        return ResponseEntity.ok(response.toMap());
+    public Mono<ResponseEntity<?>> getPayoutStatus(@PathVariable String payoutRef) {
+        return paynProService.getPayoutStatusAsync(payoutRef)
+                .map(ResponseEntity::ok);
     }
 
     @PostMapping("/report")
-    public ResponseEntity<?> getPayoutReport(@RequestBody Map<String, String> request) {
-        JSONObject response = paynProService.getTxnReport(request.get("startDate"), request.get("endDate"));
-        return ResponseEntity.ok(response.toMap());
+    public Mono<ResponseEntity<?>> getPayoutReport(@RequestBody Map<String, String> request) {
+        return paynproReportCache.getTxnReport(request.get("startDate"), request.get("endDate"))
+                .map(ResponseEntity::ok);
     }
 
     @PostMapping("/statement")
-    public ResponseEntity<?> getPayoutStatement(@RequestBody Map<String, String> request) {
-        JSONObject response = paynProService.getStatement(request.get("startDate"), request.get("endDate"));
-        return ResponseEntity.ok(response.toMap());
+    public Mono<ResponseEntity<?>> getPayoutStatement(@RequestBody Map<String, String> request) {
+        return paynproReportCache.getStatement(request.get("startDate"), request.get("endDate"))
+                .map(ResponseEntity::ok);
+    }
+
+    /**
+     * Streams PaynPro's report body to the client as it arrives, bypassing the
+     * day cache. {@code fields} keeps only those properties of each row.
+     */
+    @PostMapping("/report/stream")
+    public ResponseEntity<StreamingResponseBody> streamPayoutReport(@RequestBody Map<String, String> request,
+            @RequestParam(required = false) Set<String> fields) {
+        Flux<DataBuffer> body = paynProService.streamTxnReport(request.get("startDate"), request.get("endDate"));
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> gatewayResponseStreamer.write(body, fields, out));
+    }
+
+    @PostMapping("/statement/stream")
+    public ResponseEntity<StreamingResponseBody> streamPayoutStatement(@RequestBody Map<String, String> request,
+            @RequestParam(required = false) Set<String> fields) {
+        Flux<DataBuffer> body = paynProService.streamStatement(request.get("startDate"), request.get("endDate"));
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> gatewayResponseStreamer.write(body, fields, out));
+    }
+
+    /**
+     * Starts a bulk payout job from a text/csv (header row required) or
+     * application/x-ndjson body of email, amount, purpose and gateway.
+     */
+    @PostMapping(value = "/bulk", consumes = { "text/csv", "application/x-ndjson" })
+    public ResponseEntity<?> createBulkPayout(@AuthenticationPrincipal AuthenticatedUser principal,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType, InputStream body) {
+        BulkPayoutJob job = bulkPayoutService.createJob(principal.email());
+        return ResponseEntity.ok(bulkPayoutService.ingest(job.getId(), body, isNdjson(contentType)));
+    }
+
+    /**
+     * Re-upload of the same file after an interrupted upload; lines already
+     * stored are skipped.
+     */
+    @PostMapping(value = "/bulk/{jobId}/resume", consumes = { "text/csv", "application/x-ndjson" })
+    public ResponseEntity<?> resumeBulkPayout(@PathVariable Long jobId,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType, InputStream body) {
+        return ResponseEntity.ok(bulkPayoutService.ingest(jobId, body, isNdjson(contentType)));
+    }
+
+    @GetMapping("/bulk/{jobId}")
+    public ResponseEntity<?> getBulkPayoutProgress(@PathVariable Long jobId) {
+        return ResponseEntity.ok(bulkPayoutService.getProgress(jobId));
+    }
+
+    @GetMapping("/bulk/{jobId}/result")
+    public ResponseEntity<StreamingResponseBody> getBulkPayoutResult(@PathVariable Long jobId) {
+        bulkPayoutService.getProgress(jobId); // 404-style error before streaming starts
+        return ResponseEntity.ok()
+                .contentType(new MediaType("text", "csv"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"bulk-payout-" + jobId + ".csv\"")
+                .body(out -> bulkPayoutService.writeResultCsv(jobId, out));
+    }
+
+    private static boolean isNdjson(String contentType) {
+        return contentType.startsWith("application/x-ndjson");
     }
 
     @PostMapping("/initiate-manual")
-    public ResponseEntity<?> initiateManualPayout(@RequestBody Map<String, Object> request) {
+    public Mono<ResponseEntity<?>> initiateManualPayout(@RequestBody Map<String, Object> request) {
         String email = (String) request.get("email");
         java.math.BigDecimal amount = new java.math.BigDecimal(request.get("amount").toString());
         String purpose = (String) request.get("purpose");
@@ -88,6 +225,9 @@ public class PayoutController {
                 ? in.ajildev.saas_subscription_billing.enums.PaymentGateway.valueOf(gatewayStr.toUpperCase())
                 : null;
 
-        return ResponseEntity.ok(payoutService.initiateManualPayout(email, amount, purpose, gateway));
+        return Mono.fromCallable(() -> payoutService.queueManualPayout(email, amount, purpose, gateway))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(payout -> payoutOutboxDispatcher.dispatchNow(payout.getId()))
+                .map(ResponseEntity::ok);
     }
 }
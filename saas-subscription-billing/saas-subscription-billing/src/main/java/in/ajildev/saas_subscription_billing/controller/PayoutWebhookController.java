@@ -1,8 +1,10 @@
 package in.ajildev.saas_subscription_billing.controller;
 
+import in.ajildev.saas_subscription_billing.dto.paynpro.PaynproPayoutWebhook;
 import in.ajildev.saas_subscription_billing.entity.Payout;
 import in.ajildev.saas_subscription_billing.enums.PayoutStatus;
 import in.ajildev.saas_subscription_billing.repository.PayoutRepository;
+import in.ajildev.saas_subscription_billing.service.GatewayBalanceLedger;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
@@ -10,8 +12,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
-
-import java.util.Map;
+import tools.jackson.databind.json.JsonMapper;
 
 @RestController
 @RequestMapping("/api/payout/paynpro-payout-webhook-response")
@@ -20,15 +21,17 @@ import java.util.Map;
 public class PayoutWebhookController {
 
     private final PayoutRepository payoutRepository;
+    private final GatewayBalanceLedger balanceLedger;
+    private final JsonMapper jsonMapper;
 
     @PostMapping
-    public ResponseEntity<String> handlePayoutWebhook(@RequestBody Map<String, Object> payload) {
+    public ResponseEntity<String> handlePayoutWebhook(@RequestBody PaynproPayoutWebhook payload) {
         log.info("Received PaynPro Payout Webhook: {}", payload);
 
         try {
-            String payoutRef = (String) payload.get("PAYOUT_REF");
-            String status = (String) payload.get("STATUS");
-            String txnId = (String) payload.get("TXN_ID");
+            String payoutRef = payload.payoutRef();
+            String status = payload.status();
+            String txnId = payload.txnId();
 
             if (payoutRef == null || status == null) {
                 log.warn("Invalid webhook payload: missing PAYOUT_REF or STATUS");
@@ -41,11 +44,14 @@ public class PayoutWebhookController {
             if ("Success".equalsIgnoreCase(status)) {
                 payout.setStatus(PayoutStatus.SUCCESS);
             } else if ("Failed".equalsIgnoreCase(status)) {
+                if (payout.getStatus() == PayoutStatus.PROCESSING || payout.getStatus() == PayoutStatus.SUCCESS) {
+                    balanceLedger.credit(payout.getGateway(), payout.getAmount());
+                }
                 payout.setStatus(PayoutStatus.FAILED);
             }
 
             payout.setTxnId(txnId);
-            payout.setResponseJson(payload.toString());
+            payout.setResponseJson(jsonMapper.writeValueAsString(payload));
             payoutRepository.save(payout);
 
             log.info("Payout status updated for Ref: {} to {}", payoutRef, status);
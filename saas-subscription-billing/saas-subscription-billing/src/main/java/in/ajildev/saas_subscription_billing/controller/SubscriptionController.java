@@ -1,13 +1,13 @@
 package in.ajildev.saas_subscription_billing.controller;
 
-import com.razorpay.RazorpayException;
 import in.ajildev.saas_subscription_billing.entity.Subscription;
+import in.ajildev.saas_subscription_billing.security.AuthenticatedUser;
 import in.ajildev.saas_subscription_billing.service.SubscriptionService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
 
 import java.util.Map;
 
@@ -19,14 +19,15 @@ public class SubscriptionController {
     private final SubscriptionService subscriptionService;
 
     @PostMapping("/initiate")
-    public ResponseEntity<Map<String, Object>> initiate(
+    public Mono<ResponseEntity<Map<String, Object>>> initiate(
             @RequestBody Map<String, Object> request,
-            @AuthenticationPrincipal UserDetails userDetails) throws RazorpayException {
+            @AuthenticationPrincipal AuthenticatedUser principal) {
 
         Long planId = Long.valueOf(request.get("planId").toString());
         String gateway = (String) request.getOrDefault("gateway", "razorpay");
 
-        return ResponseEntity.ok(subscriptionService.initiateSubscription(planId, userDetails.getUsername(), gateway));
+        return subscriptionService.initiateSubscriptionAsync(planId, principal.id(), gateway)
+                .map(ResponseEntity::ok);
     }
 
     @PostMapping("/activate")
@@ -42,8 +43,8 @@ public class SubscriptionController {
     }
 
     @GetMapping("/current")
-    public ResponseEntity<Subscription> getCurrent(@AuthenticationPrincipal UserDetails userDetails) {
-        Subscription subscription = subscriptionService.getCurrentSubscription(userDetails.getUsername());
+    public ResponseEntity<Subscription> getCurrent(@AuthenticationPrincipal AuthenticatedUser principal) {
+        Subscription subscription = subscriptionService.getCurrentSubscription(principal.id());
         if (subscription == null) {
             return ResponseEntity.noContent().build();
         }
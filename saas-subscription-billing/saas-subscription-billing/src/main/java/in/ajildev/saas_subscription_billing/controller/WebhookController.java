@@ -1,21 +1,19 @@
 package in.ajildev.saas_subscription_billing.controller;
 
-import in.ajildev.saas_subscription_billing.entity.Payment;
-import in.ajildev.saas_subscription_billing.entity.Subscription;
+import in.ajildev.saas_subscription_billing.dto.paynpro.PaynproPaymentWebhook;
+import in.ajildev.saas_subscription_billing.dto.razorpay.RazorpayWebhookEvent;
 import in.ajildev.saas_subscription_billing.enums.PaymentStatus;
-import in.ajildev.saas_subscription_billing.enums.SubscriptionStatus;
 import in.ajildev.saas_subscription_billing.repository.PaymentRepository;
-import in.ajildev.saas_subscription_billing.repository.SubscriptionRepository;
+import in.ajildev.saas_subscription_billing.service.GatewayBalanceLedger;
 import in.ajildev.saas_subscription_billing.service.PaynProService;
 import in.ajildev.saas_subscription_billing.service.RazorpayService;
+import in.ajildev.saas_subscription_billing.service.SubscriptionService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.json.JSONObject;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-
-import java.time.LocalDateTime;
+import tools.jackson.databind.json.JsonMapper;
 
 @RestController
 @RequestMapping("/api/webhook")
@@ -25,11 +23,13 @@ public class WebhookController {
 
     private final RazorpayService razorpayService;
     private final PaymentRepository paymentRepository;
-    private final SubscriptionRepository subscriptionRepository;
+    private final SubscriptionService subscriptionService;
     private final in.ajildev.saas_subscription_billing.repository.PayoutRepository payoutRepository;
     private final in.ajildev.saas_subscription_billing.service.PayoutService payoutService;
+    private final GatewayBalanceLedger balanceLedger;
 
     private final PaynProService paynProService;
+    private final JsonMapper jsonMapper;
 
     @Value("${razorpay.webhook.secret}")
     private String webhookSecret;
@@ -48,40 +48,19 @@ public class WebhookController {
         }
 
         // 2. Parse Payload
-        JSONObject json = new JSONObject(payload);
-        String event = json.getString("event");
+        RazorpayWebhookEvent webhook = jsonMapper.readValue(payload, RazorpayWebhookEvent.class);
+        String event = webhook.event();
+        if (event == null) {
+            throw new RuntimeException("Webhook payload has no event");
+        }
 
         if ("order.paid".equals(event)) {
-            JSONObject orderEntity = json.getJSONObject("payload").getJSONObject("order").getJSONObject("entity");
-            String razorpayOrderId = orderEntity.getString("id");
-
-            Payment payment = paymentRepository.findByTxnId(razorpayOrderId)
-                    .orElseThrow(
-                            () -> new RuntimeException("Payment record not found for Order ID: " + razorpayOrderId));
-
-            if (payment.getStatus() == PaymentStatus.PENDING) {
-                // Update Payment
-                payment.setStatus(PaymentStatus.SUCCESS);
-                paymentRepository.save(payment);
-
-                // Update Subscription
-                Subscription subscription = payment.getSubscription();
-                subscription.setStatus(SubscriptionStatus.ACTIVE);
-                subscription.setStartDate(LocalDateTime.now());
-
-                // Set default duration (e.g., 30 days)
-                // Set default duration (e.g., 30 days)
-                subscription.setEndDate(LocalDateTime.now().plusDays(30));
-                subscriptionRepository.save(subscription);
-
-                // Trigger Payout
-                payoutService.processPayoutForSubscription(subscription);
-
-                log.info("Subscription activated and Payout triggered for Order ID: {}", razorpayOrderId);
+            String razorpayOrderId = webhook.order().id();
+            if (subscriptionService.activatePaidSubscription(razorpayOrderId)) {
+                log.info("Subscription activated and Payout queued for Order ID: {}", razorpayOrderId);
             }
         } else if ("payment.failed".equals(event)) {
-            JSONObject paymentEntity = json.getJSONObject("payload").getJSONObject("payment").getJSONObject("entity");
-            String razorpayOrderId = paymentEntity.getString("order_id");
+            String razorpayOrderId = webhook.payment().orderId();
 
             paymentRepository.findByTxnId(razorpayOrderId).ifPresent(p -> {
                 p.setStatus(PaymentStatus.FAILED);
@@ -89,15 +68,20 @@ public class WebhookController {
                 log.warn("Payment failed for Order ID: {}", razorpayOrderId);
             });
         } else if (event.startsWith("payout.")) {
-            JSONObject payoutEntity = json.getJSONObject("payload").getJSONObject("payout").getJSONObject("entity");
-            String payoutRef = payoutEntity.optString("reference_id");
-            String status = payoutEntity.optString("status");
+            RazorpayWebhookEvent.Entity payoutEntity = webhook.payout();
+            String payoutRef = payoutEntity.referenceId();
+            String status = payoutEntity.status();
 
             if (payoutRef != null) {
                 payoutRepository.findByPayoutRef(payoutRef).ifPresent(p -> {
                     if ("processed".equals(status)) {
                         p.setStatus(in.ajildev.saas_subscription_billing.enums.PayoutStatus.SUCCESS);
                     } else if ("reversed".equals(status) || "rejected".equals(status) || "failed".equals(status)) {
+                        if (p.getStatus() == in.ajildev.saas_subscription_billing.enums.PayoutStatus.PROCESSING
+                                || p.getStatus() == in.ajildev.saas_subscription_billing.enums.PayoutStatus.SUCCESS) {
+                            // Accepted earlier, so the ledger had already counted it as spent
+                            balanceLedger.credit(p.getGateway(), p.getAmount());
+                        }
                         p.setStatus(in.ajildev.saas_subscription_billing.enums.PayoutStatus.FAILED);
                     }
                     p.setResponseJson(payload);
@@ -112,34 +96,18 @@ public class WebhookController {
 
     @PostMapping("/paynpro")
     public ResponseEntity<String> handlePaynproWebhook(
-            @RequestBody java.util.Map<String, Object> payload) {
+            @RequestBody PaynproPaymentWebhook payload) {
 
         log.info("Received Paynpro Webhook: {}", payload);
 
         // Note: Signature verification depends on Paynpro's response format
         // For now, we activate based on success status
-        String status = (String) payload.get("status");
-        String tradeNo = (String) payload.get("tradeNo");
-
-        if ("SUCCESS".equalsIgnoreCase(status) || "PAID".equalsIgnoreCase(status)) {
-            Payment payment = paymentRepository.findByTxnId(tradeNo)
-                    .orElseThrow(() -> new RuntimeException("Payment record not found for Trade No: " + tradeNo));
-
-            if (payment.getStatus() == PaymentStatus.PENDING) {
-                payment.setStatus(PaymentStatus.SUCCESS);
-                paymentRepository.save(payment);
+        String status = payload.status();
+        String tradeNo = payload.tradeNo();
 
-                Subscription subscription = payment.getSubscription();
-                subscription.setStatus(SubscriptionStatus.ACTIVE);
-                subscription.setStartDate(LocalDateTime.now());
-                subscription.setEndDate(LocalDateTime.now().plusDays(30));
-                subscriptionRepository.save(subscription);
-
-                // Trigger Payout
-                payoutService.processPayoutForSubscription(subscription);
-
-                log.info("Paynpro Subscription activated and Payout triggered for Trade No: {}", tradeNo);
-            }
+        if (("SUCCESS".equalsIgnoreCase(status) || "PAID".equalsIgnoreCase(status))
+                && subscriptionService.activatePaidSubscription(tradeNo)) {
+            log.info("Paynpro Subscription activated and Payout queued for Trade No: {}", tradeNo);
         }
 
         return ResponseEntity.ok("success");
@@ -0,0 +1,21 @@
+package in.ajildev.saas_subscription_billing.dto;
+
+import in.ajildev.saas_subscription_billing.enums.BulkPayoutJobStatus;
+import in.ajildev.saas_subscription_billing.enums.PayoutStatus;
+
+import java.util.Map;
+
+/**
+ * Snapshot of a bulk payout job. {@code payouts} counts the job's accepted
+ * lines by payout status; the job is done once it is fully ingested and none
+ * of them is still waiting to be sent.
+ */
+public record BulkPayoutProgress(
+        Long jobId,
+        BulkPayoutJobStatus status,
+        int linesCommitted,
+        long rejected,
+        Map<PayoutStatus, Long> payouts,
+        boolean done,
+        String error) {
+}
@@ -0,0 +1,8 @@
+package in.ajildev.saas_subscription_billing.dto;
+
+/**
+ * One line of a bulk payout upload. Values are kept as uploaded and validated
+ * by {@code BulkPayoutService}.
+ */
+public record BulkPayoutRow(String email, String amount, String purpose, String gateway) {
+}
@@ -0,0 +1,15 @@
+package in.ajildev.saas_subscription_billing.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * Balance answer of a payout gateway.
+ */
+public interface GatewayBalance {
+
+    /**
+     * @return the available float in paise, or {@code null} if the answer had no balance
+     */
+    @JsonIgnore
+    Long balancePaise();
+}
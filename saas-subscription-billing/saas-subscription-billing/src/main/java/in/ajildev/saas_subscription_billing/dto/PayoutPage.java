@@ -0,0 +1,10 @@
+package in.ajildev.saas_subscription_billing.dto;
+
+import java.util.List;
+
+/**
+ * A page of payouts, newest first. Pass {@code nextCursor} back as
+ * {@code cursor} for the next page; it is null on the last page.
+ */
+public record PayoutPage(List<PayoutSummary> items, String nextCursor) {
+}
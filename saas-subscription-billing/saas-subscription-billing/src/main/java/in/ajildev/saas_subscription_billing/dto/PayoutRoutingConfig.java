@@ -0,0 +1,22 @@
+package in.ajildev.saas_subscription_billing.dto;
+
+import in.ajildev.saas_subscription_billing.enums.PaymentGateway;
+
+import java.util.Map;
+
+/**
+ * Admin routing settings. {@code gatewayWeights} scale each gateway's score
+ * (0 takes it out of rotation, missing means 1); the factor weights set how
+ * much success rate, latency and balance count, and {@code sharpness} is the
+ * exponent applied to scores before drawing a gateway. A non-null
+ * {@code pinned} sends every routed payout to that gateway. When updating,
+ * null fields keep their current value.
+ */
+public record PayoutRoutingConfig(
+        PaymentGateway pinned,
+        Map<PaymentGateway, Double> gatewayWeights,
+        Double successWeight,
+        Double latencyWeight,
+        Double balanceWeight,
+        Double sharpness) {
+}
@@ -0,0 +1,25 @@
+package in.ajildev.saas_subscription_billing.dto;
+
+import in.ajildev.saas_subscription_billing.enums.PaymentGateway;
+import in.ajildev.saas_subscription_billing.enums.PayoutStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One row of the admin payout listing, read straight from the query without
+ * loading the entity or its raw gateway response.
+ */
+public record PayoutSummary(
+        Long id,
+        String payoutRef,
+        String txnId,
+        BigDecimal amount,
+        PayoutStatus status,
+        PaymentGateway gateway,
+        String beneficiaryName,
+        String purpose,
+        Long userId,
+        String userEmail,
+        LocalDateTime createdAt) {
+}
@@ -0,0 +1,28 @@
+package in.ajildev.saas_subscription_billing.dto.paynpro;
+
+import com.fasterxml.jackson.annotation.JsonAnyGetter;
+import com.fasterxml.jackson.annotation.JsonAnySetter;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import in.ajildev.saas_subscription_billing.dto.GatewayBalance;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Map;
+
+/**
+ * Response of {@code POST /payout/v1/fetchBalance}; {@code balance} is in rupees.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record PaynproBalanceResponse(
+        Integer statusCode,
+        String message,
+        BigDecimal balance,
+        @JsonAnySetter @JsonAnyGetter Map<String, Object> other) implements GatewayBalance {
+
+    @Override
+    public Long balancePaise() {
+        return balance != null
+                ? balance.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact()
+                : null;
+    }
+}
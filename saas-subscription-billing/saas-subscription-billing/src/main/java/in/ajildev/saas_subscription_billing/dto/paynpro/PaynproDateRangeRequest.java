@@ -0,0 +1,7 @@
+package in.ajildev.saas_subscription_billing.dto.paynpro;
+
+/**
+ * Body of {@code POST /payout/v1/getTxnReport} and {@code /payout/v1/getStatement}.
+ */
+public record PaynproDateRangeRequest(String startDate, String endDate) {
+}
@@ -0,0 +1,14 @@
+package in.ajildev.saas_subscription_billing.dto.paynpro;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * Error body of a failed PaynPro call; older endpoints use {@code error}, newer ones {@code message}.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record PaynproErrorResponse(String error, String message) {
+
+    public String text() {
+        return error != null ? error : message;
+    }
+}
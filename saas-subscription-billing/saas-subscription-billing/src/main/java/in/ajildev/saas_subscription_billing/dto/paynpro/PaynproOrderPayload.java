@@ -0,0 +1,24 @@
+package in.ajildev.saas_subscription_billing.dto.paynpro;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Builder;
+
+/**
+ * Checkout order; serialized, AES-encrypted and sent as the {@code data} form field.
+ */
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record PaynproOrderPayload(
+        String amount,
+        String tradeNo,
+        @JsonProperty("key_id") String keyId,
+        @JsonProperty("key_secret") String keySecret,
+        String mobile,
+        String txnCurr,
+        String email,
+        String name,
+        String signature,
+        String notifyUrl,
+        String returnUrl) {
+}
@@ -0,0 +1,21 @@
+package in.ajildev.saas_subscription_billing.dto.paynpro;
+
+import com.fasterxml.jackson.annotation.JsonAnyGetter;
+import com.fasterxml.jackson.annotation.JsonAnySetter;
+
+import java.util.Map;
+
+/**
+ * Response of the payment gateway request; {@code data.payUrl} is the hosted checkout page.
+ */
+public record PaynproOrderResponse(
+        Data data,
+        @JsonAnySetter @JsonAnyGetter Map<String, Object> other) {
+
+    public String payUrl() {
+        return data != null ? data.payUrl() : null;
+    }
+
+    public record Data(String payUrl) {
+    }
+}
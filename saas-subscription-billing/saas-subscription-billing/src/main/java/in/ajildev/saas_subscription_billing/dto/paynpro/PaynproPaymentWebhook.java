@@ -0,0 +1,15 @@
+package in.ajildev.saas_subscription_billing.dto.paynpro;
+
+import com.fasterxml.jackson.annotation.JsonAnyGetter;
+import com.fasterxml.jackson.annotation.JsonAnySetter;
+
+import java.util.Map;
+
+/**
+ * Payin notification posted to {@code /api/webhook/paynpro}.
+ */
+public record PaynproPaymentWebhook(
+        String status,
+        String tradeNo,
+        @JsonAnySetter @JsonAnyGetter Map<String, Object> other) {
+}
@@ -0,0 +1,32 @@
+package in.ajildev.saas_subscription_billing.dto.paynpro;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Builder;
+
+/**
+ * Body of {@code POST /payout/v1/transfer}.
+ */
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record PaynproPayoutRequest(
+        String username,
+        @JsonProperty("email_id") String emailId,
+        @JsonProperty("mob_no") String mobNo,
+        String amount,
+        @JsonProperty("payout_ref") String payoutRef,
+        @JsonProperty("txn_type") String txnType,
+        String vpa,
+        @JsonProperty("recv_bank_ifsc") String recvBankIfsc,
+        @JsonProperty("recv_name") String recvName,
+        @JsonProperty("recv_bank_name") String recvBankName,
+        String purpose,
+        @JsonProperty("recv_acc_no") String recvAccNo,
+        String signature,
+        String notifyUrl,
+        String udf1,
+        String udf2,
+        String udf3,
+        String udf4,
+        String udf5) {
+}
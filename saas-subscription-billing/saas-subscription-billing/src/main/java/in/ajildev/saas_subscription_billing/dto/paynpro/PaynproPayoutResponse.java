@@ -0,0 +1,29 @@
+package in.ajildev.saas_subscription_billing.dto.paynpro;
+
+import com.fasterxml.jackson.annotation.JsonAnyGetter;
+import com.fasterxml.jackson.annotation.JsonAnySetter;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Map;
+
+/**
+ * Response of {@code POST /payout/v1/transfer}. Unmapped fields are kept in
+ * {@code other} so the stored response stays complete.
+ */
+public record PaynproPayoutResponse(
+        Integer statusCode,
+        String message,
+        @JsonProperty("Data") Data data,
+        @JsonAnySetter @JsonAnyGetter Map<String, Object> other) {
+
+    @JsonIgnore
+    public boolean isAccepted() {
+        return statusCode != null && statusCode == 200;
+    }
+
+    public record Data(
+            @JsonProperty("txn_id") String txnId,
+            @JsonAnySetter @JsonAnyGetter Map<String, Object> other) {
+    }
+}
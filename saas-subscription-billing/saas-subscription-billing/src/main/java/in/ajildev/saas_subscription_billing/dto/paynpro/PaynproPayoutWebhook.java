@@ -0,0 +1,17 @@
+package in.ajildev.saas_subscription_billing.dto.paynpro;
+
+import com.fasterxml.jackson.annotation.JsonAnyGetter;
+import com.fasterxml.jackson.annotation.JsonAnySetter;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Map;
+
+/**
+ * Payout status notification posted to the {@code notifyUrl} of a transfer.
+ */
+public record PaynproPayoutWebhook(
+        @JsonProperty("PAYOUT_REF") String payoutRef,
+        @JsonProperty("STATUS") String status,
+        @JsonProperty("TXN_ID") String txnId,
+        @JsonAnySetter @JsonAnyGetter Map<String, Object> other) {
+}
@@ -0,0 +1,42 @@
+package in.ajildev.saas_subscription_billing.dto.paynpro;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonAnyGetter;
+import com.fasterxml.jackson.annotation.JsonAnySetter;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Response of {@code POST /payout/v1/getTxnReport} and {@code getStatement}.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record PaynproReportResponse(
+        Integer statusCode,
+        String message,
+        String startDate,
+        String endDate,
+        @JsonProperty("Data") @JsonAlias("data") List<PaynproReportRow> data,
+        @JsonAnySetter @JsonAnyGetter Map<String, Object> other) {
+
+    private static final Pattern NO_DATA = Pattern.compile("\\bno (data|records?|transactions?)\\b",
+            Pattern.CASE_INSENSITIVE);
+
+    @JsonIgnore
+    public boolean isOk() {
+        return (statusCode == null || statusCode == 200) && data != null;
+    }
+
+    /**
+     * PaynPro answers a range without transactions with a non-200 status and a
+     * "No data found" style message rather than an empty {@code Data}.
+     */
+    @JsonIgnore
+    public boolean isNoData() {
+        return data == null && message != null && NO_DATA.matcher(message).find();
+    }
+}
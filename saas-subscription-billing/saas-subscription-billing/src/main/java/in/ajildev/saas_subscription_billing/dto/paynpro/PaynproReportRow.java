@@ -0,0 +1,31 @@
+package in.ajildev.saas_subscription_billing.dto.paynpro;
+
+import com.fasterxml.jackson.annotation.JsonAnyGetter;
+import com.fasterxml.jackson.annotation.JsonAnySetter;
+
+import java.util.Map;
+
+/**
+ * One report or statement row. PaynPro's column set differs between the two
+ * reports and has changed case over time, so every column is kept as sent and
+ * the ones this application reads are looked up in either case.
+ */
+public record PaynproReportRow(@JsonAnySetter @JsonAnyGetter Map<String, Object> fields) {
+
+    public String payoutRef() {
+        return text("payout_ref");
+    }
+
+    public String status() {
+        return text("status");
+    }
+
+    public String txnId() {
+        return text("txn_id");
+    }
+
+    public String text(String column) {
+        Object value = fields.containsKey(column) ? fields.get(column) : fields.get(column.toUpperCase());
+        return value != null ? value.toString() : null;
+    }
+}
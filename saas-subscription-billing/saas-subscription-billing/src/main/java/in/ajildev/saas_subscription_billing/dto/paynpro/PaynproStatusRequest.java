@@ -0,0 +1,9 @@
+package in.ajildev.saas_subscription_billing.dto.paynpro;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Body of {@code POST /payout/v1/getStatus}.
+ */
+public record PaynproStatusRequest(@JsonProperty("payout_ref") String payoutRef, String signature) {
+}
@@ -0,0 +1,28 @@
+package in.ajildev.saas_subscription_billing.dto.paynpro;
+
+import com.fasterxml.jackson.annotation.JsonAnyGetter;
+import com.fasterxml.jackson.annotation.JsonAnySetter;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Map;
+
+/**
+ * Response of {@code POST /payout/v1/getStatus}. A {@code statusCode} other
+ * than 200 means the payout is unknown to PaynPro.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record PaynproStatusResponse(
+        Integer statusCode,
+        String message,
+        @JsonProperty("Data") Data data,
+        @JsonAnySetter @JsonAnyGetter Map<String, Object> other) {
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Data(
+            @JsonProperty("txn_id") String txnId,
+            @JsonProperty("payout_ref") String payoutRef,
+            String status,
+            @JsonAnySetter @JsonAnyGetter Map<String, Object> other) {
+    }
+}
@@ -0,0 +1,21 @@
+package in.ajildev.saas_subscription_billing.dto.razorpay;
+
+import com.fasterxml.jackson.annotation.JsonAnyGetter;
+import com.fasterxml.jackson.annotation.JsonAnySetter;
+import in.ajildev.saas_subscription_billing.dto.GatewayBalance;
+
+import java.util.Map;
+
+/**
+ * Response of {@code GET /v1/payouts/accounts/{account}/balance}; {@code balance} is in paise.
+ */
+public record RazorpayBalanceResponse(
+        Long balance,
+        String currency,
+        @JsonAnySetter @JsonAnyGetter Map<String, Object> other) implements GatewayBalance {
+
+    @Override
+    public Long balancePaise() {
+        return balance;
+    }
+}
@@ -0,0 +1,16 @@
+package in.ajildev.saas_subscription_billing.dto.razorpay;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Body of {@code POST /v1/contacts}.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record RazorpayContactRequest(
+        String name,
+        String email,
+        String contact,
+        String type,
+        @JsonProperty("reference_id") String referenceId) {
+}
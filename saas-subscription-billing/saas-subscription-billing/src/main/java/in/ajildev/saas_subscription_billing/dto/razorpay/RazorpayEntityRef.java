@@ -0,0 +1,7 @@
+package in.ajildev.saas_subscription_billing.dto.razorpay;
+
+/**
+ * Id of a created contact or fund account; the rest of the entity is not needed.
+ */
+public record RazorpayEntityRef(String id) {
+}
@@ -0,0 +1,10 @@
+package in.ajildev.saas_subscription_billing.dto.razorpay;
+
+/**
+ * Error body returned with 4xx and 5xx responses.
+ */
+public record RazorpayErrorResponse(Error error) {
+
+    public record Error(String code, String description) {
+    }
+}
@@ -0,0 +1,20 @@
+package in.ajildev.saas_subscription_billing.dto.razorpay;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Body of {@code POST /v1/fund_accounts} for a bank account.
+ */
+public record RazorpayFundAccountRequest(
+        @JsonProperty("contact_id") String contactId,
+        @JsonProperty("account_type") String accountType,
+        @JsonProperty("bank_account") BankAccount bankAccount) {
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record BankAccount(
+            String name,
+            String ifsc,
+            @JsonProperty("account_number") String accountNumber) {
+    }
+}
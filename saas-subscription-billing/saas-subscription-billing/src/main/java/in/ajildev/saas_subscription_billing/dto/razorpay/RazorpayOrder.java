@@ -0,0 +1,15 @@
+package in.ajildev.saas_subscription_billing.dto.razorpay;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Order entity returned by {@code POST /v1/orders}.
+ */
+public record RazorpayOrder(
+        String id,
+        Long amount,
+        @JsonProperty("amount_due") Long amountDue,
+        String currency,
+        String receipt,
+        String status) {
+}
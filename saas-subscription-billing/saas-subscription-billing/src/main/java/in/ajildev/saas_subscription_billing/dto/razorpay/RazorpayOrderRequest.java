@@ -0,0 +1,13 @@
+package in.ajildev.saas_subscription_billing.dto.razorpay;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Body of {@code POST /v1/orders}. {@code amount} is in paise.
+ */
+public record RazorpayOrderRequest(
+        long amount,
+        String currency,
+        String receipt,
+        @JsonProperty("payment_capture") int paymentCapture) {
+}
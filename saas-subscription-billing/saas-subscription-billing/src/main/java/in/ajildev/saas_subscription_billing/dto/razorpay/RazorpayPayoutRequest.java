@@ -0,0 +1,23 @@
+package in.ajildev.saas_subscription_billing.dto.razorpay;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Builder;
+import lombok.With;
+
+/**
+ * Body of {@code POST /v1/payouts}. {@code amount} is in paise.
+ */
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record RazorpayPayoutRequest(
+        @JsonProperty("account_number") String accountNumber,
+        @With @JsonProperty("fund_account_id") String fundAccountId,
+        long amount,
+        String currency,
+        String mode,
+        String purpose,
+        @JsonProperty("queue_if_low_balance") boolean queueIfLowBalance,
+        @JsonProperty("reference_id") String referenceId,
+        String narration) {
+}
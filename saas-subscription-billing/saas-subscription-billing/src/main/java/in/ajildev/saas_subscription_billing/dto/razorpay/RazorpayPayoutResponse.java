@@ -0,0 +1,21 @@
+package in.ajildev.saas_subscription_billing.dto.razorpay;
+
+import com.fasterxml.jackson.annotation.JsonAnyGetter;
+import com.fasterxml.jackson.annotation.JsonAnySetter;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Map;
+
+/**
+ * Payout entity returned by {@code POST /v1/payouts}. Unmapped fields are kept
+ * in {@code other} so the stored response stays complete.
+ */
+public record RazorpayPayoutResponse(
+        String id,
+        String status,
+        Long amount,
+        @JsonProperty("reference_id") String referenceId,
+        @JsonProperty("fund_account_id") String fundAccountId,
+        String utr,
+        @JsonAnySetter @JsonAnyGetter Map<String, Object> other) {
+}
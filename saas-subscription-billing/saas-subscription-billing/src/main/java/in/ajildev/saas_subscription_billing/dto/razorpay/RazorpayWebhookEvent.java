@@ -0,0 +1,41 @@
+package in.ajildev.saas_subscription_billing.dto.razorpay;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Webhook envelope. Only the entities this application reacts to are mapped.
+ */
+public record RazorpayWebhookEvent(String event, Payload payload) {
+
+    public Entity order() {
+        return entity(payload != null ? payload.order() : null, "order");
+    }
+
+    public Entity payment() {
+        return entity(payload != null ? payload.payment() : null, "payment");
+    }
+
+    public Entity payout() {
+        return entity(payload != null ? payload.payout() : null, "payout");
+    }
+
+    private static Entity entity(Wrapper wrapper, String name) {
+        if (wrapper == null || wrapper.entity() == null) {
+            throw new IllegalArgumentException("Webhook payload has no " + name + " entity");
+        }
+        return wrapper.entity();
+    }
+
+    public record Payload(Wrapper order, Wrapper payment, Wrapper payout) {
+    }
+
+    public record Wrapper(Entity entity) {
+    }
+
+    public record Entity(
+            String id,
+            String status,
+            @JsonProperty("order_id") String orderId,
+            @JsonProperty("reference_id") String referenceId) {
+    }
+}
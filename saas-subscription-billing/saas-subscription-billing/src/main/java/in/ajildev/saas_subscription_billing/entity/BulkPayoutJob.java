@@ -0,0 +1,50 @@
+package in.ajildev.saas_subscription_billing.entity;
+
+import in.ajildev.saas_subscription_billing.enums.BulkPayoutJobStatus;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * An uploaded list of payouts. Accepted lines become payouts tagged with the
+ * job id and are sent through the payout outbox; rejected lines are kept in
+ * {@code bulk_payout_rejections}.
+ */
+@Entity
+@Table(name = "bulk_payout_jobs")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BulkPayoutJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private BulkPayoutJobStatus status;
+
+    @Column(nullable = false)
+    private String createdBy;
+
+    // Highest input line committed so far; a re-upload skips up to here
+    @Column(nullable = false)
+    private int linesCommitted;
+
+    @Column(length = 1000)
+    private String error;
+
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
+}
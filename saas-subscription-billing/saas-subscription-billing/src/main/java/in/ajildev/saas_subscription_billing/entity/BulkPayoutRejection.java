@@ -0,0 +1,39 @@
+package in.ajildev.saas_subscription_billing.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A bulk payout line that failed validation. Rows are written in JDBC batches
+ * by {@code BulkPayoutService}; the entity only defines the table.
+ */
+@Entity
+@Table(name = "bulk_payout_rejections", uniqueConstraints = @UniqueConstraint(columnNames = { "job_id",
+        "line_no" }))
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BulkPayoutRejection {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "job_id", nullable = false)
+    private Long jobId;
+
+    @Column(name = "line_no", nullable = false)
+    private int lineNo;
+
+    private String email;
+
+    // As uploaded, since it may not be a valid number
+    private String amount;
+
+    @Column(nullable = false)
+    private String reason;
+}
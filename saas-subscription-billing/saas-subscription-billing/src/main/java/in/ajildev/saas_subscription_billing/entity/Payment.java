@@ -14,7 +14,7 @@ import java.math.BigDecimal;
 import java.sql.Timestamp;
 
 @Entity
-@Table(name = "payments")
+@Table(name = "payments", indexes = @Index(name = "idx_payments_created", columnList = "created_at, id"))
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
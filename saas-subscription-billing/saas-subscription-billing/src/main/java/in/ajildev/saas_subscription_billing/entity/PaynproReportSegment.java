@@ -0,0 +1,46 @@
+package in.ajildev.saas_subscription_billing.entity;
+
+import in.ajildev.saas_subscription_billing.enums.PaynproReportKind;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * The rows of one PaynPro report or statement for one closed day, as a
+ * gzipped JSON array. Rows are read and written with JDBC by
+ * {@code PaynproReportCache}; the entity only defines the table.
+ */
+@Entity
+@Table(name = "paynpro_report_segments", uniqueConstraints = @UniqueConstraint(columnNames = { "kind", "day" }))
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class PaynproReportSegment {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private PaynproReportKind kind;
+
+    @Column(nullable = false)
+    private LocalDate day;
+
+    @Column(name = "row_count", nullable = false)
+    private int rowCount;
+
+    @Lob
+    @Column(name = "rows_gzip", nullable = false, columnDefinition = "MEDIUMBLOB")
+    private byte[] rowsGzip;
+
+    @Column(name = "fetched_at", nullable = false)
+    private LocalDateTime fetchedAt;
+}
@@ -10,10 +10,17 @@ import lombok.NoArgsConstructor;
 import org.hibernate.annotations.CreationTimestamp;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "payouts")
+@Table(name = "payouts", indexes = {
+        @Index(name = "idx_payouts_bulk_job", columnList = "bulk_job_id, bulk_line_no"),
+        @Index(name = "idx_payouts_created", columnList = "created_at, id"),
+        @Index(name = "idx_payouts_status_created", columnList = "status, created_at, id"),
+        @Index(name = "idx_payouts_gateway_created", columnList = "gateway, created_at, id"),
+        @Index(name = "idx_payouts_user_created", columnList = "user_id, created_at, id"),
+        @Index(name = "idx_payouts_user_status", columnList = "user_id, status") })
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -40,8 +47,9 @@ public class Payout {
     @Column(nullable = false, unique = true)
     private String payoutRef; // Our internal reference
 
+    // VARCHAR rather than Hibernate's default MySQL ENUM, so adding a status needs no ALTER
     @Enumerated(EnumType.STRING)
-    @Column(nullable = false)
+    @Column(nullable = false, columnDefinition = "VARCHAR(32)")
     private PayoutStatus status;
 
     @Enumerated(EnumType.STRING)
@@ -59,5 +67,16 @@ public class Payout {
     @CreationTimestamp
     private LocalDateTime createdAt;
 
+    // When the payout was last handed to its gateway; it may have waited in the outbox for days
+    @Column(name = "sent_at")
+    private Instant sentAt;
+
     private String responseJson; // Raw gateway response
+
+    // Set for payouts created by a bulk job: the job and the input line they came from
+    @Column(name = "bulk_job_id")
+    private Long bulkJobId;
+
+    @Column(name = "bulk_line_no")
+    private Integer bulkLineNo;
 }
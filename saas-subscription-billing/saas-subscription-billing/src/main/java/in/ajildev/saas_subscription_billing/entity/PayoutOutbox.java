@@ -0,0 +1,61 @@
+package in.ajildev.saas_subscription_billing.entity;
+
+import in.ajildev.saas_subscription_billing.enums.OutboxStatus;
+import in.ajildev.saas_subscription_billing.enums.PaymentGateway;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * A payout waiting to be sent to its gateway. Written in the same transaction
+ * as the payout, then claimed and sent by {@code PayoutOutboxDispatcher}.
+ * <p>
+ * While a row is {@code IN_FLIGHT}, {@code nextAttemptAt} is the end of the
+ * dispatcher's lease; a row whose lease ran out is claimed again.
+ */
+@Entity
+@Table(name = "payout_outbox", indexes = @Index(name = "idx_payout_outbox_due",
+        columnList = "gateway, status, next_attempt_at"))
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class PayoutOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "payout_id", nullable = false, unique = true)
+    private Long payoutId;
+
+    // Copied from the payout so each gateway's rows can be claimed by its own workers
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private PaymentGateway gateway;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private OutboxStatus status;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,45 @@
+package in.ajildev.saas_subscription_billing.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * RazorpayX contact and fund account created for a user's bank details, so
+ * repeat payouts to the same account skip the two setup calls.
+ */
+@Entity
+@Table(name = "razorpay_fund_accounts", uniqueConstraints = @UniqueConstraint(columnNames = { "user_id",
+        "bank_fingerprint" }))
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class RazorpayFundAccount {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    // SHA-256 of beneficiary name, IFSC and account number at the time of creation
+    @Column(name = "bank_fingerprint", nullable = false, length = 64)
+    private String bankFingerprint;
+
+    @Column(nullable = false)
+    private String contactId;
+
+    @Column(nullable = false)
+    private String fundAccountId;
+
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+}
@@ -6,6 +6,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -36,6 +37,13 @@ public class User {
 
     private String role;
 
+    // Bumped to revoke all access tokens issued to this user
+    @Builder.Default
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    @JsonIgnore
+    private Integer tokenVersion = 0;
+
     @CreationTimestamp
     @Column(updatable = false)
     private Timestamp createdAt;
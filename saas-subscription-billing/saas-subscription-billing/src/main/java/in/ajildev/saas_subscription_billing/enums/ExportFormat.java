@@ -0,0 +1,5 @@
+package in.ajildev.saas_subscription_billing.enums;
+
+public enum ExportFormat {
+    CSV, NDJSON
+}
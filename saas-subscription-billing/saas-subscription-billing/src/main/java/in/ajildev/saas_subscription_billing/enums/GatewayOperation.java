@@ -0,0 +1,35 @@
+package in.ajildev.saas_subscription_billing.enums;
+
+/**
+ * Classes of outbound gateway calls that share resilience settings. Calls in
+ * one class can fail or saturate without tripping the others.
+ */
+public enum GatewayOperation {
+    PAYNPRO_PAYIN(PaymentGateway.PAYNPRO, "paynpro-payin"),
+    PAYNPRO_PAYOUT(PaymentGateway.PAYNPRO, "paynpro-payout"),
+    PAYNPRO_QUERY(PaymentGateway.PAYNPRO, "paynpro-query"),
+    // Report and statement bodies streamed to a client; held for the whole download
+    PAYNPRO_STREAM(PaymentGateway.PAYNPRO, "paynpro-stream"),
+    RAZORPAY_ORDER(PaymentGateway.RAZORPAY, "razorpay-order"),
+    RAZORPAY_PAYOUT(PaymentGateway.RAZORPAY, "razorpay-payout"),
+    RAZORPAY_QUERY(PaymentGateway.RAZORPAY, "razorpay-query");
+
+    private final PaymentGateway gateway;
+    private final String key;
+
+    GatewayOperation(PaymentGateway gateway, String key) {
+        this.gateway = gateway;
+        this.key = key;
+    }
+
+    public PaymentGateway getGateway() {
+        return gateway;
+    }
+
+    /**
+     * Name used for circuit breakers, bulkheads and metric tags.
+     */
+    public String getKey() {
+        return key;
+    }
+}
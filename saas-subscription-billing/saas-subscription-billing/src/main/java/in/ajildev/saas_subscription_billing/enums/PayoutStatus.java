@@ -2,6 +2,8 @@ package in.ajildev.saas_subscription_billing.enums;
 
 public enum PayoutStatus {
     PENDING,
+    // Parked until the user saves bank details, then re-queued as PENDING
+    AWAITING_BANK_DETAILS,
     PROCESSING,
     SUCCESS,
     FAILED,
@@ -0,0 +1,20 @@
+package in.ajildev.saas_subscription_billing.exception;
+
+/**
+ * 4xx answer from a payment gateway. The gateway is healthy; the request was
+ * rejected, so it does not count against the circuit breaker. A 429 is the
+ * exception: it means the gateway is overloaded and it does count.
+ */
+public class GatewayClientException extends RuntimeException {
+
+    private final int status;
+
+    public GatewayClientException(int status, String message) {
+        super(message);
+        this.status = status;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,19 @@
+package in.ajildev.saas_subscription_billing.exception;
+
+/**
+ * Thrown without calling the gateway when its circuit is open or its
+ * concurrency limit is reached.
+ */
+public class GatewayUnavailableException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public GatewayUnavailableException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,12 @@
+package in.ajildev.saas_subscription_billing.exception;
+
+/**
+ * Thrown without calling the gateway when its known balance cannot cover a
+ * payout.
+ */
+public class InsufficientGatewayBalanceException extends RuntimeException {
+
+    public InsufficientGatewayBalanceException(String message) {
+        super(message);
+    }
+}
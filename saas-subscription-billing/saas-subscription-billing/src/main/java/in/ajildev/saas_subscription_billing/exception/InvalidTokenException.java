@@ -0,0 +1,7 @@
+package in.ajildev.saas_subscription_billing.exception;
+
+public class InvalidTokenException extends RuntimeException {
+    public InvalidTokenException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package in.ajildev.saas_subscription_billing.exception;
+
+public class TooManyRequestsException extends RuntimeException {
+    public TooManyRequestsException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,9 @@
+package in.ajildev.saas_subscription_billing.repository;
+
+import in.ajildev.saas_subscription_billing.entity.BulkPayoutJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface BulkPayoutJobRepository extends JpaRepository<BulkPayoutJob, Long> {
+}
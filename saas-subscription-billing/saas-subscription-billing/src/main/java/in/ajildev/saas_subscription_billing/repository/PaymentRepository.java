@@ -12,4 +12,6 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
     Optional<Payment> findByTxnId(String txnId);
 
     List<Payment> findByUserOrderByCreatedAtDesc(User user);
+
+    List<Payment> findByUserIdOrderByCreatedAtDesc(Long userId);
 }
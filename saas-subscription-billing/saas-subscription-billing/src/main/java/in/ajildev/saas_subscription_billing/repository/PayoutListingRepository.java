@@ -0,0 +1,19 @@
+package in.ajildev.saas_subscription_billing.repository;
+
+import in.ajildev.saas_subscription_billing.dto.PayoutSummary;
+import in.ajildev.saas_subscription_billing.enums.PaymentGateway;
+import in.ajildev.saas_subscription_billing.enums.PayoutStatus;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface PayoutListingRepository {
+
+    /**
+     * Payouts matching the non-null filters, ordered by createdAt and id
+     * descending, starting strictly after ({@code afterCreatedAt},
+     * {@code afterId}) when those are given.
+     */
+    List<PayoutSummary> findSummaries(PayoutStatus status, PaymentGateway gateway, Long userId,
+            LocalDateTime from, LocalDateTime to, LocalDateTime afterCreatedAt, Long afterId, int limit);
+}
@@ -0,0 +1,64 @@
+package in.ajildev.saas_subscription_billing.repository;
+
+import in.ajildev.saas_subscription_billing.dto.PayoutSummary;
+import in.ajildev.saas_subscription_billing.enums.PaymentGateway;
+import in.ajildev.saas_subscription_billing.enums.PayoutStatus;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds the listing query from only the filters that are set, so each
+ * combination can use its own (filter, created_at, id) index instead of one
+ * query full of {@code :param is null} branches.
+ */
+class PayoutListingRepositoryImpl implements PayoutListingRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<PayoutSummary> findSummaries(PayoutStatus status, PaymentGateway gateway, Long userId,
+            LocalDateTime from, LocalDateTime to, LocalDateTime afterCreatedAt, Long afterId, int limit) {
+        StringBuilder jpql = new StringBuilder("select new in.ajildev.saas_subscription_billing.dto.PayoutSummary("
+                + "p.id, p.payoutRef, p.txnId, p.amount, p.status, p.gateway, p.beneficiaryName, p.purpose, "
+                + "u.id, u.email, p.createdAt) from Payout p left join p.user u where 1 = 1");
+        Map<String, Object> params = new HashMap<>();
+
+        if (status != null) {
+            jpql.append(" and p.status = :status");
+            params.put("status", status);
+        }
+        if (gateway != null) {
+            jpql.append(" and p.gateway = :gateway");
+            params.put("gateway", gateway);
+        }
+        if (userId != null) {
+            jpql.append(" and p.user.id = :userId");
+            params.put("userId", userId);
+        }
+        if (from != null) {
+            jpql.append(" and p.createdAt >= :from");
+            params.put("from", from);
+        }
+        if (to != null) {
+            jpql.append(" and p.createdAt < :to");
+            params.put("to", to);
+        }
+        if (afterCreatedAt != null && afterId != null) {
+            jpql.append(" and (p.createdAt < :afterCreatedAt or (p.createdAt = :afterCreatedAt and p.id < :afterId))");
+            params.put("afterCreatedAt", afterCreatedAt);
+            params.put("afterId", afterId);
+        }
+        jpql.append(" order by p.createdAt desc, p.id desc");
+
+        TypedQuery<PayoutSummary> query = entityManager.createQuery(jpql.toString(), PayoutSummary.class);
+        params.forEach(query::setParameter);
+        return query.setMaxResults(limit).getResultList();
+    }
+}
@@ -0,0 +1,33 @@
+package in.ajildev.saas_subscription_billing.repository;
+
+import in.ajildev.saas_subscription_billing.entity.PayoutOutbox;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface PayoutOutboxRepository extends JpaRepository<PayoutOutbox, Long> {
+
+    /**
+     * Locks up to {@code limit} due rows for one gateway, skipping rows another
+     * dispatcher already holds. Must run inside a transaction.
+     */
+    @Query(value = "SELECT * FROM payout_outbox WHERE gateway = :gateway AND status IN ('PENDING', 'IN_FLIGHT') "
+            + "AND next_attempt_at <= :now ORDER BY next_attempt_at LIMIT :limit FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<PayoutOutbox> lockDue(@Param("gateway") String gateway, @Param("now") LocalDateTime now,
+            @Param("limit") int limit);
+
+    /**
+     * Locks one payout's row if it is still waiting for its first claim.
+     * Must run inside a transaction.
+     */
+    @Query(value = "SELECT * FROM payout_outbox WHERE payout_id = :payoutId AND status = 'PENDING' "
+            + "FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    Optional<PayoutOutbox> lockPendingByPayoutId(@Param("payoutId") Long payoutId);
+}
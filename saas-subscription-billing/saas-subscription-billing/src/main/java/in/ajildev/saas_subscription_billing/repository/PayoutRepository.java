@@ -2,17 +2,42 @@ package in.ajildev.saas_subscription_billing.repository;
 
 import in.ajildev.saas_subscription_billing.entity.Payout;
 import in.ajildev.saas_subscription_billing.entity.User;
+import in.ajildev.saas_subscription_billing.enums.PayoutStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface PayoutRepository extends JpaRepository<Payout, Long> {
+public interface PayoutRepository extends JpaRepository<Payout, Long>, PayoutListingRepository {
     List<Payout> findByUserOrderByCreatedAtDesc(User user);
 
     Optional<Payout> findByPayoutRef(String payoutRef);
 
     Optional<Payout> findByTxnId(String txnId);
+
+    /**
+     * Payouts waiting for the user's bank details. Also matches records that
+     * were marked FAILED for missing details before the parked status existed.
+     */
+    default List<Payout> findParkedByUserId(Long userId) {
+        return findParkedByUserId(userId, PayoutStatus.AWAITING_BANK_DETAILS, PayoutStatus.FAILED);
+    }
+
+    @Query("select p from Payout p where p.user.id = :userId and (p.status = :parked "
+            + "or (p.status = :failed and p.payoutRef like 'POUT_ERR_%' and p.purpose = 'Missing bank details')) "
+            + "order by p.createdAt")
+    List<Payout> findParkedByUserId(@Param("userId") Long userId, @Param("parked") PayoutStatus parked,
+            @Param("failed") PayoutStatus failed);
+
+    // Answered from idx_payouts_status_created without touching the rows
+    @Query("select p.status, count(p) from Payout p group by p.status")
+    List<Object[]> countGroupedByStatus();
+
+    // Gateway request bodies read the user, so load it with the payout
+    @Query("select p from Payout p join fetch p.user where p.id = :id")
+    Optional<Payout> findWithUserById(@Param("id") Long id);
 }
@@ -0,0 +1,20 @@
+package in.ajildev.saas_subscription_billing.repository;
+
+import in.ajildev.saas_subscription_billing.entity.RazorpayFundAccount;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface RazorpayFundAccountRepository extends JpaRepository<RazorpayFundAccount, Long> {
+
+    Optional<RazorpayFundAccount> findByUserIdAndBankFingerprint(Long userId, String bankFingerprint);
+
+    @Modifying
+    @Query("delete from RazorpayFundAccount f where f.user.id = :userId")
+    int deleteByUserId(@Param("userId") Long userId);
+}
@@ -11,4 +11,6 @@ import java.util.List;
 @Repository
 public interface SubscriptionRepository extends JpaRepository<Subscription, Long> {
     List<Subscription> findByUserAndStatus(User user, SubscriptionStatus status);
+
+    List<Subscription> findByUserIdAndStatus(Long userId, SubscriptionStatus status);
 }
@@ -0,0 +1,39 @@
+package in.ajildev.saas_subscription_billing.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Request principal built purely from verified access-token claims, so
+ * authenticated requests never need to load the user row.
+ */
+public record AuthenticatedUser(Long id, String email, String role, List<GrantedAuthority> authorities)
+        implements UserDetails {
+
+    public static AuthenticatedUser fromClaims(JwtClaims claims) {
+        return new AuthenticatedUser(
+                claims.userId(),
+                claims.subject(),
+                claims.role(),
+                List.of(new SimpleGrantedAuthority("ROLE_" + claims.role())));
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    @Override
+    public String getPassword() {
+        return null;
+    }
+
+    @Override
+    public String getUsername() {
+        return email;
+    }
+}
@@ -0,0 +1,27 @@
+package in.ajildev.saas_subscription_billing.security;
+
+import java.time.Instant;
+
+/**
+ * Claims of a token that has already passed signature and expiry checks.
+ * {@code role} and {@code tokenVersion} are only present on access tokens,
+ * {@code tokenId} only on refresh tokens.
+ */
+public record JwtClaims(String subject, String type, Long userId, String role, Integer tokenVersion,
+        String tokenId, Instant issuedAt, Instant expiresAt) {
+
+    public static final String TYPE_ACCESS = "access";
+    public static final String TYPE_REFRESH = "refresh";
+
+    public boolean isExpired() {
+        return !expiresAt.isAfter(Instant.now());
+    }
+
+    public boolean isAccessToken() {
+        return TYPE_ACCESS.equals(type) && userId != null && role != null && tokenVersion != null;
+    }
+
+    public boolean isRefreshToken() {
+        return TYPE_REFRESH.equals(type) && userId != null && tokenId != null;
+    }
+}
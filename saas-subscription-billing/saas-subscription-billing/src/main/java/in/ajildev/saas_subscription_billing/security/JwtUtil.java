@@ -1,22 +1,37 @@
 package in.ajildev.saas_subscription_billing.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import in.ajildev.saas_subscription_billing.entity.User;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.function.Function;
 
 @Component
 public class JwtUtil {
 
+    private static final String CLAIM_TYPE = "typ";
+    private static final String CLAIM_USER_ID = "uid";
+    private static final String CLAIM_ROLE = "role";
+    private static final String CLAIM_TOKEN_VERSION = "ver";
+
     @Value("${jwt.secret.key}")
     private String secretKey;
 
@@ -26,64 +41,139 @@ public class JwtUtil {
     @Value("${jwt.expire.refreshToken}")
     private long refreshTokenExpiry;
 
-    // ─── Key ────────────────────────────────────────────────────────────────────
-
-    private Key getSigningKey() {
-        byte[] keyBytes = secretKey.getBytes();
-        return Keys.hmacShaKeyFor(keyBytes);
+    @Value("${jwt.cache.maxSize:10000}")
+    private long verifiedCacheMaxSize;
+
+    private Key signingKey;
+    private JwtParser parser;
+
+    /**
+     * Tokens that already passed signature verification, keyed by a SHA-256
+     * digest of the compact token. Each entry lives until its token expires.
+     */
+    private Cache<TokenDigest, JwtClaims> verifiedTokens;
+
+    @PostConstruct
+    public void init() {
+        this.signingKey = Keys.hmacShaKeyFor(secretKey.getBytes());
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(verifiedCacheMaxSize)
+                .expireAfter(new Expiry<TokenDigest, JwtClaims>() {
+                    @Override
+                    public long expireAfterCreate(TokenDigest key, JwtClaims claims, long currentTime) {
+                        return Math.max(0, Duration.between(Instant.now(), claims.expiresAt()).toNanos());
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(TokenDigest key, JwtClaims claims, long currentTime,
+                            long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(TokenDigest key, JwtClaims claims, long currentTime,
+                            long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
     }
 
     // ─── Token Generation ───────────────────────────────────────────────────────
 
-    public String generateAccessToken(UserDetails userDetails) {
-        return buildToken(new HashMap<>(), userDetails.getUsername(), accessTokenExpiry);
+    /**
+     * Access tokens carry the user id, role and token version so requests can be
+     * authenticated from the token alone.
+     */
+    public String generateAccessToken(User user) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(CLAIM_TYPE, JwtClaims.TYPE_ACCESS);
+        claims.put(CLAIM_USER_ID, user.getId());
+        claims.put(CLAIM_ROLE, user.getRole());
+        claims.put(CLAIM_TOKEN_VERSION, user.getTokenVersion());
+        return buildToken(claims, user.getEmail(), null, accessTokenExpiry);
+    }
+
+    /**
+     * Refresh tokens are identified by {@code tokenId} in the {@link RefreshTokenStore}.
+     */
+    public String generateRefreshToken(User user, long tokenId) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(CLAIM_TYPE, JwtClaims.TYPE_REFRESH);
+        claims.put(CLAIM_USER_ID, user.getId());
+        return buildToken(claims, user.getEmail(), Long.toString(tokenId), refreshTokenExpiry);
     }
 
-    public String generateRefreshToken(UserDetails userDetails) {
-        return buildToken(new HashMap<>(), userDetails.getUsername(), refreshTokenExpiry);
+    public long getRefreshTokenExpiry() {
+        return refreshTokenExpiry;
     }
 
-    private String buildToken(Map<String, Object> extraClaims, String subject, long expiry) {
+    private String buildToken(Map<String, Object> extraClaims, String subject, String tokenId, long expiry) {
         return Jwts.builder()
                 .setClaims(extraClaims)
+                .setId(tokenId)
                 .setSubject(subject)
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + expiry))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
-    // ─── Token Validation ───────────────────────────────────────────────────────
-
-    public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return username.equals(userDetails.getUsername()) && !isTokenExpired(token);
-    }
-
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    // ─── Token Verification ─────────────────────────────────────────────────────
+
+    /**
+     * Verifies signature and expiry in a single parse and returns the claims.
+     * Repeat calls with the same token are served from the verified-token cache.
+     *
+     * @throws io.jsonwebtoken.JwtException if the token is malformed, tampered with or expired
+     */
+    public JwtClaims verify(String token) {
+        TokenDigest digest = TokenDigest.of(token);
+        JwtClaims cached = verifiedTokens.getIfPresent(digest);
+        if (cached != null && !cached.isExpired()) {
+            return cached;
+        }
+
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        Number userId = claims.get(CLAIM_USER_ID, Number.class);
+        Number tokenVersion = claims.get(CLAIM_TOKEN_VERSION, Number.class);
+        JwtClaims verified = new JwtClaims(
+                claims.getSubject(),
+                claims.get(CLAIM_TYPE, String.class),
+                userId != null ? userId.longValue() : null,
+                claims.get(CLAIM_ROLE, String.class),
+                tokenVersion != null ? tokenVersion.intValue() : null,
+                claims.getId(),
+                claims.getIssuedAt() != null ? claims.getIssuedAt().toInstant() : null,
+                claims.getExpiration().toInstant());
+        verifiedTokens.put(digest, verified);
+        return verified;
     }
 
-    // ─── Claims Extraction ──────────────────────────────────────────────────────
-
     public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
-    }
-
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
-    }
-
-    public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
+        return verify(token).subject();
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    // ─── Cache Key ──────────────────────────────────────────────────────────────
+
+    /**
+     * First 128 bits of the token's SHA-256 digest. Keeps cache keys small and
+     * avoids holding bearer tokens in memory.
+     */
+    private record TokenDigest(long high, long low) {
+
+        static TokenDigest of(String token) {
+            try {
+                byte[] hash = MessageDigest.getInstance("SHA-256")
+                        .digest(token.getBytes(StandardCharsets.US_ASCII));
+                ByteBuffer buffer = ByteBuffer.wrap(hash);
+                return new TokenDigest(buffer.getLong(), buffer.getLong());
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 not available", e);
+            }
+        }
     }
 }
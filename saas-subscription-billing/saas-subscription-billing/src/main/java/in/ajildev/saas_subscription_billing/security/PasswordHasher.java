@@ -0,0 +1,132 @@
+package in.ajildev.saas_subscription_billing.security;
+
+import in.ajildev.saas_subscription_billing.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs BCrypt on a dedicated, bounded pool so login storms cannot take over
+ * the servlet threads. Work beyond the queue limit is rejected immediately
+ * with a {@link TooManyRequestsException} (HTTP 429).
+ * <p>
+ * A BCrypt check cannot be interrupted. When a caller gives up after
+ * {@code waitTimeoutMillis}, its request thread is freed and a task still in
+ * the queue is dropped, but a check that already started runs to completion
+ * on its worker. The pool and queue therefore bound the hashing work itself:
+ * size {@code queueCapacity} so that a full queue drains within
+ * {@code waitTimeoutMillis} (roughly {@code threads * waitTimeout / cost} for
+ * the encoder's cost), and callers past that point are turned away at
+ * submission instead of timing out.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PasswordHasher {
+
+    private final PasswordEncoder passwordEncoder;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    @Value("${security.passwordHashing.threads:0}")
+    private int threads;
+
+    @Value("${security.passwordHashing.queueCapacity:64}")
+    private int queueCapacity;
+
+    @Value("${security.passwordHashing.waitTimeoutMillis:5000}")
+    private long waitTimeoutMillis;
+
+    private ThreadPoolExecutor executor;
+
+    // Compared against when the user does not exist, so response time does not reveal valid emails
+    private String dummyHash;
+
+    @PostConstruct
+    public void init() {
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                poolSize, poolSize,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "password-hashing-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        meterRegistry.ifAvailable(registry -> new ExecutorServiceMetrics(executor, "passwordHashing", Tags.empty())
+                .bindTo(registry));
+        long started = System.nanoTime();
+        this.dummyHash = passwordEncoder.encode(UUID.randomUUID().toString());
+        long costMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        long drainMillis = (queueCapacity + poolSize - 1) / poolSize * costMillis;
+        log.info("Password hashing pool started with {} threads and queue capacity {}; one hash takes ~{} ms",
+                poolSize, queueCapacity, costMillis);
+        if (drainMillis > waitTimeoutMillis) {
+            log.warn("A full password hashing queue takes ~{} ms to drain, longer than the {} ms wait timeout; "
+                    + "lower security.passwordHashing.queueCapacity", drainMillis, waitTimeoutMillis);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    public String encode(String rawPassword) {
+        return run(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    /**
+     * @param encodedPassword stored hash, or {@code null} when the user was not found
+     */
+    public boolean matches(String rawPassword, String encodedPassword) {
+        if (encodedPassword == null) {
+            run(() -> passwordEncoder.matches(rawPassword, dummyHash));
+            return false;
+        }
+        return run(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    private <T> T run(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            throw new TooManyRequestsException("Too many authentication requests, please retry shortly");
+        }
+
+        try {
+            return future.get(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // Frees the queue slot if the check has not started; a running check is left to finish
+            executor.remove((Runnable) future);
+            throw new TooManyRequestsException("Too many authentication requests, please retry shortly");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing password", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+}
@@ -4,68 +4,184 @@ import javax.crypto.Cipher;
 import javax.crypto.Mac;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
+/**
+ * Signing and encryption helpers for the PaynPro API.
+ * <p>
+ * Mac, Cipher and MessageDigest instances are expensive to look up and
+ * initialise, so each thread keeps its own, re-keyed only when the secret
+ * changes. Params are encoded as UTF-8 straight into the digest; no
+ * concatenated String is built.
+ */
 public class PaynproUtil {
 
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final String NULL = "null";
+
+    private static final ThreadLocal<State> STATE = ThreadLocal.withInitial(State::new);
+
     public static String generateSignature(String keySecret, String... params) {
         try {
-            Mac hmacSHA256 = Mac.getInstance("HmacSHA256");
-            hmacSHA256.init(new SecretKeySpec(keySecret.getBytes(), "HmacSHA256"));
-            StringBuilder sb = new StringBuilder();
-            for (String p : params)
-                sb.append(p);
-            byte[] hash = hmacSHA256.doFinal(sb.toString().getBytes());
-            StringBuilder hex = new StringBuilder();
-            for (byte b : hash)
-                hex.append(String.format("%02x", b));
-            return hex.toString();
+            State state = STATE.get();
+            Mac mac = state.hmac(keySecret);
+            for (String p : params) {
+                // StringBuilder.append(null) semantics of the original implementation
+                state.update(mac, p != null ? p : NULL);
+            }
+            return toHex(mac.doFinal());
         } catch (Exception e) {
+            STATE.remove();
             throw new RuntimeException("Error generating signature", e);
         }
     }
 
-    public static String generateMD5Signature(String secretKey, java.util.Map<String, Object> params) {
+    public static String generateMD5Signature(String secretKey, Map<String, Object> params) {
         try {
             // 1. Sort keys alphabetically
-            java.util.List<String> sortedKeys = new java.util.ArrayList<>(params.keySet());
-            java.util.Collections.sort(sortedKeys);
+            List<String> sortedKeys = new ArrayList<>(params.keySet());
+            Collections.sort(sortedKeys);
 
-            // 2. Concatenate values
-            StringBuilder sb = new StringBuilder();
+            // 2. Feed values, then the secret key as salt, into MD5
+            State state = STATE.get();
+            MessageDigest md = state.md5();
             for (String key : sortedKeys) {
-                if (params.get(key) != null && !key.equals("sign")) {
-                    sb.append(params.get(key).toString());
+                Object value = params.get(key);
+                if (value != null && !key.equals("sign")) {
+                    state.update(md, value.toString());
                 }
             }
+            state.update(md, secretKey);
 
-            // 3. Add secret key as salt
-            sb.append(secretKey);
-
-            // 4. MD5 encryption
-            java.security.MessageDigest md = java.security.MessageDigest.getInstance("MD5");
-            byte[] hash = md.digest(sb.toString().getBytes());
-
-            // 5. Convert to hex (lowercase)
-            StringBuilder hex = new StringBuilder();
-            for (byte b : hash)
-                hex.append(String.format("%02x", b));
-            return hex.toString();
+            // 3. Convert to hex (lowercase)
+            return toHex(md.digest());
         } catch (Exception e) {
+            STATE.remove();
             throw new RuntimeException("Error generating MD5 signature", e);
         }
     }
 
     public static String encryptAES(String plainText, String encryptionKey, String salt) {
         try {
-            byte[] iv = salt.getBytes();
-            Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
-            SecretKeySpec keySpec = new SecretKeySpec(encryptionKey.getBytes(), "AES");
-            cipher.init(Cipher.ENCRYPT_MODE, keySpec, new IvParameterSpec(iv));
-            byte[] encrypted = cipher.doFinal(plainText.getBytes());
+            Cipher cipher = STATE.get().aes(encryptionKey, salt);
+            byte[] encrypted = cipher.doFinal(plainText.getBytes(StandardCharsets.UTF_8));
             return Base64.getEncoder().encodeToString(encrypted);
         } catch (Exception e) {
+            STATE.remove();
             throw new RuntimeException("Error encrypting AES", e);
         }
     }
+
+    static String toHex(byte[] bytes) {
+        char[] out = new char[bytes.length * 2];
+        for (int i = 0, j = 0; i < bytes.length; i++) {
+            int v = bytes[i] & 0xff;
+            out[j++] = HEX[v >>> 4];
+            out[j++] = HEX[v & 0x0f];
+        }
+        return new String(out);
+    }
+
+    /**
+     * Per-thread primitives. doFinal/digest reset each instance to its
+     * initialised state, so it can be reused as long as the key is unchanged.
+     */
+    private static final class State {
+
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private final ByteBuffer buffer = ByteBuffer.allocate(512);
+
+        private Mac hmac;
+        private String hmacSecret;
+
+        private MessageDigest md5;
+
+        private Cipher aes;
+        private String aesKey;
+        private String aesSalt;
+
+        Mac hmac(String secret) throws GeneralSecurityException {
+            if (hmac == null) {
+                hmac = Mac.getInstance("HmacSHA256");
+            }
+            if (!secret.equals(hmacSecret)) {
+                hmac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+                hmacSecret = secret;
+            } else {
+                hmac.reset();
+            }
+            return hmac;
+        }
+
+        MessageDigest md5() throws GeneralSecurityException {
+            if (md5 == null) {
+                md5 = MessageDigest.getInstance("MD5");
+            }
+            md5.reset();
+            return md5;
+        }
+
+        Cipher aes(String key, String salt) throws GeneralSecurityException {
+            if (aes == null) {
+                aes = Cipher.getInstance("AES/CBC/PKCS5Padding");
+            }
+            if (!key.equals(aesKey) || !Objects.equals(salt, aesSalt)) {
+                aes.init(Cipher.ENCRYPT_MODE,
+                        new SecretKeySpec(key.getBytes(StandardCharsets.UTF_8), "AES"),
+                        new IvParameterSpec(salt.getBytes(StandardCharsets.UTF_8)));
+                aesKey = key;
+                aesSalt = salt;
+            }
+            return aes;
+        }
+
+        void update(Mac mac, String value) {
+            CharBuffer in = CharBuffer.wrap(value);
+            encoder.reset();
+            boolean more;
+            do {
+                more = nextChunk(in);
+                mac.update(buffer);
+            } while (more);
+        }
+
+        void update(MessageDigest md, String value) {
+            CharBuffer in = CharBuffer.wrap(value);
+            encoder.reset();
+            boolean more;
+            do {
+                more = nextChunk(in);
+                md.update(buffer);
+            } while (more);
+        }
+
+        /**
+         * Encodes the next chunk of {@code in} into the buffer, flipped for
+         * reading. Returns true while input remains.
+         */
+        private boolean nextChunk(CharBuffer in) {
+            buffer.clear();
+            CoderResult result = encoder.encode(in, buffer, true);
+            if (result.isUnderflow()) {
+                encoder.flush(buffer);
+            }
+            buffer.flip();
+            return result.isOverflow();
+        }
+    }
 }
@@ -0,0 +1,122 @@
+package in.ajildev.saas_subscription_billing.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import in.ajildev.saas_subscription_billing.exception.InvalidTokenException;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * In-memory registry of issued refresh tokens, keyed by the numeric token id
+ * carried in the JWT {@code jti}.
+ * <p>
+ * Every successful refresh consumes the presented token and issues a new one in
+ * the same family. Presenting an already consumed token is treated as theft:
+ * the whole family is revoked and the client has to log in again.
+ * <p>
+ * Both maps are bounded by {@code jwt.refresh.maxTokens} and drop entries at
+ * the token's own expiry. A token evicted for size is treated as unknown, so
+ * its holder logs in again.
+ */
+@Component
+@Slf4j
+public class RefreshTokenStore {
+
+    @Value("${jwt.refresh.maxTokens:100000}")
+    private long maxTokens;
+
+    private Cache<Long, Entry> tokens;
+
+    // familyId -> epoch millis after which the revocation marker can be dropped
+    private Cache<Long, Long> revokedFamilies;
+
+    @PostConstruct
+    public void init() {
+        this.tokens = Caffeine.newBuilder()
+                .maximumSize(maxTokens)
+                .expireAfter(Expiry.creating((Long tokenId, Entry entry) -> untilMillis(entry.expiresAtMillis)))
+                .build();
+        this.revokedFamilies = Caffeine.newBuilder()
+                .maximumSize(maxTokens)
+                .expireAfter(Expiry.creating((Long familyId, Long expiresAt) -> untilMillis(expiresAt)))
+                .build();
+    }
+
+    /**
+     * Starts a new token family, e.g. on login or signup.
+     *
+     * @return id of the first token in the family
+     */
+    public long issue(long userId, long expiresAtMillis) {
+        return put(userId, nextId(), expiresAtMillis);
+    }
+
+    /**
+     * Consumes {@code tokenId} and returns the id of its replacement.
+     *
+     * @throws InvalidTokenException if the token is unknown, expired, revoked or reused
+     */
+    public long rotate(long tokenId, long userId, long newExpiresAtMillis) {
+        Entry entry = tokens.getIfPresent(tokenId);
+        if (entry == null || entry.userId != userId || entry.expiresAtMillis <= System.currentTimeMillis()) {
+            throw new InvalidTokenException("Refresh token is invalid or expired");
+        }
+        if (revokedFamilies.getIfPresent(entry.familyId) != null) {
+            throw new InvalidTokenException("Refresh token has been revoked");
+        }
+        if (!entry.consumed.compareAndSet(false, true)) {
+            revokedFamilies.put(entry.familyId, newExpiresAtMillis);
+            log.warn("Refresh token reuse detected for user {}; revoked token family {}", userId, entry.familyId);
+            throw new InvalidTokenException("Refresh token has already been used");
+        }
+        return put(userId, entry.familyId, newExpiresAtMillis);
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.refresh.sweepIntervalMillis:60000}")
+    public void sweepExpired() {
+        tokens.cleanUp();
+        revokedFamilies.cleanUp();
+    }
+
+    public long size() {
+        return tokens.estimatedSize();
+    }
+
+    private long put(long userId, long familyId, long expiresAtMillis) {
+        Entry entry = new Entry(userId, familyId, expiresAtMillis);
+        long tokenId;
+        do {
+            tokenId = nextId();
+        } while (tokens.asMap().putIfAbsent(tokenId, entry) != null);
+        return tokenId;
+    }
+
+    private static Duration untilMillis(long epochMillis) {
+        return Duration.ofMillis(Math.max(0, epochMillis - System.currentTimeMillis()));
+    }
+
+    private static long nextId() {
+        return ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
+    }
+
+    private static final class Entry {
+        final long userId;
+        final long familyId;
+        final long expiresAtMillis;
+        final AtomicBoolean consumed = new AtomicBoolean();
+
+        Entry(long userId, long familyId, long expiresAtMillis) {
+            this.userId = userId;
+            this.familyId = familyId;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package in.ajildev.saas_subscription_billing.security;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import in.ajildev.saas_subscription_billing.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+
+/**
+ * Tracks the per-user token version embedded in access tokens. Bumping the
+ * version revokes every outstanding access token for that user.
+ * <p>
+ * Versions are cached briefly, so other nodes see a revocation within
+ * {@code jwt.tokenVersion.cacheTtlSeconds}.
+ */
+@Service
+@RequiredArgsConstructor
+public class TokenVersionService {
+
+    private static final int UNKNOWN_USER = -1;
+
+    private final UserRepository userRepository;
+
+    @Value("${jwt.tokenVersion.cacheTtlSeconds:30}")
+    private long cacheTtlSeconds;
+
+    @Value("${jwt.tokenVersion.cacheMaxSize:100000}")
+    private long cacheMaxSize;
+
+    private LoadingCache<Long, Integer> versions;
+
+    @PostConstruct
+    public void init() {
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(Duration.ofSeconds(cacheTtlSeconds))
+                .build(userId -> userRepository.findTokenVersionById(userId).orElse(UNKNOWN_USER));
+    }
+
+    public boolean isCurrent(Long userId, Integer tokenVersion) {
+        Integer current = versions.get(userId);
+        return current != UNKNOWN_USER && current.equals(tokenVersion);
+    }
+
+    /**
+     * Invalidates all access tokens issued to the user so far.
+     * <p>
+     * The cached version is dropped only after the bump commits; dropping it
+     * earlier would let a concurrent request reload the old version and cache
+     * it for another TTL.
+     */
+    @Transactional
+    public void revokeTokens(Long userId) {
+        userRepository.incrementTokenVersion(userId);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                versions.invalidate(userId);
+            }
+        });
+    }
+}
@@ -2,18 +2,18 @@ package in.ajildev.saas_subscription_billing.service;
 
 import in.ajildev.saas_subscription_billing.dto.AuthRequest;
 import in.ajildev.saas_subscription_billing.dto.AuthResponse;
+import in.ajildev.saas_subscription_billing.dto.RefreshRequest;
 import in.ajildev.saas_subscription_billing.dto.SignupRequest;
 import in.ajildev.saas_subscription_billing.entity.User;
 import in.ajildev.saas_subscription_billing.exception.EmailAlreadyExistsException;
+import in.ajildev.saas_subscription_billing.exception.InvalidTokenException;
 import in.ajildev.saas_subscription_billing.repository.UserRepository;
+import in.ajildev.saas_subscription_billing.security.JwtClaims;
 import in.ajildev.saas_subscription_billing.security.JwtUtil;
-import in.ajildev.saas_subscription_billing.security.UserDetailsServiceImpl;
+import in.ajildev.saas_subscription_billing.security.PasswordHasher;
+import in.ajildev.saas_subscription_billing.security.RefreshTokenStore;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UsernameNotFoundException;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -21,10 +21,9 @@ import org.springframework.stereotype.Service;
 public class AuthService {
 
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHasher passwordHasher;
     private final JwtUtil jwtUtil;
-    private final AuthenticationManager authenticationManager;
-    private final UserDetailsServiceImpl userDetailsService;
+    private final RefreshTokenStore refreshTokenStore;
 
     public AuthResponse signup(SignupRequest request) {
         if (userRepository.existsByEmail(request.getEmail())) {
@@ -34,35 +33,67 @@ public class AuthService {
         User user = User.builder()
                 .name(request.getName())
                 .email(request.getEmail())
-                .password(passwordEncoder.encode(request.getPassword()))
+                .password(passwordHasher.encode(request.getPassword()))
                 .role("USER")
                 .build();
 
-        userRepository.save(user);
+        user = userRepository.save(user);
 
-        UserDetails userDetails = userDetailsService.loadUserByUsername(user.getEmail());
-        String accessToken = jwtUtil.generateAccessToken(userDetails);
-        String refreshToken = jwtUtil.generateRefreshToken(userDetails);
-
-        return AuthResponse.builder()
-                .accessToken(accessToken)
-                .refreshToken(refreshToken)
-                .email(user.getEmail())
-                .name(user.getName())
-                .role(user.getRole())
-                .build();
+        long refreshTokenId = refreshTokenStore.issue(user.getId(), refreshTokenExpiresAt());
+        return buildResponse(user, refreshTokenId);
     }
 
+    /**
+     * Loads the user once and checks the password on the bounded hashing pool.
+     * Unknown emails and wrong passwords fail the same way.
+     */
     public AuthResponse login(AuthRequest request) {
-        authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(request.getEmail(), request.getPassword()));
+        User user = userRepository.findByEmail(request.getEmail()).orElse(null);
+
+        boolean matches = passwordHasher.matches(request.getPassword(), user != null ? user.getPassword() : null);
+        if (user == null || !matches) {
+            throw new BadCredentialsException("Invalid email or password");
+        }
+
+        long refreshTokenId = refreshTokenStore.issue(user.getId(), refreshTokenExpiresAt());
+        return buildResponse(user, refreshTokenId);
+    }
+
+    /**
+     * Exchanges a refresh token for a new access/refresh pair. Costs one HMAC
+     * check and a primary-key lookup instead of a BCrypt login; the presented
+     * refresh token is consumed.
+     */
+    public AuthResponse refresh(RefreshRequest request) {
+        JwtClaims claims;
+        try {
+            claims = jwtUtil.verify(request.getRefreshToken());
+        } catch (Exception e) {
+            throw new InvalidTokenException("Refresh token is invalid or expired");
+        }
+        if (!claims.isRefreshToken()) {
+            throw new InvalidTokenException("Not a refresh token");
+        }
+
+        long tokenId;
+        try {
+            tokenId = Long.parseLong(claims.tokenId());
+        } catch (NumberFormatException e) {
+            throw new InvalidTokenException("Refresh token is invalid or expired");
+        }
 
-        UserDetails userDetails = userDetailsService.loadUserByUsername(request.getEmail());
-        User user = userRepository.findByEmail(request.getEmail())
-                .orElseThrow(() -> new UsernameNotFoundException("Email does not exist"));
+        long nextTokenId = refreshTokenStore.rotate(tokenId, claims.userId(), refreshTokenExpiresAt());
 
-        String accessToken = jwtUtil.generateAccessToken(userDetails);
-        String refreshToken = jwtUtil.generateRefreshToken(userDetails);
+        // Reload so the new access token reflects the current role and token version
+        User user = userRepository.findById(claims.userId())
+                .orElseThrow(() -> new InvalidTokenException("User no longer exists"));
+
+        return buildResponse(user, nextTokenId);
+    }
+
+    private AuthResponse buildResponse(User user, long refreshTokenId) {
+        String accessToken = jwtUtil.generateAccessToken(user);
+        String refreshToken = jwtUtil.generateRefreshToken(user, refreshTokenId);
 
         return AuthResponse.builder()
                 .accessToken(accessToken)
@@ -72,4 +103,8 @@ public class AuthService {
                 .role(user.getRole())
                 .build();
     }
+
+    private long refreshTokenExpiresAt() {
+        return System.currentTimeMillis() + jwtUtil.getRefreshTokenExpiry();
+    }
 }
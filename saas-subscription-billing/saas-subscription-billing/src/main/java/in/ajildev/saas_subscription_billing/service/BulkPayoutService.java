@@ -0,0 +1,358 @@
+package in.ajildev.saas_subscription_billing.service;
+
+import in.ajildev.saas_subscription_billing.dto.BulkPayoutProgress;
+import in.ajildev.saas_subscription_billing.dto.BulkPayoutRow;
+import in.ajildev.saas_subscription_billing.entity.BulkPayoutJob;
+import in.ajildev.saas_subscription_billing.enums.BulkPayoutJobStatus;
+import in.ajildev.saas_subscription_billing.enums.PaymentGateway;
+import in.ajildev.saas_subscription_billing.enums.PayoutStatus;
+import in.ajildev.saas_subscription_billing.repository.BulkPayoutJobRepository;
+import in.ajildev.saas_subscription_billing.util.CsvUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Creates payouts from an uploaded list of (email, amount, purpose, gateway).
+ * <p>
+ * The upload is read as a stream and handled in batches: each batch looks up
+ * its users with one query and writes its payouts, outbox entries and
+ * rejections with JDBC batch inserts in a single transaction. Sending is left
+ * to {@link PayoutOutboxDispatcher}, whose per-gateway worker pools bound the
+ * parallelism.
+ * <p>
+ * Payout references are {@code BULK_<job>_<line>} and every insert turns a
+ * duplicate key into a no-op (other errors still fail the batch, unlike
+ * {@code INSERT IGNORE}), so an interrupted upload can be resumed by sending the same
+ * file again; lines up to {@code linesCommitted} are skipped without parsing.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BulkPayoutService {
+
+    private static final String INSERT_PAYOUT = "INSERT INTO payouts (user_id, amount, payout_ref, status, "
+            + "gateway, beneficiary_name, account_no, ifsc, bank_name, purpose, mobile, created_at, bulk_job_id, "
+            + "bulk_line_no) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE id = id";
+
+    private static final String INSERT_REJECTION = "INSERT INTO bulk_payout_rejections (job_id, line_no, "
+            + "email, amount, reason) VALUES (?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE id = id";
+
+    private static final String INSERT_OUTBOX = "INSERT INTO payout_outbox (payout_id, gateway, status, "
+            + "attempts, next_attempt_at, created_at, updated_at) SELECT p.id, p.gateway, 'PENDING', 0, ?, ?, ? "
+            + "FROM payouts p WHERE p.bulk_job_id = ? AND p.bulk_line_no BETWEEN ? AND ? AND p.status = 'PENDING' "
+            + "ON DUPLICATE KEY UPDATE id = payout_outbox.id";
+
+    private static final String SELECT_BENEFICIARIES = "SELECT id, email, payout_account_no, payout_ifsc, "
+            + "payout_beneficiary_name, payout_bank_name, mobile FROM users WHERE email IN (:emails)";
+
+    private static final String SELECT_RESULT = "SELECT p.bulk_line_no AS line_no, u.email, p.amount, "
+            + "p.payout_ref, p.status, p.txn_id, NULL AS reason FROM payouts p JOIN users u ON u.id = p.user_id "
+            + "WHERE p.bulk_job_id = ? "
+            + "UNION ALL SELECT r.line_no, r.email, r.amount, NULL, 'REJECTED', NULL, r.reason "
+            + "FROM bulk_payout_rejections r WHERE r.job_id = ? ORDER BY line_no";
+
+    private final BulkPayoutJobRepository jobRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PayoutRouter payoutRouter;
+    private final JsonMapper jsonMapper;
+
+    @Value("${payout.bulk.batchSize:500}")
+    private int batchSize;
+
+    @Value("${payout.bulk.maxAmount:100000}")
+    private BigDecimal maxAmount;
+
+    private record Line(int lineNo, BulkPayoutRow row, String error) {
+    }
+
+    private record Beneficiary(Long userId, String name, String accountNo, String ifsc, String bankName,
+            String mobile) {
+    }
+
+    public BulkPayoutJob createJob(String createdBy) {
+        return jobRepository.save(BulkPayoutJob.builder()
+                .status(BulkPayoutJobStatus.INGESTING)
+                .createdBy(createdBy)
+                .build());
+    }
+
+    /**
+     * Reads an upload into {@code jobId}. CSV needs a header row naming at
+     * least the email and amount columns; NDJSON has one object per line.
+     * Line numbers count data lines from 1, blank lines included.
+     */
+    public BulkPayoutProgress ingest(Long jobId, InputStream body, boolean ndjson) {
+        BulkPayoutJob job = jobRepository.findById(jobId)
+                .orElseThrow(() -> new RuntimeException("Bulk payout job not found"));
+        if (job.getStatus() == BulkPayoutJobStatus.QUEUED) {
+            throw new RuntimeException("Bulk payout job " + jobId + " has already been fully uploaded");
+        }
+
+        int skipThrough = job.getLinesCommitted();
+        int lineNo = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            Map<String, Integer> columns = ndjson ? null : readHeader(reader.readLine());
+            List<Line> batch = new ArrayList<>(batchSize);
+
+            String raw;
+            while ((raw = reader.readLine()) != null) {
+                lineNo++;
+                if (lineNo <= skipThrough || raw.isBlank()) {
+                    continue;
+                }
+                batch.add(ndjson ? parseNdjson(lineNo, raw) : parseCsv(lineNo, raw, columns));
+                if (batch.size() >= batchSize) {
+                    commitBatch(jobId, batch, lineNo);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty() || lineNo > skipThrough) {
+                commitBatch(jobId, batch, lineNo);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Bulk payout job {} stopped at line {}: {}", jobId, lineNo, e.getMessage());
+            updateJob(jobId, BulkPayoutJobStatus.INGEST_FAILED, e.getMessage());
+            throw new RuntimeException("Bulk payout upload failed near line " + lineNo + ": " + e.getMessage(), e);
+        }
+
+        updateJob(jobId, BulkPayoutJobStatus.QUEUED, null);
+        log.info("Bulk payout job {} queued with {} line(s)", jobId, lineNo);
+        return getProgress(jobId);
+    }
+
+    public BulkPayoutProgress getProgress(Long jobId) {
+        BulkPayoutJob job = jobRepository.findById(jobId)
+                .orElseThrow(() -> new RuntimeException("Bulk payout job not found"));
+
+        Map<PayoutStatus, Long> payouts = new EnumMap<>(PayoutStatus.class);
+        jdbcTemplate.query("SELECT status, COUNT(*) FROM payouts WHERE bulk_job_id = ? GROUP BY status",
+                rs -> {
+                    payouts.put(PayoutStatus.valueOf(rs.getString(1)), rs.getLong(2));
+                }, jobId);
+        Long rejected = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM bulk_payout_rejections WHERE job_id = ?", Long.class, jobId);
+
+        boolean done = job.getStatus() == BulkPayoutJobStatus.QUEUED
+                && payouts.getOrDefault(PayoutStatus.PENDING, 0L) == 0;
+        return new BulkPayoutProgress(job.getId(), job.getStatus(), job.getLinesCommitted(),
+                rejected != null ? rejected : 0, payouts, done, job.getError());
+    }
+
+    /**
+     * Writes one CSV row per input line: accepted lines with their payout's
+     * current status, rejected lines with the reason.
+     */
+    public void writeResultCsv(Long jobId, OutputStream out) {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        try {
+            writer.write("line_no,email,amount,payout_ref,status,txn_id,reason\n");
+            jdbcTemplate.query(SELECT_RESULT, rs -> {
+                try {
+                    writer.write(rs.getInt("line_no") + "," + CsvUtil.escape(rs.getString("email")) + ","
+                            + CsvUtil.escape(rs.getString("amount")) + "," + CsvUtil.escape(rs.getString("payout_ref")) + ","
+                            + CsvUtil.escape(rs.getString("status")) + "," + CsvUtil.escape(rs.getString("txn_id")) + ","
+                            + CsvUtil.escape(rs.getString("reason")) + "\n");
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, jobId, jobId);
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // ─── Ingestion ──────────────────────────────────────────────────────────────
+
+    private void commitBatch(Long jobId, List<Line> batch, int lastLineNo) {
+        transactionTemplate.executeWithoutResult(tx -> {
+            Map<String, Beneficiary> beneficiaries = loadBeneficiaries(batch);
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+            List<Object[]> payouts = new ArrayList<>(batch.size());
+            List<Object[]> rejections = new ArrayList<>();
+            for (Line line : batch) {
+                BulkPayoutRow row = line.row();
+                String reason = line.error();
+                BigDecimal amount = null;
+                PaymentGateway gateway = null;
+                Beneficiary beneficiary = null;
+
+                if (reason == null) {
+                    amount = parseAmount(row.amount());
+                    gateway = parseGateway(row.gateway(), amount);
+                    beneficiary = row.email() != null ? beneficiaries.get(row.email().toLowerCase(Locale.ROOT)) : null;
+                    reason = validate(row, amount, gateway, beneficiary);
+                }
+
+                if (reason != null) {
+                    rejections.add(new Object[] { jobId, line.lineNo(), row != null ? row.email() : null,
+                            row != null ? row.amount() : null, reason });
+                    continue;
+                }
+                payouts.add(new Object[] { beneficiary.userId(), amount, "BULK_" + jobId + "_" + line.lineNo(),
+                        PayoutStatus.PENDING.name(), gateway.name(), beneficiary.name(), beneficiary.accountNo(),
+                        beneficiary.ifsc(), beneficiary.bankName(),
+                        row.purpose() != null && !row.purpose().isBlank() ? row.purpose() : "Bulk Payout",
+                        beneficiary.mobile(), now, jobId, line.lineNo() });
+            }
+
+            if (!payouts.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_PAYOUT, payouts);
+                jdbcTemplate.update(INSERT_OUTBOX, now, now, now, jobId, batch.get(0).lineNo(),
+                        batch.get(batch.size() - 1).lineNo());
+            }
+            if (!rejections.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_REJECTION, rejections);
+            }
+            jdbcTemplate.update("UPDATE bulk_payout_jobs SET lines_committed = ?, updated_at = ? WHERE id = ?",
+                    lastLineNo, now, jobId);
+        });
+    }
+
+    private Map<String, Beneficiary> loadBeneficiaries(List<Line> batch) {
+        Set<String> emails = batch.stream()
+                .filter(line -> line.row() != null && line.row().email() != null)
+                .map(line -> line.row().email())
+                .collect(Collectors.toSet());
+        Map<String, Beneficiary> beneficiaries = new HashMap<>();
+        if (emails.isEmpty()) {
+            return beneficiaries;
+        }
+        namedParameterJdbcTemplate.query(SELECT_BENEFICIARIES, Map.of("emails", emails), rs -> {
+            beneficiaries.put(rs.getString("email").toLowerCase(Locale.ROOT), new Beneficiary(
+                    rs.getLong("id"),
+                    rs.getString("payout_beneficiary_name"),
+                    rs.getString("payout_account_no"),
+                    rs.getString("payout_ifsc"),
+                    rs.getString("payout_bank_name"),
+                    rs.getString("mobile")));
+        });
+        return beneficiaries;
+    }
+
+    private String validate(BulkPayoutRow row, BigDecimal amount, PaymentGateway gateway, Beneficiary beneficiary) {
+        if (row.email() == null || row.email().isBlank()) {
+            return "Email is required";
+        }
+        if (amount == null) {
+            return "Invalid amount";
+        }
+        if (amount.signum() <= 0 || amount.compareTo(maxAmount) > 0) {
+            return "Amount must be greater than 0 and at most " + maxAmount.toPlainString();
+        }
+        if (gateway == null) {
+            return "Unknown gateway";
+        }
+        if (beneficiary == null) {
+            return "User not found";
+        }
+        if (beneficiary.accountNo() == null || beneficiary.ifsc() == null) {
+            return "User has no payout details configured";
+        }
+        return null;
+    }
+
+    private static BigDecimal parseAmount(String value) {
+        try {
+            BigDecimal amount = new BigDecimal(value.trim());
+            return amount.scale() <= 2 ? amount : null;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Lines without a gateway are routed.
+     */
+    private PaymentGateway parseGateway(String value, BigDecimal amount) {
+        if (value == null || value.isBlank()) {
+            return payoutRouter.choose(amount, PaymentGateway.PAYNPRO);
+        }
+        try {
+            return PaymentGateway.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private void updateJob(Long jobId, BulkPayoutJobStatus status, String error) {
+        jdbcTemplate.update("UPDATE bulk_payout_jobs SET status = ?, error = ?, updated_at = ? WHERE id = ?",
+                status.name(), error != null && error.length() > 1000 ? error.substring(0, 1000) : error,
+                Timestamp.valueOf(LocalDateTime.now()), jobId);
+    }
+
+    // ─── Parsing ────────────────────────────────────────────────────────────────
+
+    private Line parseNdjson(int lineNo, String raw) {
+        try {
+            return new Line(lineNo, jsonMapper.readValue(raw, BulkPayoutRow.class), null);
+        } catch (RuntimeException e) {
+            return new Line(lineNo, null, "Malformed JSON");
+        }
+    }
+
+    private static Map<String, Integer> readHeader(String header) {
+        if (header == null) {
+            throw new RuntimeException("Upload is empty");
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> names = CsvUtil.split(header);
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        if (!columns.containsKey("email") || !columns.containsKey("amount")) {
+            throw new RuntimeException("CSV header must contain email and amount columns");
+        }
+        return columns;
+    }
+
+    private static Line parseCsv(int lineNo, String raw, Map<String, Integer> columns) {
+        List<String> values = CsvUtil.split(raw);
+        BulkPayoutRow row = new BulkPayoutRow(
+                column(values, columns, "email"),
+                column(values, columns, "amount"),
+                column(values, columns, "purpose"),
+                column(values, columns, "gateway"));
+        return new Line(lineNo, row, null);
+    }
+
+    private static String column(List<String> values, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= values.size()) {
+            return null;
+        }
+        String value = values.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+}
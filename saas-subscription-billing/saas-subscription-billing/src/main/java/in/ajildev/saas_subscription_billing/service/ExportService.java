@@ -0,0 +1,226 @@
+package in.ajildev.saas_subscription_billing.service;
+
+import in.ajildev.saas_subscription_billing.enums.ExportFormat;
+import in.ajildev.saas_subscription_billing.enums.PaymentGateway;
+import in.ajildev.saas_subscription_billing.util.CsvUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams payouts and payments straight from the database to a response.
+ * <p>
+ * Rows are read through a forward-only, read-only cursor with a fetch size of
+ * {@link Integer#MIN_VALUE}, which makes MySQL Connector/J stream the result
+ * row by row instead of buffering it, and each row is written to the output
+ * as soon as it is read. Memory use is the same for any number of rows.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ExportService {
+
+    // Connector/J's signal for a streaming result set
+    private static final int STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
+
+    private static final String SELECT_PAYOUTS = "SELECT p.id, p.payout_ref, p.txn_id, u.email AS user_email, "
+            + "p.amount, p.status, p.gateway, p.beneficiary_name, p.ifsc, p.bank_name, p.purpose, p.bulk_job_id, "
+            + "p.created_at FROM payouts p LEFT JOIN users u ON u.id = p.user_id";
+
+    private static final String SELECT_PAYMENTS = "SELECT p.id, p.txn_id, u.email AS user_email, p.subscription_id, "
+            + "p.amount, p.status, p.gateway, p.created_at, p.updated_at "
+            + "FROM payments p JOIN users u ON u.id = p.user_id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JsonMapper jsonMapper;
+
+    public void exportPayouts(String status, PaymentGateway gateway, LocalDateTime from, LocalDateTime to,
+            ExportFormat format, OutputStream out) {
+        export(SELECT_PAYOUTS, status, gateway, from, to, format, out);
+    }
+
+    public void exportPayments(String status, PaymentGateway gateway, LocalDateTime from, LocalDateTime to,
+            ExportFormat format, OutputStream out) {
+        export(SELECT_PAYMENTS, status, gateway, from, to, format, out);
+    }
+
+    private void export(String select, String status, PaymentGateway gateway, LocalDateTime from,
+            LocalDateTime to, ExportFormat format, OutputStream out) {
+        StringBuilder sql = new StringBuilder(select).append(" WHERE 1 = 1");
+        List<Object> args = new ArrayList<>();
+        if (status != null) {
+            sql.append(" AND p.status = ?");
+            args.add(status);
+        }
+        if (gateway != null) {
+            sql.append(" AND p.gateway = ?");
+            args.add(gateway.name());
+        }
+        if (from != null) {
+            sql.append(" AND p.created_at >= ?");
+            args.add(Timestamp.valueOf(from));
+        }
+        if (to != null) {
+            sql.append(" AND p.created_at < ?");
+            args.add(Timestamp.valueOf(to));
+        }
+        sql.append(" ORDER BY p.created_at, p.id");
+
+        RowSink sink = format == ExportFormat.NDJSON ? new NdjsonSink(out) : new CsvSink(out);
+        Long rows = jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql.toString(), ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(STREAMING_FETCH_SIZE);
+            for (int i = 0; i < args.size(); i++) {
+                statement.setObject(i + 1, args.get(i));
+            }
+            return statement;
+        }, rs -> {
+            // The header comes from the metadata, so an export with no rows still has one
+            sink.begin(rs.getMetaData());
+            long count = 0;
+            while (rs.next()) {
+                sink.write(rs);
+                count++;
+            }
+            return count;
+        });
+        sink.finish();
+        log.info("Exported {} row(s) as {}", rows, format);
+    }
+
+    /**
+     * Writes one result set row at a time in a given format.
+     */
+    private interface RowSink {
+
+        void begin(ResultSetMetaData metaData) throws SQLException;
+
+        void write(ResultSet rs) throws SQLException;
+
+        void finish();
+    }
+
+    private static final class CsvSink implements RowSink {
+
+        private final Writer writer;
+        private int columns;
+
+        private CsvSink(OutputStream out) {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void begin(ResultSetMetaData metaData) throws SQLException {
+            columns = metaData.getColumnCount();
+            StringBuilder header = new StringBuilder();
+            for (int i = 1; i <= columns; i++) {
+                header.append(i > 1 ? "," : "").append(metaData.getColumnLabel(i));
+            }
+            write(header.append('\n'));
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException {
+            StringBuilder line = new StringBuilder(128);
+            for (int i = 1; i <= columns; i++) {
+                Object value = rs.getObject(i);
+                line.append(i > 1 ? "," : "").append(CsvUtil.escape(text(value)));
+            }
+            write(line.append('\n'));
+        }
+
+        @Override
+        public void finish() {
+            try {
+                writer.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void write(CharSequence text) {
+            try {
+                writer.append(text);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private final class NdjsonSink implements RowSink {
+
+        private final JsonGenerator generator;
+        private String[] names;
+
+        private NdjsonSink(OutputStream out) {
+            this.generator = jsonMapper.writer().withRootValueSeparator("").createGenerator(out);
+        }
+
+        @Override
+        public void begin(ResultSetMetaData metaData) throws SQLException {
+            names = new String[metaData.getColumnCount()];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = metaData.getColumnLabel(i + 1);
+            }
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException {
+            generator.writeStartObject();
+            for (int i = 0; i < names.length; i++) {
+                Object value = rs.getObject(i + 1);
+                generator.writeName(names[i]);
+                if (value == null) {
+                    generator.writeNull();
+                } else if (value instanceof BigDecimal number) {
+                    generator.writeNumber(number);
+                } else if (value instanceof Long || value instanceof Integer) {
+                    generator.writeNumber(((Number) value).longValue());
+                } else {
+                    generator.writeString(text(value));
+                }
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void finish() {
+            generator.flush();
+        }
+    }
+
+    private static String text(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime().toString();
+        }
+        if (value instanceof BigDecimal number) {
+            return number.toPlainString();
+        }
+        return value.toString();
+    }
+}
@@ -0,0 +1,178 @@
+package in.ajildev.saas_subscription_billing.service;
+
+import in.ajildev.saas_subscription_billing.dto.GatewayBalance;
+import in.ajildev.saas_subscription_billing.enums.PaymentGateway;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Local view of each gateway's payout float, in paise.
+ * <p>
+ * Each gateway's available and in-flight amounts are one immutable state,
+ * replaced by CAS, so every change sees both consistently. A payout reserves
+ * its amount before it is sent; the reservation never takes {@code available}
+ * below zero, so concurrent dispatchers cannot over-commit the float. Once the gateway accepts the
+ * payout the reservation is committed (the gateway's own balance now reflects
+ * it); if the call fails it is released. A payout that fails or is reversed
+ * after acceptance credits its amount back.
+ * <p>
+ * {@code available} is reset from the gateway balance on every reconcile,
+ * minus reservations still in flight. Until a gateway has been seeded once,
+ * reservations for it always succeed and are not counted.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class GatewayBalanceLedger {
+
+    private static final BigDecimal PAISE_PER_RUPEE = BigDecimal.valueOf(100);
+
+    private final GatewayBalanceService balanceService;
+
+    private final Map<PaymentGateway, Account> accounts = new EnumMap<>(PaymentGateway.class);
+
+    @PostConstruct
+    public void init() {
+        for (PaymentGateway gateway : PaymentGateway.values()) {
+            accounts.put(gateway, new Account());
+        }
+    }
+
+    /**
+     * @param inFlight reserved but not yet accepted by the gateway
+     */
+    private record State(long available, long inFlight, boolean seeded) {
+    }
+
+    private static final class Account {
+        private final AtomicReference<State> state = new AtomicReference<>(new State(0, 0, false));
+    }
+
+    /**
+     * Funds held for one payout. {@link #commit} and {@link #release} are
+     * idempotent and only the first of them takes effect.
+     */
+    public final class Reservation {
+
+        private final Account account;
+        private final long paise;
+        private final AtomicBoolean settled = new AtomicBoolean();
+
+        private Reservation(Account account, long paise) {
+            this.account = account;
+            this.paise = paise;
+        }
+
+        /**
+         * The gateway accepted the payout.
+         */
+        public void commit() {
+            if (account != null && settled.compareAndSet(false, true)) {
+                account.state.updateAndGet(s -> new State(s.available(), s.inFlight() - paise, s.seeded()));
+            }
+        }
+
+        /**
+         * The payout was not sent or was refused outright; return the funds.
+         */
+        public void release() {
+            if (account != null && settled.compareAndSet(false, true)) {
+                account.state.updateAndGet(s -> new State(s.available() + paise, s.inFlight() - paise, s.seeded()));
+            }
+        }
+    }
+
+    /**
+     * @return the reservation, or {@code null} if the known balance cannot cover {@code amount}
+     */
+    public Reservation reserve(PaymentGateway gateway, BigDecimal amount) {
+        Account account = accounts.get(gateway);
+        long paise = toPaise(amount);
+        while (true) {
+            State current = account.state.get();
+            if (!current.seeded()) {
+                // Fail open: without a balance we cannot tell, so let the gateway decide
+                return new Reservation(null, 0);
+            }
+            if (current.available() < paise) {
+                return null;
+            }
+            State reserved = new State(current.available() - paise, current.inFlight() + paise, true);
+            if (account.state.compareAndSet(current, reserved)) {
+                return new Reservation(account, paise);
+            }
+        }
+    }
+
+    /**
+     * Returns the amount of an accepted payout that later failed or was reversed.
+     */
+    public void credit(PaymentGateway gateway, BigDecimal amount) {
+        long paise = toPaise(amount);
+        accounts.get(gateway).state.updateAndGet(s -> s.seeded()
+                ? new State(s.available() + paise, s.inFlight(), true)
+                : s);
+    }
+
+    public long getAvailablePaise(PaymentGateway gateway) {
+        return accounts.get(gateway).state.get().available();
+    }
+
+    public boolean isSeeded(PaymentGateway gateway) {
+        return accounts.get(gateway).state.get().seeded();
+    }
+
+    /**
+     * Available and in-flight paise per gateway, for the admin balance view.
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        accounts.forEach((gateway, account) -> {
+            State state = account.state.get();
+            snapshot.put(gateway.name().toLowerCase(), Map.of(
+                    "seeded", state.seeded(),
+                    "availablePaise", state.available(),
+                    "inFlightPaise", state.inFlight()));
+        });
+        return snapshot;
+    }
+
+    @Scheduled(fixedDelayString = "${gateway.ledger.reconcileMillis:60000}")
+    public void reconcile() {
+        for (PaymentGateway gateway : PaymentGateway.values()) {
+            balanceService.refresh(gateway).subscribe(
+                    balance -> seed(gateway, balance),
+                    e -> log.warn("Could not reconcile {} ledger: {}", gateway, e.getMessage()));
+        }
+    }
+
+    private void seed(PaymentGateway gateway, GatewayBalance balance) {
+        Long paise = balance.balancePaise();
+        if (paise == null) {
+            log.warn("No balance in {} response; ledger left as is", gateway);
+            return;
+        }
+        // In the same CAS as reservations, so in-flight amounts are subtracted exactly once
+        State previous = accounts.get(gateway).state
+                .getAndUpdate(s -> new State(paise - s.inFlight(), s.inFlight(), true));
+        long available = paise - previous.inFlight();
+        if (previous.seeded() && previous.available() != available) {
+            log.debug("{} ledger corrected from {} to {} paise", gateway, previous.available(), available);
+        }
+    }
+
+    static long toPaise(BigDecimal amount) {
+        return amount.multiply(PAISE_PER_RUPEE).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+}
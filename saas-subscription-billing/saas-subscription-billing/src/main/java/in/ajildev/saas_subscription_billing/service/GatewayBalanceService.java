@@ -0,0 +1,142 @@
+package in.ajildev.saas_subscription_billing.service;
+
+import in.ajildev.saas_subscription_billing.dto.GatewayBalance;
+import in.ajildev.saas_subscription_billing.enums.PaymentGateway;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import tools.jackson.core.type.TypeReference;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Gateway balances behind a per-gateway stale-while-revalidate cache.
+ * <p>
+ * A balance younger than the fresh TTL is served as is. An older one is served
+ * immediately, marked stale, while a single background refresh runs. Concurrent
+ * callers that need a refresh share one in-flight gateway call.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class GatewayBalanceService {
+
+    private final PaynProService paynProService;
+    private final RazorpayService razorpayService;
+    private final JsonMapper jsonMapper;
+
+    @Value("${gateway.balance.freshTtlMillis:10000}")
+    private long freshTtlMillis;
+
+    @Value("${gateway.balance.maxStaleMillis:300000}")
+    private long maxStaleMillis;
+
+    private final Map<PaymentGateway, BalanceSlot> slots = new EnumMap<>(PaymentGateway.class);
+
+    @PostConstruct
+    public void init() {
+        slots.put(PaymentGateway.PAYNPRO,
+                new BalanceSlot(PaymentGateway.PAYNPRO, paynProService::fetchBalanceAsync));
+        slots.put(PaymentGateway.RAZORPAY,
+                new BalanceSlot(PaymentGateway.RAZORPAY, razorpayService::fetchBalanceAsync));
+    }
+
+    /**
+     * Balances of all gateways, queried concurrently, keyed {@code paynpro} and
+     * {@code razorpay}. A failing gateway yields an {@code error} entry instead
+     * of failing the whole response.
+     */
+    public Mono<Map<String, Object>> getBalances() {
+        return Mono.zip(getBalance(PaymentGateway.PAYNPRO), getBalance(PaymentGateway.RAZORPAY))
+                .map(results -> {
+                    Map<String, Object> balances = new LinkedHashMap<>();
+                    balances.put("paynpro", results.getT1());
+                    balances.put("razorpay", results.getT2());
+                    return balances;
+                });
+    }
+
+    /**
+     * Gateway response fields plus {@code fetchedAt} and {@code stale}.
+     */
+    public Mono<Map<String, Object>> getBalance(PaymentGateway gateway) {
+        return slots.get(gateway).get()
+                .onErrorResume(e -> Mono.just(Map.of("error", String.valueOf(e.getMessage()))));
+    }
+
+    /**
+     * Forces a refresh, joining one that is already in flight.
+     */
+    public Mono<GatewayBalance> refresh(PaymentGateway gateway) {
+        return slots.get(gateway).refresh().map(Snapshot::balance);
+    }
+
+    private Map<String, Object> toResponse(Snapshot snapshot, boolean stale) {
+        Map<String, Object> response = new LinkedHashMap<>(
+                jsonMapper.convertValue(snapshot.balance(), new TypeReference<Map<String, Object>>() {
+                }));
+        response.put("fetchedAt", snapshot.fetchedAt().toString());
+        response.put("stale", stale);
+        return response;
+    }
+
+    private record Snapshot(GatewayBalance balance, Instant fetchedAt) {
+
+        Duration age() {
+            return Duration.between(fetchedAt, Instant.now());
+        }
+    }
+
+    private final class BalanceSlot {
+
+        private final PaymentGateway gateway;
+        private final Supplier<Mono<? extends GatewayBalance>> fetcher;
+        private final AtomicReference<Snapshot> latest = new AtomicReference<>();
+        private final AtomicReference<Mono<Snapshot>> inFlight = new AtomicReference<>();
+
+        BalanceSlot(PaymentGateway gateway, Supplier<Mono<? extends GatewayBalance>> fetcher) {
+            this.gateway = gateway;
+            this.fetcher = fetcher;
+        }
+
+        Mono<Map<String, Object>> get() {
+            Snapshot snapshot = latest.get();
+            if (snapshot != null) {
+                long ageMillis = snapshot.age().toMillis();
+                if (ageMillis < freshTtlMillis) {
+                    return Mono.just(toResponse(snapshot, false));
+                }
+                if (ageMillis < maxStaleMillis) {
+                    refresh().subscribe(s -> {
+                    }, e -> log.warn("Background {} balance refresh failed: {}", gateway, e.getMessage()));
+                    return Mono.just(toResponse(snapshot, true));
+                }
+            }
+            return refresh().map(s -> toResponse(s, false));
+        }
+
+        Mono<Snapshot> refresh() {
+            Mono<Snapshot> current = inFlight.get();
+            if (current != null) {
+                return current;
+            }
+
+            Mono<Snapshot> call = Mono.defer(fetcher)
+                    .map(balance -> new Snapshot(balance, Instant.now()))
+                    .doOnNext(latest::set)
+                    .doFinally(signal -> inFlight.set(null))
+                    .cache();
+            return inFlight.compareAndSet(null, call) ? call : refresh();
+        }
+    }
+}
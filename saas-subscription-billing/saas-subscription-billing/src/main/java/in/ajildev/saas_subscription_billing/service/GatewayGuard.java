@@ -0,0 +1,207 @@
+package in.ajildev.saas_subscription_billing.service;
+
+import in.ajildev.saas_subscription_billing.config.GatewayResilienceProperties;
+import in.ajildev.saas_subscription_billing.enums.GatewayOperation;
+import in.ajildev.saas_subscription_billing.exception.GatewayClientException;
+import in.ajildev.saas_subscription_billing.exception.GatewayUnavailableException;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Circuit breaker and bulkhead per {@link GatewayOperation}.
+ * <p>
+ * While a circuit is open, or all permits of an operation are in use, calls
+ * fail immediately with {@link GatewayUnavailableException} instead of waiting
+ * on a sick gateway. 4xx answers are ignored by the breakers. State, failure
+ * rates and permits are published as {@code resilience4j.circuitbreaker.*}
+ * and {@code resilience4j.bulkhead.*} meters.
+ */
+@Service
+@Slf4j
+public class GatewayGuard {
+
+    private final GatewayResilienceProperties properties;
+    private final OutboundRateLimiter rateLimiter;
+    private final CircuitBreakerRegistry circuitBreakerRegistry = CircuitBreakerRegistry.ofDefaults();
+    private final BulkheadRegistry bulkheadRegistry = BulkheadRegistry.ofDefaults();
+    private final Map<GatewayOperation, CircuitBreaker> circuitBreakers = new EnumMap<>(GatewayOperation.class);
+    private final Map<GatewayOperation, Bulkhead> bulkheads = new EnumMap<>(GatewayOperation.class);
+
+    public GatewayGuard(GatewayResilienceProperties properties, OutboundRateLimiter rateLimiter,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        this.properties = properties;
+        this.rateLimiter = rateLimiter;
+        for (GatewayOperation operation : GatewayOperation.values()) {
+            GatewayResilienceProperties.Policy policy = properties.policyFor(operation);
+
+            CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker(operation.getKey(),
+                    CircuitBreakerConfig.custom()
+                            .slidingWindowType(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED)
+                            .slidingWindowSize(policy.getSlidingWindowSize())
+                            .minimumNumberOfCalls(policy.getMinimumNumberOfCalls())
+                            .failureRateThreshold(policy.getFailureRateThreshold())
+                            .slowCallDurationThreshold(policy.getSlowCallDurationThreshold())
+                            .slowCallRateThreshold(policy.getSlowCallRateThreshold())
+                            .waitDurationInOpenState(policy.getWaitDurationInOpenState())
+                            .permittedNumberOfCallsInHalfOpenState(policy.getPermittedCallsInHalfOpenState())
+                            .automaticTransitionFromOpenToHalfOpenEnabled(true)
+                            .ignoreException(GatewayGuard::isClientError)
+                            .build());
+            circuitBreaker.getEventPublisher().onStateTransition(event -> log.warn("Gateway circuit {}: {}",
+                    event.getCircuitBreakerName(), event.getStateTransition()));
+            circuitBreakers.put(operation, circuitBreaker);
+
+            // Reactive callers must never block for a permit, so there is no wait
+            bulkheads.put(operation, bulkheadRegistry.bulkhead(operation.getKey(), BulkheadConfig.custom()
+                    .maxConcurrentCalls(policy.getMaxConcurrentCalls())
+                    .maxWaitDuration(Duration.ZERO)
+                    .build()));
+        }
+        meterRegistry.ifAvailable(registry -> {
+            TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(circuitBreakerRegistry).bindTo(registry);
+            TaggedBulkheadMetrics.ofBulkheadRegistry(bulkheadRegistry).bindTo(registry);
+        });
+    }
+
+    /**
+     * Runs {@code call} on subscription once the operation's rate limit, circuit
+     * and bulkhead permit it. The rate limiter is outermost so queued calls do
+     * not hold bulkhead permits, and the bulkhead wraps the breaker so rejected
+     * calls are not recorded as gateway failures. An {@link ExchangeTimer} in
+     * the subscriber context is given the duration of {@code call} alone.
+     */
+    public <T> Mono<T> protect(GatewayOperation operation, Mono<T> call) {
+        Mono<T> guarded = timed(call)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreakers.get(operation)))
+                .transformDeferred(BulkheadOperator.of(bulkheads.get(operation)))
+                .onErrorMap(e -> rejection(operation, e));
+        return rateLimiter.throttle(operation, guarded);
+    }
+
+    /**
+     * Streaming variant of {@link #protect}. The bulkhead permit is held until
+     * the last element has been read, so give streams an operation of their
+     * own. The breaker only sees the call up to its first element: how long a
+     * large body takes to reach a slow client says nothing about the gateway.
+     */
+    public <T> Flux<T> protectMany(GatewayOperation operation, Flux<T> call) {
+        Flux<T> guarded = untilFirstElement(circuitBreakers.get(operation), call)
+                .transformDeferred(BulkheadOperator.of(bulkheads.get(operation)))
+                .onErrorMap(e -> rejection(operation, e));
+        return rateLimiter.throttle(operation, Mono.<Void>empty()).thenMany(guarded);
+    }
+
+    private static <T> Flux<T> untilFirstElement(CircuitBreaker circuitBreaker, Flux<T> call) {
+        return Flux.defer(() -> {
+            circuitBreaker.acquirePermission();
+            long start = circuitBreaker.getCurrentTimestamp();
+            AtomicBoolean recorded = new AtomicBoolean();
+            Runnable success = () -> {
+                if (recorded.compareAndSet(false, true)) {
+                    circuitBreaker.onSuccess(circuitBreaker.getCurrentTimestamp() - start,
+                            circuitBreaker.getTimestampUnit());
+                }
+            };
+            return call
+                    .doOnNext(element -> success.run())
+                    .doOnComplete(success)
+                    .doOnError(e -> {
+                        if (recorded.compareAndSet(false, true)) {
+                            circuitBreaker.onError(circuitBreaker.getCurrentTimestamp() - start,
+                                    circuitBreaker.getTimestampUnit(), e);
+                        }
+                    })
+                    .doOnCancel(() -> {
+                        if (recorded.compareAndSet(false, true)) {
+                            circuitBreaker.releasePermission();
+                        }
+                    });
+        });
+    }
+
+    private static <T> Mono<T> timed(Mono<T> call) {
+        return Mono.deferContextual(context -> context.<ExchangeTimer>getOrEmpty(ExchangeTimer.class)
+                .map(timer -> call.doOnSubscribe(subscription -> timer.start())
+                        .doOnSuccess(value -> timer.stop())
+                        .doOnError(e -> timer.stop()))
+                .orElse(call));
+    }
+
+    private Throwable rejection(GatewayOperation operation, Throwable e) {
+        if (e instanceof CallNotPermittedException) {
+            return new GatewayUnavailableException(
+                    operation.getGateway() + " is temporarily unavailable, please retry later",
+                    properties.policyFor(operation).getWaitDurationInOpenState().toSeconds());
+        }
+        if (e instanceof BulkheadFullException) {
+            return new GatewayUnavailableException(operation.getGateway() + " is busy, please retry shortly", 1);
+        }
+        return e;
+    }
+
+    public CircuitBreaker.State getState(GatewayOperation operation) {
+        return circuitBreakers.get(operation).getState();
+    }
+
+    /**
+     * A rejected request says nothing about gateway health, but a 429 does: the
+     * gateway is shedding load, so it counts as a failure like a 5xx.
+     */
+    private static boolean isClientError(Throwable e) {
+        if (e instanceof GatewayClientException client) {
+            return client.getStatus() != 429;
+        }
+        return e instanceof WebClientResponseException response && response.getStatusCode().is4xxClientError()
+                && response.getStatusCode().value() != 429;
+    }
+
+    /**
+     * Measures the HTTP exchange of a protected call, leaving out the time it
+     * spent queued in the rate limiter or waiting for a permit. Put it in the
+     * subscriber context under its class; when several protected calls run
+     * under one timer, it holds the last one.
+     */
+    public static final class ExchangeTimer {
+
+        private volatile long startNanos;
+        private volatile long elapsedNanos;
+
+        void start() {
+            startNanos = System.nanoTime();
+            elapsedNanos = 0;
+        }
+
+        void stop() {
+            elapsedNanos = System.nanoTime() - startNanos;
+        }
+
+        /**
+         * Zero if the call never reached the gateway.
+         */
+        public Duration elapsed() {
+            return Duration.ofNanos(elapsedNanos);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package in.ajildev.saas_subscription_billing.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.filter.FilteringParserDelegate;
+import tools.jackson.core.filter.TokenFilter;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Set;
+
+/**
+ * Copies a gateway response body to a client as it arrives.
+ * <p>
+ * The body is read through {@link DataBufferUtils#subscriberInputStream},
+ * which requests at most {@code prefetch} buffers ahead of the writer and
+ * releases each one once copied, so a slow client slows the gateway read
+ * instead of growing the heap. With row fields given, the JSON is re-emitted
+ * token by token through a filtering parser, keeping the envelope and only
+ * those properties of each {@code Data} row; nothing is parsed into a tree.
+ */
+@Service
+@RequiredArgsConstructor
+public class GatewayResponseStreamer {
+
+    private final JsonMapper jsonMapper;
+
+    @Value("${gateway.passthrough.prefetch:16}")
+    private int prefetch;
+
+    public void write(Flux<DataBuffer> body, Set<String> rowFields, OutputStream out) throws IOException {
+        try (InputStream in = DataBufferUtils.subscriberInputStream(body, prefetch)) {
+            if (rowFields == null || rowFields.isEmpty()) {
+                in.transferTo(out);
+                out.flush();
+                return;
+            }
+            try (JsonParser parser = new FilteringParserDelegate(jsonMapper.createParser(in),
+                    new EnvelopeFilter(rowFields), TokenFilter.Inclusion.INCLUDE_ALL_AND_PATH, true)) {
+                // Not closed: that would close the response stream
+                JsonGenerator generator = jsonMapper.createGenerator(out);
+                while (parser.nextToken() != null) {
+                    generator.copyCurrentEvent(parser);
+                }
+                generator.flush();
+            }
+        }
+    }
+
+    /**
+     * Keeps everything except inside the {@code Data} array, whose rows are
+     * passed to a {@link RowFilter}.
+     */
+    private static final class EnvelopeFilter extends TokenFilter {
+
+        private final RowFilter rowFilter;
+
+        private EnvelopeFilter(Set<String> rowFields) {
+            this.rowFilter = new RowFilter(rowFields);
+        }
+
+        @Override
+        public TokenFilter includeProperty(String name) {
+            if ("Data".equals(name) || "data".equals(name)) {
+                return new TokenFilter() {
+                    @Override
+                    public TokenFilter includeElement(int index) {
+                        return rowFilter;
+                    }
+                };
+            }
+            return TokenFilter.INCLUDE_ALL;
+        }
+    }
+
+    private static final class RowFilter extends TokenFilter {
+
+        private final Set<String> fields;
+
+        private RowFilter(Set<String> fields) {
+            this.fields = fields;
+        }
+
+        @Override
+        public TokenFilter includeProperty(String name) {
+            return fields.contains(name) ? TokenFilter.INCLUDE_ALL : null;
+        }
+    }
+}
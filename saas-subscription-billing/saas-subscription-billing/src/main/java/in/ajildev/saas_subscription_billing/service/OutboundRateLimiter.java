@@ -0,0 +1,176 @@
+package in.ajildev.saas_subscription_billing.service;
+
+import in.ajildev.saas_subscription_billing.config.GatewayRateLimitProperties;
+import in.ajildev.saas_subscription_billing.enums.GatewayOperation;
+import in.ajildev.saas_subscription_billing.exception.GatewayUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Token-bucket limiter for outbound gateway calls, one bucket per
+ * {@link GatewayOperation}, implemented as GCRA on a single CAS'd timestamp.
+ * <p>
+ * A call over the limit is given the next free slot and delayed until then
+ * with {@link Mono#delay}, so no thread is held while it waits. It is rejected
+ * with {@link GatewayUnavailableException} up front if that slot lies beyond
+ * its deadline or too many calls are already waiting. The deadline is the
+ * configured {@code maxWait}, or an earlier {@link Instant} put into the
+ * Reactor context under {@link #DEADLINE}.
+ */
+@Service
+@Slf4j
+public class OutboundRateLimiter {
+
+    public static final String DEADLINE = OutboundRateLimiter.class.getName() + ".deadline";
+
+    private final Map<GatewayOperation, Bucket> buckets = new EnumMap<>(GatewayOperation.class);
+
+    public OutboundRateLimiter(GatewayRateLimitProperties properties, ObjectProvider<MeterRegistry> meterRegistry) {
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        for (GatewayOperation operation : GatewayOperation.values()) {
+            GatewayRateLimitProperties.Limit limit = properties.limitFor(operation);
+            if (limit.getPermitsPerSecond() > 0) {
+                buckets.put(operation, new Bucket(operation, limit, registry, System::nanoTime));
+            }
+        }
+    }
+
+    /**
+     * Subscribes to {@code call} once a slot is available.
+     */
+    public <T> Mono<T> throttle(GatewayOperation operation, Mono<T> call) {
+        Bucket bucket = buckets.get(operation);
+        if (bucket == null) {
+            return call;
+        }
+        return Mono.deferContextual(context -> {
+            long maxWaitNanos = bucket.maxWaitNanos;
+            Instant deadline = context.getOrDefault(DEADLINE, null);
+            if (deadline != null) {
+                maxWaitNanos = Math.min(maxWaitNanos, Duration.between(Instant.now(), deadline).toNanos());
+            }
+
+            long waitNanos = bucket.reserve(maxWaitNanos);
+            if (waitNanos == 0) {
+                return call;
+            }
+            // Released as the wait ends, before the call runs, or when it is cancelled while waiting
+            return Mono.delay(Duration.ofNanos(waitNanos))
+                    .doOnTerminate(bucket.waiting::decrementAndGet)
+                    .doOnCancel(bucket.waiting::decrementAndGet)
+                    .then(call);
+        });
+    }
+
+    public int getQueueDepth(GatewayOperation operation) {
+        Bucket bucket = buckets.get(operation);
+        return bucket != null ? bucket.waiting.get() : 0;
+    }
+
+    static final class Bucket {
+
+        private final GatewayOperation operation;
+        private final long intervalNanos;
+        private final long toleranceNanos;
+        private final int maxQueueDepth;
+        private final long maxWaitNanos;
+        private final LongSupplier clock;
+
+        // Theoretical arrival time of the next call, in clock units
+        private final AtomicLong tat;
+        private final AtomicInteger waiting = new AtomicInteger();
+
+        private final Timer waitTimer;
+        private final Counter rejectedQueueFull;
+        private final Counter rejectedDeadline;
+
+        Bucket(GatewayOperation operation, GatewayRateLimitProperties.Limit limit, MeterRegistry registry,
+                LongSupplier clock) {
+            this.operation = operation;
+            this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / limit.getPermitsPerSecond());
+            this.toleranceNanos = intervalNanos * Math.max(0, limit.getBurst() - 1);
+            this.maxQueueDepth = limit.getMaxQueueDepth();
+            this.maxWaitNanos = limit.getMaxWait().toNanos();
+            this.clock = clock;
+            this.tat = new AtomicLong(clock.getAsLong());
+
+            if (registry != null) {
+                String tag = operation.getKey();
+                Gauge.builder("gateway.ratelimit.queue.depth", waiting, AtomicInteger::get)
+                        .tag("operation", tag)
+                        .register(registry);
+                this.waitTimer = Timer.builder("gateway.ratelimit.wait")
+                        .tag("operation", tag)
+                        .register(registry);
+                this.rejectedQueueFull = Counter.builder("gateway.ratelimit.rejected")
+                        .tag("operation", tag).tag("reason", "queue_full")
+                        .register(registry);
+                this.rejectedDeadline = Counter.builder("gateway.ratelimit.rejected")
+                        .tag("operation", tag).tag("reason", "deadline")
+                        .register(registry);
+            } else {
+                this.waitTimer = null;
+                this.rejectedQueueFull = null;
+                this.rejectedDeadline = null;
+            }
+        }
+
+        long reserve() {
+            return reserve(maxWaitNanos);
+        }
+
+        /**
+         * Claims the next slot and returns how long to wait for it. A non-zero
+         * wait also takes a queue place, released by the caller.
+         */
+        long reserve(long maxWaitNanos) {
+            while (true) {
+                long now = clock.getAsLong();
+                long current = tat.get();
+                long waitNanos = Math.max(0, current - toleranceNanos - now);
+
+                if (waitNanos > maxWaitNanos) {
+                    increment(rejectedDeadline);
+                    throw new GatewayUnavailableException(operation.getGateway() + " rate limit reached, please retry",
+                            Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos)));
+                }
+                if (waitNanos > 0 && waiting.incrementAndGet() > maxQueueDepth) {
+                    waiting.decrementAndGet();
+                    increment(rejectedQueueFull);
+                    throw new GatewayUnavailableException(operation.getGateway() + " is busy, please retry shortly", 1);
+                }
+
+                if (tat.compareAndSet(current, Math.max(current, now) + intervalNanos)) {
+                    if (waitTimer != null) {
+                        waitTimer.record(waitNanos, TimeUnit.NANOSECONDS);
+                    }
+                    return waitNanos;
+                }
+                if (waitNanos > 0) {
+                    waiting.decrementAndGet();
+                }
+            }
+        }
+
+        private static void increment(Counter counter) {
+            if (counter != null) {
+                counter.increment();
+            }
+        }
+    }
+}
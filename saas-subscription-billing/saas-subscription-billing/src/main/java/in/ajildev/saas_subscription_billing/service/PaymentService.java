@@ -1,9 +1,7 @@
 package in.ajildev.saas_subscription_billing.service;
 
 import in.ajildev.saas_subscription_billing.entity.Payment;
-import in.ajildev.saas_subscription_billing.entity.User;
 import in.ajildev.saas_subscription_billing.repository.PaymentRepository;
-import in.ajildev.saas_subscription_billing.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
@@ -14,11 +12,8 @@ import java.util.List;
 public class PaymentService {
 
     private final PaymentRepository paymentRepository;
-    private final UserRepository userRepository;
 
-    public List<Payment> getPaymentHistory(String email) {
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-        return paymentRepository.findByUserOrderByCreatedAtDesc(user);
+    public List<Payment> getPaymentHistory(Long userId) {
+        return paymentRepository.findByUserIdOrderByCreatedAtDesc(userId);
     }
 }
@@ -1,12 +1,28 @@
 package in.ajildev.saas_subscription_billing.service;
 
+import in.ajildev.saas_subscription_billing.dto.paynpro.PaynproBalanceResponse;
+import in.ajildev.saas_subscription_billing.dto.paynpro.PaynproDateRangeRequest;
+import in.ajildev.saas_subscription_billing.dto.paynpro.PaynproErrorResponse;
+import in.ajildev.saas_subscription_billing.dto.paynpro.PaynproOrderPayload;
+import in.ajildev.saas_subscription_billing.dto.paynpro.PaynproOrderResponse;
+import in.ajildev.saas_subscription_billing.dto.paynpro.PaynproPayoutRequest;
+import in.ajildev.saas_subscription_billing.dto.paynpro.PaynproPayoutResponse;
+import in.ajildev.saas_subscription_billing.dto.paynpro.PaynproReportResponse;
+import in.ajildev.saas_subscription_billing.dto.paynpro.PaynproStatusRequest;
+import in.ajildev.saas_subscription_billing.dto.paynpro.PaynproStatusResponse;
 import in.ajildev.saas_subscription_billing.entity.Payout;
+import in.ajildev.saas_subscription_billing.enums.GatewayOperation;
+import in.ajildev.saas_subscription_billing.exception.GatewayClientException;
 import in.ajildev.saas_subscription_billing.security.PaynproUtil;
-import org.json.JSONObject;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import tools.jackson.databind.json.JsonMapper;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -28,40 +44,47 @@ public class PaynProService {
     @Value("${paynpro.api.saltKey}")
     private String saltKey;
 
-    @Value("${paynpro.base.url}")
-    private String baseUrl;
-
-    @Value("${paynpro.payout.url}")
-    private String payoutUrl;
-
     private final WebClient payoutWebClient;
-
-    public PaynProService(WebClient.Builder builder,
-            @Value("${paynpro.base.url}") String baseUrl,
-            @Value("${paynpro.payout.url}") String payoutUrl) {
-        this.webClient = builder.baseUrl(baseUrl).build();
-        this.payoutWebClient = builder.baseUrl(payoutUrl).build();
+    private final GatewayGuard gatewayGuard;
+    private final JsonMapper jsonMapper;
+
+    public PaynProService(@Qualifier("paynproPayinWebClient") WebClient webClient,
+            @Qualifier("paynproPayoutWebClient") WebClient payoutWebClient, GatewayGuard gatewayGuard,
+            JsonMapper jsonMapper) {
+        this.webClient = webClient;
+        this.payoutWebClient = payoutWebClient;
+        this.gatewayGuard = gatewayGuard;
+        this.jsonMapper = jsonMapper;
     }
 
     /**
      * Fetch PaynPro Payout Balance
      */
-    public JSONObject fetchBalance() {
-        String response = payoutWebClient.post()
+    public PaynproBalanceResponse fetchBalance() {
+        return fetchBalanceAsync().block();
+    }
+
+    public Mono<PaynproBalanceResponse> fetchBalanceAsync() {
+        return gatewayGuard.protect(GatewayOperation.PAYNPRO_QUERY, payoutWebClient.post()
                 .uri("/payout/v1/fetchBalance")
                 .header("X-APIKEY", apiKey)
                 .header("X-APISECRET", secretKey)
                 .retrieve()
-                .bodyToMono(String.class)
-                .block();
-
-        return new JSONObject(response);
+                .bodyToMono(PaynproBalanceResponse.class));
     }
 
     /**
      * Initiate a Payout via PaynPro
      */
-    public JSONObject initiatePayout(Payout payout) {
+    public PaynproPayoutResponse initiatePayout(Payout payout) {
+        return initiatePayoutAsync(payout).block();
+    }
+
+    /**
+     * Builds and signs the request eagerly, so lazy associations on the payout
+     * are read on the caller's thread; the HTTP exchange runs on subscription.
+     */
+    public Mono<PaynproPayoutResponse> initiatePayoutAsync(Payout payout) {
         String amountStr = payout.getAmount().setScale(2, java.math.RoundingMode.HALF_UP).toPlainString();
         String mobile = payout.getMobile() != null ? payout.getMobile() : "9999999999";
         String vpa = ""; // Default empty for bank transfers
@@ -85,132 +108,152 @@ public class PaynProService {
                 payout.getPurpose(),
                 payout.getAccountNo());
 
-        JSONObject request = new JSONObject();
-        request.put("username", payout.getUser().getName());
-        request.put("email_id", payout.getUser().getEmail());
-        request.put("mob_no", mobile);
-        request.put("amount", amountStr);
-        request.put("payout_ref", payout.getPayoutRef());
-        request.put("txn_type", txnType);
-        request.put("vpa", vpa);
-        request.put("recv_bank_ifsc", payout.getIfsc());
-        request.put("recv_name", payout.getBeneficiaryName());
-        request.put("recv_bank_name", payout.getBankName());
-        request.put("purpose", payout.getPurpose());
-        request.put("recv_acc_no", payout.getAccountNo());
-        request.put("signature", signature);
-        request.put("notifyUrl", "https://test.indishoppe.in/api/payout/paynpro-payout-webhook-response");
-
-        // Add UDF fields as empty strings to avoid potential 400s
-        request.put("udf1", "");
-        request.put("udf2", "");
-        request.put("udf3", "");
-        request.put("udf4", "");
-        request.put("udf5", "");
+        PaynproPayoutRequest request = PaynproPayoutRequest.builder()
+                .username(payout.getUser().getName())
+                .emailId(payout.getUser().getEmail())
+                .mobNo(mobile)
+                .amount(amountStr)
+                .payoutRef(payout.getPayoutRef())
+                .txnType(txnType)
+                .vpa(vpa)
+                .recvBankIfsc(payout.getIfsc())
+                .recvName(payout.getBeneficiaryName())
+                .recvBankName(payout.getBankName())
+                .purpose(payout.getPurpose())
+                .recvAccNo(payout.getAccountNo())
+                .signature(signature)
+                .notifyUrl("https://test.indishoppe.in/api/payout/paynpro-payout-webhook-response")
+                // Add UDF fields as empty strings to avoid potential 400s
+                .udf1("")
+                .udf2("")
+                .udf3("")
+                .udf4("")
+                .udf5("")
+                .build();
 
         log.info("Initiating PaynPro Payout for Ref: {}. Request: {}", payout.getPayoutRef(), request);
 
-        try {
-            String response = payoutWebClient.post()
-                    .uri("/payout/v1/transfer")
-                    .header("Content-Type", "application/json")
-                    .header("X-APIKEY", apiKey)
-                    .header("X-APISECRET", secretKey)
-                    .bodyValue(request.toString())
-                    .retrieve()
-                    .onStatus(status -> status.is4xxClientError() || status.is5xxServerError(), clientResponse -> {
-                        return clientResponse.bodyToMono(String.class).flatMap(body -> {
-                            log.error("PaynPro Payout API Error Body: {}", body);
-                            String errorMessage = "PaynPro Payout failed";
-                            try {
-                                JSONObject errorJson = new JSONObject(body);
-                                if (errorJson.has("error")) {
-                                    errorMessage = errorJson.getString("error");
-                                } else if (errorJson.has("message")) {
-                                    errorMessage = errorJson.getString("message");
-                                }
-                            } catch (Exception e) {
-                                log.warn("Failed to parse PaynPro error body: {}", e.getMessage());
+        return gatewayGuard.protect(GatewayOperation.PAYNPRO_PAYOUT, payoutWebClient.post()
+                .uri("/payout/v1/transfer")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("X-APIKEY", apiKey)
+                .header("X-APISECRET", secretKey)
+                .bodyValue(request)
+                .retrieve()
+                .onStatus(status -> status.is4xxClientError() || status.is5xxServerError(), clientResponse -> {
+                    return clientResponse.bodyToMono(String.class).flatMap(body -> {
+                        log.error("PaynPro Payout API Error Body: {}", body);
+                        String errorMessage = "PaynPro Payout failed";
+                        try {
+                            String text = jsonMapper.readValue(body, PaynproErrorResponse.class).text();
+                            if (text != null) {
+                                errorMessage = text;
                             }
-                            return Mono.error(new RuntimeException(errorMessage));
-                        });
-                    })
-                    .bodyToMono(String.class)
-                    .block();
-
-            return new JSONObject(response);
-        } catch (Exception e) {
-            log.error("PaynPro Payout Exception: {}", e.getMessage());
-            throw e;
-        }
+                        } catch (Exception e) {
+                            log.warn("Failed to parse PaynPro error body: {}", e.getMessage());
+                        }
+                        return Mono.error(clientResponse.statusCode().is4xxClientError()
+                                ? new GatewayClientException(clientResponse.statusCode().value(), errorMessage)
+                                : new RuntimeException(errorMessage));
+                    });
+                })
+                .bodyToMono(PaynproPayoutResponse.class)
+                .doOnError(e -> log.error("PaynPro Payout Exception: {}", e.getMessage())));
     }
 
     /**
      * Check Payout Status
      */
-    public JSONObject getPayoutStatus(String payoutRef) {
-        String signature = PaynproUtil.generateSignature(secretKey, payoutRef);
+    public PaynproStatusResponse getPayoutStatus(String payoutRef) {
+        return getPayoutStatusAsync(payoutRef).block();
+    }
 
-        JSONObject request = new JSONObject();
-        request.put("payout_ref", payoutRef);
-        request.put("signature", signature);
+    public Mono<PaynproStatusResponse> getPayoutStatusAsync(String payoutRef) {
+        String signature = PaynproUtil.generateSignature(secretKey, payoutRef);
+        PaynproStatusRequest request = new PaynproStatusRequest(payoutRef, signature);
 
-        String response = payoutWebClient.post()
+        return gatewayGuard.protect(GatewayOperation.PAYNPRO_QUERY, payoutWebClient.post()
                 .uri("/payout/v1/getStatus")
-                .header("Content-Type", "application/json")
+                .contentType(MediaType.APPLICATION_JSON)
                 .header("X-APIKEY", apiKey)
                 .header("X-APISECRET", secretKey)
-                .bodyValue(request.toString())
+                .bodyValue(request)
                 .retrieve()
-                .bodyToMono(String.class)
-                .block();
-
-        return new JSONObject(response);
+                .bodyToMono(PaynproStatusResponse.class));
     }
 
     /**
      * Get Transaction Report from PaynPro
      */
-    public JSONObject getTxnReport(String startDate, String endDate) {
-        JSONObject request = new JSONObject();
-        request.put("startDate", startDate);
-        request.put("endDate", endDate);
+    public PaynproReportResponse getTxnReport(String startDate, String endDate) {
+        return getTxnReportAsync(startDate, endDate).block();
+    }
+
+    public Mono<PaynproReportResponse> getTxnReportAsync(String startDate, String endDate) {
+        PaynproDateRangeRequest request = new PaynproDateRangeRequest(startDate, endDate);
 
-        String response = payoutWebClient.post()
+        return gatewayGuard.protect(GatewayOperation.PAYNPRO_QUERY, payoutWebClient.post()
                 .uri("/payout/v1/getTxnReport")
-                .header("Content-Type", "application/json")
+                .contentType(MediaType.APPLICATION_JSON)
                 .header("X-APIKEY", apiKey)
                 .header("X-APISECRET", secretKey)
-                .bodyValue(request.toString())
+                .bodyValue(request)
                 .retrieve()
-                .bodyToMono(String.class)
-                .block();
-
-        return new JSONObject(response);
+                .bodyToMono(PaynproReportResponse.class));
     }
 
     /**
      * Get Transaction Statement from PaynPro
      */
-    public JSONObject getStatement(String startDate, String endDate) {
-        JSONObject request = new JSONObject();
-        request.put("startDate", startDate);
-        request.put("endDate", endDate);
+    public PaynproReportResponse getStatement(String startDate, String endDate) {
+        return getStatementAsync(startDate, endDate).block();
+    }
+
+    public Mono<PaynproReportResponse> getStatementAsync(String startDate, String endDate) {
+        PaynproDateRangeRequest request = new PaynproDateRangeRequest(startDate, endDate);
 
-        String response = payoutWebClient.post()
+        return gatewayGuard.protect(GatewayOperation.PAYNPRO_QUERY, payoutWebClient.post()
                 .uri("/payout/v1/getStatement")
-                .header("Content-Type", "application/json")
+                .contentType(MediaType.APPLICATION_JSON)
                 .header("X-APIKEY", apiKey)
                 .header("X-APISECRET", secretKey)
-                .bodyValue(request.toString())
+                .bodyValue(request)
                 .retrieve()
-                .bodyToMono(String.class)
-                .block();
+                .bodyToMono(PaynproReportResponse.class));
+    }
+
+    /**
+     * Raw body of {@code getTxnReport}, as it arrives, for passthrough to a
+     * client. Each buffer must be released by the consumer.
+     */
+    public Flux<DataBuffer> streamTxnReport(String startDate, String endDate) {
+        return streamDateRange("/payout/v1/getTxnReport", startDate, endDate);
+    }
 
-        return new JSONObject(response);
+    /**
+     * Raw body of {@code getStatement}; see {@link #streamTxnReport}.
+     */
+    public Flux<DataBuffer> streamStatement(String startDate, String endDate) {
+        return streamDateRange("/payout/v1/getStatement", startDate, endDate);
     }
 
-    public JSONObject createOrder(double amount, String tradeNo, String name, String email, String mobile) {
+    private Flux<DataBuffer> streamDateRange(String uri, String startDate, String endDate) {
+        return gatewayGuard.protectMany(GatewayOperation.PAYNPRO_STREAM, payoutWebClient.post()
+                .uri(uri)
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("X-APIKEY", apiKey)
+                .header("X-APISECRET", secretKey)
+                .bodyValue(new PaynproDateRangeRequest(startDate, endDate))
+                .retrieve()
+                .bodyToFlux(DataBuffer.class));
+    }
+
+    public PaynproOrderResponse createOrder(double amount, String tradeNo, String name, String email, String mobile) {
+        return createOrderAsync(amount, tradeNo, name, email, mobile).block();
+    }
+
+    public Mono<PaynproOrderResponse> createOrderAsync(double amount, String tradeNo, String name, String email,
+            String mobile) {
         // 1️⃣ Generate HmacSHA256 signature for internal JSON
         String signature = PaynproUtil.generateSignature(
                 secretKey,
@@ -223,42 +266,35 @@ public class PaynProService {
                 mobile);
 
         // 2️⃣ Build JSON for encryption
-        JSONObject payload = new JSONObject();
-        payload.put("amount", String.valueOf(amount));
-        payload.put("tradeNo", tradeNo);
-        payload.put("key_id", apiKey);
-        payload.put("key_secret", secretKey);
-        payload.put("mobile", mobile);
-        payload.put("txnCurr", "INR");
-        payload.put("email", email);
-        payload.put("name", name);
-        payload.put("signature", signature);
-        payload.put("notifyUrl", "https://indishoppe.in/api/payout/paynpro-payout-webhook-response");
-        payload.put("returnUrl", "http://localhost:3000/dashboard");
+        PaynproOrderPayload payload = PaynproOrderPayload.builder()
+                .amount(String.valueOf(amount))
+                .tradeNo(tradeNo)
+                .keyId(apiKey)
+                .keySecret(secretKey)
+                .mobile(mobile)
+                .txnCurr("INR")
+                .email(email)
+                .name(name)
+                .signature(signature)
+                .notifyUrl("https://indishoppe.in/api/payout/paynpro-payout-webhook-response")
+                .returnUrl("http://localhost:3000/dashboard")
+                .build();
 
         // 3️⃣ AES encrypt the payload
-        String encryptedData = PaynproUtil.encryptAES(payload.toString(), encryptionKey, saltKey);
+        String encryptedData = PaynproUtil.encryptAES(jsonMapper.writeValueAsString(payload), encryptionKey, saltKey);
 
         log.info("Initiating Paynpro Encrypted request for tradeNo: {}", tradeNo);
 
         // 4️⃣ Send request as x-www-form-urlencoded with URL encoding
-        try {
-            String encodedKey = java.net.URLEncoder.encode(apiKey, "UTF-8");
-            String encodedData = java.net.URLEncoder.encode(encryptedData, "UTF-8");
-
-            String response = webClient.post()
-                    .uri("/payment/gateway/test/request")
-                    .header("Content-Type", "application/x-www-form-urlencoded")
-                    .bodyValue("key_id=" + encodedKey + "&data=" + encodedData)
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block();
-
-            log.info("Paynpro API Response: {}", response);
-            return new JSONObject(response);
-        } catch (java.io.UnsupportedEncodingException e) {
-            log.error("Encoding error: {}", e.getMessage());
-            throw new RuntimeException("Payment initiation failed due to encoding error", e);
-        }
+        String encodedKey = java.net.URLEncoder.encode(apiKey, java.nio.charset.StandardCharsets.UTF_8);
+        String encodedData = java.net.URLEncoder.encode(encryptedData, java.nio.charset.StandardCharsets.UTF_8);
+
+        return gatewayGuard.protect(GatewayOperation.PAYNPRO_PAYIN, webClient.post()
+                .uri("/payment/gateway/test/request")
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .bodyValue("key_id=" + encodedKey + "&data=" + encodedData)
+                .retrieve()
+                .bodyToMono(PaynproOrderResponse.class)
+                .doOnNext(response -> log.info("Paynpro API Response: {}", response)));
     }
 }
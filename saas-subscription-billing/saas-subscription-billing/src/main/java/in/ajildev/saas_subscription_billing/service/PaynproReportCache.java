@@ -0,0 +1,289 @@
+package in.ajildev.saas_subscription_billing.service;
+
+import in.ajildev.saas_subscription_billing.dto.paynpro.PaynproReportResponse;
+import in.ajildev.saas_subscription_billing.dto.paynpro.PaynproReportRow;
+import in.ajildev.saas_subscription_billing.enums.PaynproReportKind;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import tools.jackson.core.type.TypeReference;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serves PaynPro transaction reports and statements from per-day segments.
+ * <p>
+ * A requested range is split into days. Days that are closed, meaning older
+ * than today minus {@code settleDays}, cannot change any more. They are read
+ * from {@code paynpro_report_segments}, and each run of consecutive closed
+ * days not stored yet is fetched in one call of up to {@code maxSpanDays}
+ * days, split by the rows' {@code dateColumn} and stored gzipped per day. A
+ * run whose rows cannot be split that way is fetched again day by day. The
+ * open days at the end of the range are always fetched live, in one call. The
+ * answer has the shape of a PaynPro report, with every day's rows in
+ * {@code Data}, in date order. A "no data" answer counts as a day without
+ * rows.
+ * <p>
+ * Ranges whose dates cannot be parsed, or that are longer than
+ * {@code maxDays}, are passed through to PaynPro unchanged.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PaynproReportCache {
+
+    private static final String SELECT_SEGMENTS = "SELECT day, rows_gzip FROM paynpro_report_segments "
+            + "WHERE kind = ? AND day BETWEEN ? AND ?";
+
+    // Closed days never change, so a segment stored concurrently is simply kept
+    private static final String INSERT_SEGMENT = "INSERT INTO paynpro_report_segments "
+            + "(kind, day, row_count, rows_gzip, fetched_at) VALUES (?, ?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE id = id";
+
+    private static final TypeReference<List<PaynproReportRow>> ROWS = new TypeReference<>() {
+    };
+
+    private final PaynProService paynProService;
+    private final JdbcTemplate jdbcTemplate;
+    private final JsonMapper jsonMapper;
+
+    @Value("${paynpro.report.dateFormat:yyyy-MM-dd}")
+    private String dateFormat;
+
+    @Value("${paynpro.report.zone:Asia/Kolkata}")
+    private String zone;
+
+    // Payouts can settle the day after they are sent, so the previous day is kept live by default
+    @Value("${paynpro.report.settleDays:1}")
+    private int settleDays;
+
+    @Value("${paynpro.report.maxDays:366}")
+    private int maxDays;
+
+    @Value("${paynpro.report.maxSpanDays:31}")
+    private int maxSpanDays;
+
+    // Read from the first dateFormat.length() characters, so a trailing time is ignored
+    @Value("${paynpro.report.dateColumn:txn_date}")
+    private String dateColumn;
+
+    @Value("${paynpro.report.fetchConcurrency:4}")
+    private int fetchConcurrency;
+
+    private record Span(LocalDate first, LocalDate last) {
+
+        Stream<LocalDate> days() {
+            return first.datesUntil(last.plusDays(1));
+        }
+    }
+
+    public Mono<PaynproReportResponse> getTxnReport(String startDate, String endDate) {
+        return get(PaynproReportKind.TXN_REPORT, startDate, endDate);
+    }
+
+    public Mono<PaynproReportResponse> getStatement(String startDate, String endDate) {
+        return get(PaynproReportKind.STATEMENT, startDate, endDate);
+    }
+
+    private Mono<PaynproReportResponse> get(PaynproReportKind kind, String startDate, String endDate) {
+        if (startDate == null || endDate == null) {
+            return live(kind, startDate, endDate);
+        }
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern(dateFormat);
+        LocalDate start;
+        LocalDate end;
+        try {
+            start = LocalDate.parse(startDate, formatter);
+            end = LocalDate.parse(endDate, formatter);
+        } catch (DateTimeParseException e) {
+            return live(kind, startDate, endDate);
+        }
+        LocalDate lastClosed = LocalDate.now(ZoneId.of(zone)).minusDays(settleDays + 1L);
+        if (end.isBefore(start) || ChronoUnit.DAYS.between(start, end) >= maxDays || start.isAfter(lastClosed)) {
+            return live(kind, startDate, endDate);
+        }
+
+        LocalDate closedEnd = end.isAfter(lastClosed) ? lastClosed : end;
+        Mono<Map<LocalDate, List<PaynproReportRow>>> closed = Mono.fromCallable(() -> load(kind, start, closedEnd))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(segments -> Flux.fromIterable(missingSpans(segments.keySet(), start, closedEnd))
+                        .flatMap(span -> fetchClosedSpan(kind, span, formatter), fetchConcurrency)
+                        .doOnNext(segments::putAll)
+                        .then(Mono.just(segments)));
+        Mono<List<PaynproReportRow>> open = end.isAfter(lastClosed)
+                ? live(kind, lastClosed.plusDays(1).format(formatter), endDate).map(response -> rows(kind, response))
+                : Mono.just(List.of());
+
+        return Mono.zip(closed, open).map(parts -> {
+            List<PaynproReportRow> data = new ArrayList<>();
+            parts.getT1().values().forEach(data::addAll);
+            data.addAll(parts.getT2());
+            return new PaynproReportResponse(200, null, startDate, endDate, data, null);
+        });
+    }
+
+    /**
+     * Runs of consecutive days in {@code [start, end]} that are not in
+     * {@code stored}, each at most {@code maxSpanDays} long.
+     */
+    private List<Span> missingSpans(Set<LocalDate> stored, LocalDate start, LocalDate end) {
+        List<Span> spans = new ArrayList<>();
+        LocalDate first = null;
+        for (LocalDate day = start; !day.isAfter(end); day = day.plusDays(1)) {
+            if (stored.contains(day)) {
+                if (first != null) {
+                    spans.add(new Span(first, day.minusDays(1)));
+                    first = null;
+                }
+                continue;
+            }
+            if (first == null) {
+                first = day;
+            } else if (ChronoUnit.DAYS.between(first, day) >= maxSpanDays) {
+                spans.add(new Span(first, day.minusDays(1)));
+                first = day;
+            }
+        }
+        if (first != null) {
+            spans.add(new Span(first, end));
+        }
+        return spans;
+    }
+
+    private Mono<Map<LocalDate, List<PaynproReportRow>>> fetchClosedSpan(PaynproReportKind kind, Span span,
+            DateTimeFormatter formatter) {
+        return live(kind, span.first().format(formatter), span.last().format(formatter))
+                .map(response -> rows(kind, response))
+                .flatMap(rows -> {
+                    Map<LocalDate, List<PaynproReportRow>> days = byDay(rows, span, formatter);
+                    if (days == null) {
+                        log.warn("PaynPro {} rows for {}..{} have no usable {}, fetching day by day", kind,
+                                span.first(), span.last(), dateColumn);
+                        return Flux.fromStream(span.days())
+                                .concatMap(day -> fetchClosedSpan(kind, new Span(day, day), formatter))
+                                .<Map<LocalDate, List<PaynproReportRow>>>collect(TreeMap::new, Map::putAll);
+                    }
+                    return Mono.fromCallable(() -> {
+                        store(kind, days);
+                        return days;
+                    }).subscribeOn(Schedulers.boundedElastic());
+                });
+    }
+
+    /**
+     * The rows of {@code span} grouped by day, with an empty list for days
+     * without rows, or {@code null} if a row's day is missing, unparseable or
+     * outside the span.
+     */
+    private Map<LocalDate, List<PaynproReportRow>> byDay(List<PaynproReportRow> rows, Span span,
+            DateTimeFormatter formatter) {
+        Map<LocalDate, List<PaynproReportRow>> days = new TreeMap<>();
+        span.days().forEach(day -> days.put(day, new ArrayList<>()));
+        if (span.first().equals(span.last())) {
+            days.get(span.first()).addAll(rows);
+            return days;
+        }
+        for (PaynproReportRow row : rows) {
+            String value = row.text(dateColumn);
+            if (value == null || value.length() < dateFormat.length()) {
+                return null;
+            }
+            List<PaynproReportRow> day;
+            try {
+                day = days.get(LocalDate.parse(value.substring(0, dateFormat.length()), formatter));
+            } catch (DateTimeParseException e) {
+                return null;
+            }
+            if (day == null) {
+                return null;
+            }
+            day.add(row);
+        }
+        return days;
+    }
+
+    private Mono<PaynproReportResponse> live(PaynproReportKind kind, String startDate, String endDate) {
+        return kind == PaynproReportKind.TXN_REPORT
+                ? paynProService.getTxnReportAsync(startDate, endDate)
+                : paynProService.getStatementAsync(startDate, endDate);
+    }
+
+    /**
+     * The row array of a report, empty for a "no data" answer; anything else
+     * is an error answer that must not be merged or stored.
+     */
+    private static List<PaynproReportRow> rows(PaynproReportKind kind, PaynproReportResponse response) {
+        if (response.isNoData()) {
+            return List.of();
+        }
+        if (!response.isOk()) {
+            throw new IllegalStateException("PaynPro " + kind + " unavailable: "
+                    + (response.message() != null ? response.message() : "unexpected response"));
+        }
+        return response.data();
+    }
+
+    // ─── Storage ────────────────────────────────────────────────────────────────
+
+    private Map<LocalDate, List<PaynproReportRow>> load(PaynproReportKind kind, LocalDate start, LocalDate end) {
+        Map<LocalDate, List<PaynproReportRow>> segments = new TreeMap<>();
+        jdbcTemplate.query(SELECT_SEGMENTS, rs -> {
+            segments.put(rs.getDate("day").toLocalDate(), gunzip(rs.getBytes("rows_gzip")));
+        }, kind.name(), Date.valueOf(start), Date.valueOf(end));
+        return segments;
+    }
+
+    private void store(PaynproReportKind kind, Map<LocalDate, List<PaynproReportRow>> days) {
+        Timestamp fetchedAt = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> batch = new ArrayList<>(days.size());
+        days.forEach((day, rows) -> batch.add(new Object[] { kind.name(), Date.valueOf(day), rows.size(), gzip(rows),
+                fetchedAt }));
+        jdbcTemplate.batchUpdate(INSERT_SEGMENT, batch);
+        log.debug("Stored PaynPro {} for {} day(s)", kind, days.size());
+    }
+
+    private byte[] gzip(List<PaynproReportRow> rows) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(bytes)) {
+            jsonMapper.writeValue(out, rows);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private List<PaynproReportRow> gunzip(byte[] compressed) {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return jsonMapper.readValue(in, ROWS);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
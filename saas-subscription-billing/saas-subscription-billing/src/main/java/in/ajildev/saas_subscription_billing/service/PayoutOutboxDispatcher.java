@@ -0,0 +1,266 @@
+package in.ajildev.saas_subscription_billing.service;
+
+import in.ajildev.saas_subscription_billing.entity.Payout;
+import in.ajildev.saas_subscription_billing.entity.PayoutOutbox;
+import in.ajildev.saas_subscription_billing.enums.OutboxStatus;
+import in.ajildev.saas_subscription_billing.enums.PaymentGateway;
+import in.ajildev.saas_subscription_billing.enums.PayoutStatus;
+import in.ajildev.saas_subscription_billing.exception.GatewayClientException;
+import in.ajildev.saas_subscription_billing.exception.GatewayUnavailableException;
+import in.ajildev.saas_subscription_billing.exception.InsufficientGatewayBalanceException;
+import in.ajildev.saas_subscription_billing.repository.PayoutOutboxRepository;
+import in.ajildev.saas_subscription_billing.repository.PayoutRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.Context;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Sends queued payouts to their gateway outside the transaction that created
+ * them.
+ * <p>
+ * Each gateway has its own worker pool, so a slow gateway or a large bulk job
+ * on one cannot starve the other. Each poll claims at most as many due rows
+ * as the gateway has idle workers, using {@code FOR UPDATE SKIP LOCKED} so
+ * several instances can poll the same table. A claimed row is leased: if this instance dies mid-call the row
+ * becomes due again when the lease ends. The attempt count is the claim
+ * token, so a worker whose lease was taken over does not overwrite the new
+ * owner's result. Razorpay deduplicates a resend on its idempotency key.
+ * PaynPro has none, so a PaynPro payout on its second or later attempt is
+ * first looked up by reference and only sent again if PaynPro does not know it.
+ * A call may wait in the {@link OutboundRateLimiter} for at most half the
+ * lease, so the exchange itself still finishes inside it.
+ * <p>
+ * Transient failures, including 429s and failed PaynPro lookups, are retried
+ * with jittered exponential backoff; other 4xx responses fail the payout.
+ * When the retries run out, an earlier attempt may still have reached the
+ * gateway, so the payout is left PROCESSING for the {@link PayoutReconciler}. A
+ * payout the {@link GatewayBalanceLedger} cannot cover is held unsent and
+ * tried again after {@code holdMillis}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PayoutOutboxDispatcher {
+
+    private final PayoutOutboxRepository outboxRepository;
+    private final PayoutRepository payoutRepository;
+    private final PayoutService payoutService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${payout.outbox.workers.paynpro:8}")
+    private int paynproWorkers;
+
+    @Value("${payout.outbox.workers.razorpay:8}")
+    private int razorpayWorkers;
+
+    @Value("${payout.outbox.leaseSeconds:120}")
+    private long leaseSeconds;
+
+    @Value("${payout.outbox.maxAttempts:8}")
+    private int maxAttempts;
+
+    @Value("${payout.outbox.baseBackoffMillis:2000}")
+    private long baseBackoffMillis;
+
+    @Value("${payout.outbox.maxBackoffMillis:600000}")
+    private long maxBackoffMillis;
+
+    @Value("${payout.outbox.holdMillis:60000}")
+    private long holdMillis;
+
+    private final Map<PaymentGateway, Semaphore> idleWorkers = new EnumMap<>(PaymentGateway.class);
+
+    @PostConstruct
+    public void init() {
+        idleWorkers.put(PaymentGateway.PAYNPRO, new Semaphore(paynproWorkers));
+        idleWorkers.put(PaymentGateway.RAZORPAY, new Semaphore(razorpayWorkers));
+    }
+
+    private record Claim(Long outboxId, Long payoutId, int attempt, Instant throttleDeadline) {
+    }
+
+    @Scheduled(fixedDelayString = "${payout.outbox.pollIntervalMillis:1000}")
+    public void dispatchDue() {
+        idleWorkers.forEach(this::dispatchDue);
+    }
+
+    private void dispatchDue(PaymentGateway gateway, Semaphore workers) {
+        // Only this thread acquires permits, so the count can only grow until we do
+        int idle = workers.availablePermits();
+        if (idle == 0) {
+            return;
+        }
+
+        List<Claim> claims = transactionTemplate.execute(tx -> claim(gateway, idle));
+        for (Claim claim : claims) {
+            workers.acquireUninterruptibly();
+            dispatch(claim)
+                    .doFinally(signal -> workers.release())
+                    .subscribe();
+        }
+    }
+
+    private List<Claim> claim(PaymentGateway gateway, int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        return outboxRepository.lockDue(gateway.name(), now, limit).stream()
+                .map(row -> claim(row, now))
+                .toList();
+    }
+
+    private Claim claim(PayoutOutbox row, LocalDateTime now) {
+        row.setStatus(OutboxStatus.IN_FLIGHT);
+        row.setAttempts(row.getAttempts() + 1);
+        row.setNextAttemptAt(now.plusSeconds(leaseSeconds));
+        return new Claim(row.getId(), row.getPayoutId(), row.getAttempts(),
+                Instant.now().plusMillis(leaseSeconds * 500));
+    }
+
+    /**
+     * Sends a payout that was just queued without waiting for the next poll,
+     * e.g. a manual payout whose caller wants the gateway's answer. The row is
+     * claimed like any other, so if this instance dies mid-call the lease runs
+     * out and a poller sends it; if a poller claimed it first, the payout is
+     * returned as it stands. Manual payouts are rare, so this does not take
+     * one of the gateway's workers.
+     */
+    public Mono<Payout> dispatchNow(Long payoutId) {
+        return Mono.fromCallable(() -> Optional.ofNullable(transactionTemplate.execute(tx -> outboxRepository
+                        .lockPendingByPayoutId(payoutId)
+                        .map(row -> claim(row, LocalDateTime.now()))
+                        .orElse(null))))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(claim -> claim.map(this::dispatch).orElse(Mono.empty()))
+                .then(Mono.fromCallable(() -> payoutRepository.findWithUserById(payoutId)
+                                .orElseThrow(() -> new IllegalStateException("Payout not found: " + payoutId)))
+                        .subscribeOn(Schedulers.boundedElastic()));
+    }
+
+    private Mono<Void> dispatch(Claim claim) {
+        return Mono.fromCallable(() -> payoutRepository.findWithUserById(claim.payoutId())
+                        .orElseThrow(() -> new IllegalStateException("Payout not found: " + claim.payoutId())))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(payout -> payout.getStatus() == PayoutStatus.PENDING
+                        ? submit(claim, payout)
+                        // Sent by an earlier attempt that lost its lease before finishing
+                        : Mono.just(payout))
+                .publishOn(Schedulers.boundedElastic())
+                .doOnNext(payout -> finish(claim, OutboxStatus.DONE, null, null, false))
+                .onErrorResume(e -> Mono.fromRunnable(() -> handleFailure(claim, e))
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .then(Mono.empty()))
+                .then()
+                .contextWrite(Context.of(OutboundRateLimiter.DEADLINE, claim.throttleDeadline()));
+    }
+
+    private Mono<Payout> submit(Claim claim, Payout payout) {
+        if (claim.attempt() > 1 && payout.getGateway() == PaymentGateway.PAYNPRO) {
+            return payoutService.recoverPaynProAsync(payout)
+                    // Whatever the lookup answered, it says nothing about the payout itself
+                    .onErrorMap(RecoveryFailedException::new)
+                    .switchIfEmpty(Mono.defer(() -> payoutService.submitAsync(payout)));
+        }
+        return payoutService.submitAsync(payout);
+    }
+
+    private void handleFailure(Claim claim, Throwable e) {
+        if (e instanceof InsufficientGatewayBalanceException) {
+            // Never sent: hold until the float may have been topped up, without using up an attempt
+            log.info("Holding payout {}: {}", claim.payoutId(), e.getMessage());
+            finish(claim, OutboxStatus.PENDING, e.getMessage(), LocalDateTime.now().plusNanos(holdMillis * 1_000_000),
+                    true);
+            return;
+        }
+        if (isPermanent(e)) {
+            log.error("Payout {} rejected on attempt {}: {}", claim.payoutId(), claim.attempt(), e.getMessage());
+            if (finish(claim, OutboxStatus.DEAD, e.getMessage(), null, false)) {
+                payoutRepository.findById(claim.payoutId()).ifPresent(payout -> payoutService.markFailed(payout, e));
+            }
+            return;
+        }
+        if (claim.attempt() >= maxAttempts) {
+            log.error("Payout {} gave up after {} attempt(s), leaving it to the reconciler: {}", claim.payoutId(),
+                    claim.attempt(), e.getMessage());
+            if (finish(claim, OutboxStatus.DEAD, e.getMessage(), null, false)) {
+                payoutRepository.findById(claim.payoutId())
+                        .ifPresent(payout -> payoutService.markUnresolved(payout, e));
+            }
+            return;
+        }
+
+        Duration delay = backoff(claim.attempt(), e);
+        log.warn("Payout {} attempt {} failed, retrying in {}s: {}", claim.payoutId(), claim.attempt(),
+                delay.toSeconds(), e.getMessage());
+        finish(claim, OutboxStatus.PENDING, e.getMessage(), LocalDateTime.now().plus(delay), false);
+    }
+
+    /**
+     * Updates the row if this worker still owns it.
+     *
+     * @param refundAttempt whether the claim should not count as an attempt
+     * @return false when the lease was taken over by another attempt
+     */
+    private boolean finish(Claim claim, OutboxStatus status, String error, LocalDateTime nextAttemptAt,
+            boolean refundAttempt) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(tx -> {
+            PayoutOutbox row = outboxRepository.findById(claim.outboxId()).orElse(null);
+            if (row == null || row.getStatus() != OutboxStatus.IN_FLIGHT || row.getAttempts() != claim.attempt()) {
+                log.warn("Outbox row {} was reclaimed; dropping result of attempt {}", claim.outboxId(),
+                        claim.attempt());
+                return false;
+            }
+            row.setStatus(status);
+            row.setLastError(error != null && error.length() > 1000 ? error.substring(0, 1000) : error);
+            if (nextAttemptAt != null) {
+                row.setNextAttemptAt(nextAttemptAt);
+            }
+            if (refundAttempt) {
+                row.setAttempts(row.getAttempts() - 1);
+            }
+            return true;
+        }));
+    }
+
+    private Duration backoff(int attempt, Throwable e) {
+        long cap = Math.min(maxBackoffMillis, baseBackoffMillis << Math.min(attempt - 1, 20));
+        long delay = ThreadLocalRandom.current().nextLong(cap / 2, cap + 1);
+        if (e instanceof GatewayUnavailableException unavailable) {
+            // Don't come back before the circuit may close again
+            delay = Math.max(delay, unavailable.getRetryAfterSeconds() * 1000);
+        }
+        return Duration.ofMillis(delay);
+    }
+
+    private static final class RecoveryFailedException extends RuntimeException {
+
+        RecoveryFailedException(Throwable cause) {
+            super("PaynPro status lookup failed: " + cause.getMessage(), cause);
+        }
+    }
+
+    private static boolean isPermanent(Throwable e) {
+        if (e instanceof GatewayClientException client) {
+            return client.getStatus() != 429;
+        }
+        return e instanceof IllegalStateException
+                || (e instanceof WebClientResponseException response && response.getStatusCode().is4xxClientError()
+                        && response.getStatusCode().value() != 429);
+    }
+}
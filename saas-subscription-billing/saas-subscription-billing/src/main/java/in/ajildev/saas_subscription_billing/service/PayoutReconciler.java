@@ -0,0 +1,319 @@
+package in.ajildev.saas_subscription_billing.service;
+
+import in.ajildev.saas_subscription_billing.dto.paynpro.PaynproReportResponse;
+import in.ajildev.saas_subscription_billing.dto.paynpro.PaynproReportRow;
+import in.ajildev.saas_subscription_billing.dto.razorpay.RazorpayPayoutResponse;
+import in.ajildev.saas_subscription_billing.enums.PaymentGateway;
+import in.ajildev.saas_subscription_billing.enums.PayoutStatus;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Resolves payouts left in PROCESSING because their webhook never arrived.
+ * <p>
+ * PROCESSING payouts older than {@code minAgeMinutes} are read oldest first
+ * in keyset pages. PaynPro statuses come from {@code getTxnReport}, fetched
+ * once per PaynPro day (in {@code paynpro.report.zone}) that payouts were sent
+ * on, per run; Razorpay, which has no bulk lookup, is
+ * asked per payout with bounded concurrency. Terminal statuses are written
+ * with one JDBC batch per page, guarded on the row still being PROCESSING so
+ * a webhook that lands meanwhile wins. Rows the driver reports as
+ * {@code SUCCESS_NO_INFO} are re-read to see whether the update took. Payouts found FAILED are credited
+ * back to the {@link GatewayBalanceLedger}.
+ * <p>
+ * Runs on its own thread so a long pass does not hold up other scheduled
+ * tasks; a pass still running when the next one is due is not overlapped.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PayoutReconciler {
+
+    // Payouts sent before sent_at existed fall back to their creation time
+    private static final String SELECT_PAGE = "SELECT id, payout_ref, txn_id, gateway, amount, created_at, "
+            + "COALESCE(sent_at, created_at) AS sent_at FROM payouts "
+            + "WHERE status = 'PROCESSING' AND created_at < ? "
+            + "AND (created_at > ? OR (created_at = ? AND id > ?)) ORDER BY created_at, id LIMIT ?";
+
+    private static final String UPDATE_STATUS = "UPDATE payouts SET status = ?, txn_id = COALESCE(?, txn_id) "
+            + "WHERE id = ? AND status = 'PROCESSING'";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PaynProService paynProService;
+    private final RazorpayService razorpayService;
+    private final GatewayBalanceLedger balanceLedger;
+
+    @Value("${payout.reconcile.minAgeMinutes:15}")
+    private long minAgeMinutes;
+
+    @Value("${payout.reconcile.pageSize:500}")
+    private int pageSize;
+
+    @Value("${payout.reconcile.razorpayConcurrency:4}")
+    private int razorpayConcurrency;
+
+    @Value("${paynpro.report.dateFormat:yyyy-MM-dd}")
+    private String paynproDateFormat;
+
+    // The calendar PaynPro's report dates are in, shared with PaynproReportCache
+    @Value("${paynpro.report.zone:Asia/Kolkata}")
+    private String paynproZone;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "payout-reconciler");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private record InFlight(Long id, String payoutRef, String txnId, PaymentGateway gateway, BigDecimal amount,
+            LocalDateTime createdAt, Instant sentAt) {
+    }
+
+    private record Resolution(InFlight payout, PayoutStatus status, String txnId) {
+    }
+
+    /**
+     * Status and txn id of a payout as listed in a PaynPro report.
+     */
+    private record ReportEntry(String status, String txnId) {
+    }
+
+    @Scheduled(fixedDelayString = "${payout.reconcile.intervalMillis:300000}",
+            initialDelayString = "${payout.reconcile.initialDelayMillis:60000}")
+    public void schedule() {
+        if (running.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                try {
+                    reconcile();
+                } catch (RuntimeException e) {
+                    log.error("Payout reconciliation failed: {}", e.getMessage(), e);
+                } finally {
+                    running.set(false);
+                }
+            });
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * One pass over every PROCESSING payout old enough to be reconciled.
+     *
+     * @return number of payouts moved to a terminal status
+     */
+    public int reconcile() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(minAgeMinutes);
+        // PaynPro report rows by day, fetched at most once per pass
+        Map<LocalDate, Map<String, ReportEntry>> paynproReports = new HashMap<>();
+
+        LocalDateTime lastCreatedAt = LocalDateTime.of(1970, 1, 1, 0, 0);
+        long lastId = 0;
+        int scanned = 0;
+        int resolved = 0;
+        List<InFlight> page;
+        do {
+            page = nextPage(cutoff, lastCreatedAt, lastId);
+            if (page.isEmpty()) {
+                break;
+            }
+            InFlight last = page.get(page.size() - 1);
+            lastCreatedAt = last.createdAt();
+            lastId = last.id();
+            scanned += page.size();
+
+            List<Resolution> resolutions = new ArrayList<>();
+            List<InFlight> razorpay = new ArrayList<>();
+            for (InFlight payout : page) {
+                if (payout.gateway() == PaymentGateway.PAYNPRO) {
+                    Resolution resolution = resolvePaynpro(payout, paynproReports);
+                    if (resolution != null) {
+                        resolutions.add(resolution);
+                    }
+                } else if (payout.txnId() != null) {
+                    razorpay.add(payout);
+                }
+            }
+            resolutions.addAll(resolveRazorpay(razorpay));
+            resolved += apply(resolutions);
+        } while (page.size() == pageSize);
+
+        if (scanned > 0) {
+            log.info("Payout reconciliation checked {} PROCESSING payout(s), resolved {}", scanned, resolved);
+        }
+        return resolved;
+    }
+
+    private List<InFlight> nextPage(LocalDateTime cutoff, LocalDateTime lastCreatedAt, long lastId) {
+        Timestamp after = Timestamp.valueOf(lastCreatedAt);
+        return jdbcTemplate.query(SELECT_PAGE, (rs, rowNum) -> new InFlight(
+                rs.getLong("id"),
+                rs.getString("payout_ref"),
+                rs.getString("txn_id"),
+                PaymentGateway.valueOf(rs.getString("gateway")),
+                rs.getBigDecimal("amount"),
+                rs.getTimestamp("created_at").toLocalDateTime(),
+                rs.getTimestamp("sent_at").toInstant()),
+                Timestamp.valueOf(cutoff), after, after, lastId, pageSize);
+    }
+
+    private int apply(List<Resolution> resolutions) {
+        if (resolutions.isEmpty()) {
+            return 0;
+        }
+        List<Object[]> args = resolutions.stream()
+                .map(r -> new Object[] { r.status().name(), r.txnId(), r.payout().id() })
+                .toList();
+        int[] counts = jdbcTemplate.batchUpdate(UPDATE_STATUS, args);
+
+        // Drivers that rewrite batches report SUCCESS_NO_INFO; the row's status then tells whether it took
+        List<Long> unknown = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == Statement.SUCCESS_NO_INFO) {
+                unknown.add(resolutions.get(i).payout().id());
+            }
+        }
+        Map<Long, String> current = currentStatuses(unknown);
+
+        int updated = 0;
+        for (int i = 0; i < counts.length; i++) {
+            Resolution resolution = resolutions.get(i);
+            boolean applied = counts[i] == Statement.SUCCESS_NO_INFO
+                    ? resolution.status().name().equals(current.get(resolution.payout().id()))
+                    : counts[i] > 0;
+            if (!applied) {
+                continue;
+            }
+            if (resolution.status() == PayoutStatus.FAILED) {
+                balanceLedger.credit(resolution.payout().gateway(), resolution.payout().amount());
+            }
+            updated++;
+        }
+        return updated;
+    }
+
+    /**
+     * A webhook that set the same status in the same instant is indistinguishable
+     * from our update; the ledger's periodic reconcile absorbs that rare case.
+     */
+    private Map<Long, String> currentStatuses(List<Long> ids) {
+        Map<Long, String> statuses = new HashMap<>();
+        if (ids.isEmpty()) {
+            return statuses;
+        }
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        jdbcTemplate.query("SELECT id, status FROM payouts WHERE id IN (" + placeholders + ")", rs -> {
+            statuses.put(rs.getLong("id"), rs.getString("status"));
+        }, ids.toArray());
+        return statuses;
+    }
+
+    // ─── PaynPro ────────────────────────────────────────────────────────────────
+
+    private Resolution resolvePaynpro(InFlight payout, Map<LocalDate, Map<String, ReportEntry>> reports) {
+        // A transfer can settle the day after it was sent, so look at both days
+        ZoneId zone = ZoneId.of(paynproZone);
+        LocalDate sentOn = LocalDate.ofInstant(payout.sentAt(), zone);
+        LocalDate today = LocalDate.now(zone);
+        for (LocalDate day : List.of(sentOn, sentOn.plusDays(1))) {
+            if (day.isAfter(today)) {
+                continue;
+            }
+            ReportEntry entry = reports.computeIfAbsent(day, this::fetchPaynproReport).get(payout.payoutRef());
+            if (entry != null) {
+                PayoutStatus status = paynproStatus(entry.status());
+                return status != null ? new Resolution(payout, status, entry.txnId()) : null;
+            }
+        }
+        return null;
+    }
+
+    private Map<String, ReportEntry> fetchPaynproReport(LocalDate day) {
+        String date = day.format(DateTimeFormatter.ofPattern(paynproDateFormat));
+        Map<String, ReportEntry> entries = new HashMap<>();
+        try {
+            PaynproReportResponse report = paynProService.getTxnReport(date, date);
+            if (report.data() != null) {
+                for (PaynproReportRow row : report.data()) {
+                    if (row.payoutRef() != null) {
+                        entries.put(row.payoutRef(), new ReportEntry(row.status(), row.txnId()));
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            // Leave that day's payouts for the next pass
+            log.warn("PaynPro report for {} unavailable: {}", date, e.getMessage());
+        }
+        return entries;
+    }
+
+    // Same mapping as the PaynPro payout webhook
+    private static PayoutStatus paynproStatus(String status) {
+        if ("Success".equalsIgnoreCase(status)) {
+            return PayoutStatus.SUCCESS;
+        }
+        if ("Failed".equalsIgnoreCase(status)) {
+            return PayoutStatus.FAILED;
+        }
+        return null;
+    }
+
+    // ─── Razorpay ───────────────────────────────────────────────────────────────
+
+    private List<Resolution> resolveRazorpay(List<InFlight> payouts) {
+        if (payouts.isEmpty()) {
+            return List.of();
+        }
+        List<Resolution> resolutions = Flux.fromIterable(payouts)
+                .flatMap(payout -> razorpayService.fetchPayoutAsync(payout.txnId())
+                        .mapNotNull(response -> razorpayResolution(payout, response))
+                        .onErrorResume(e -> {
+                            log.warn("Razorpay status for payout {} unavailable: {}", payout.payoutRef(),
+                                    e.getMessage());
+                            return Mono.empty();
+                        }), razorpayConcurrency)
+                .collectList()
+                .block();
+        return resolutions != null ? resolutions : List.of();
+    }
+
+    // Same mapping as the Razorpay payout webhooks
+    private static Resolution razorpayResolution(InFlight payout, RazorpayPayoutResponse response) {
+        String status = response.status();
+        if ("processed".equals(status)) {
+            return new Resolution(payout, PayoutStatus.SUCCESS, null);
+        }
+        if ("reversed".equals(status) || "rejected".equals(status) || "failed".equals(status)
+                || "cancelled".equals(status)) {
+            return new Resolution(payout, PayoutStatus.FAILED, null);
+        }
+        return null;
+    }
+}
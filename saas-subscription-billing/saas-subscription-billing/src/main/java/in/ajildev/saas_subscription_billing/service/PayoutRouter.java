@@ -0,0 +1,334 @@
+package in.ajildev.saas_subscription_billing.service;
+
+import in.ajildev.saas_subscription_billing.dto.PayoutRoutingConfig;
+import in.ajildev.saas_subscription_billing.enums.GatewayOperation;
+import in.ajildev.saas_subscription_billing.enums.PaymentGateway;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Picks the gateway for a payout from what recent payouts experienced.
+ * <p>
+ * Each gateway keeps an exponentially decaying latency histogram and
+ * success/failure counts for its payout calls, so old samples fade with a
+ * half-life of {@code halfLifeSeconds} and a gateway that slows down loses
+ * traffic within minutes. A gateway's score blends its success ratio, its p99
+ * against {@code latencyTargetMillis} and its share of the largest known
+ * float. Gateways whose payout circuit is open, or whose ledger balance cannot
+ * cover the amount, are skipped.
+ * <p>
+ * The gateway is drawn at random with probability proportional to
+ * {@code score^sharpness}: the best gateway gets most payouts, the others
+ * still get a trickle so their stats stay fresh, and a bulk upload is not
+ * sent to one gateway wholesale. Weights must be non-negative and sharpness
+ * positive, so every share stays a non-negative number that grows with the
+ * score.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PayoutRouter {
+
+    private static final Map<PaymentGateway, GatewayOperation> PAYOUT_OPERATIONS = Map.of(
+            PaymentGateway.PAYNPRO, GatewayOperation.PAYNPRO_PAYOUT,
+            PaymentGateway.RAZORPAY, GatewayOperation.RAZORPAY_PAYOUT);
+
+    private final GatewayBalanceLedger balanceLedger;
+    private final GatewayGuard gatewayGuard;
+
+    @Value("${payout.routing.halfLifeSeconds:300}")
+    private long halfLifeSeconds;
+
+    @Value("${payout.routing.latencyTargetMillis:2000}")
+    private double latencyTargetMillis;
+
+    @Value("${payout.routing.sharpness:4}")
+    private double sharpness;
+
+    @Value("${payout.routing.successWeight:0.5}")
+    private double successWeight;
+
+    @Value("${payout.routing.latencyWeight:0.3}")
+    private double latencyWeight;
+
+    @Value("${payout.routing.balanceWeight:0.2}")
+    private double balanceWeight;
+
+    private final Map<PaymentGateway, GatewayStats> stats = new EnumMap<>(PaymentGateway.class);
+
+    private volatile PayoutRoutingConfig config;
+
+    @PostConstruct
+    public void init() {
+        long halfLifeNanos = Duration.ofSeconds(halfLifeSeconds).toNanos();
+        for (PaymentGateway gateway : PaymentGateway.values()) {
+            stats.put(gateway, new GatewayStats(halfLifeNanos));
+        }
+        config = validate(new PayoutRoutingConfig(null, Map.of(), successWeight, latencyWeight, balanceWeight,
+                sharpness));
+    }
+
+    /**
+     * @param amount   payout amount, or {@code null} to ignore balances
+     * @param fallback used when every gateway is excluded
+     */
+    public PaymentGateway choose(BigDecimal amount, PaymentGateway fallback) {
+        PayoutRoutingConfig current = config;
+        if (current.pinned() != null) {
+            return current.pinned();
+        }
+
+        Map<PaymentGateway, Double> scores = scores(current, amount);
+        double total = 0;
+        for (double score : scores.values()) {
+            total += Math.pow(score, current.sharpness());
+        }
+        if (total <= 0) {
+            return fallback;
+        }
+
+        double pick = ThreadLocalRandom.current().nextDouble(total);
+        PaymentGateway chosen = fallback;
+        for (Map.Entry<PaymentGateway, Double> entry : scores.entrySet()) {
+            double share = Math.pow(entry.getValue(), current.sharpness());
+            if (share <= 0) {
+                continue;
+            }
+            chosen = entry.getKey();
+            pick -= share;
+            if (pick < 0) {
+                break;
+            }
+        }
+        return chosen;
+    }
+
+    /**
+     * Records one payout call. {@code success} is about the gateway, not the
+     * payout: a call it answered, even with a rejection, counts as a success.
+     */
+    public void record(PaymentGateway gateway, Duration latency, boolean success) {
+        stats.get(gateway).record(System.nanoTime(), latency.toNanos() / 1_000_000.0, success);
+    }
+
+    /**
+     * Applies the non-null fields of {@code update}; a null {@code pinned}
+     * keeps the current pin, see {@link #unpin()}.
+     *
+     * @throws IllegalArgumentException if the result has a negative or
+     *                                  non-finite weight, no positive factor
+     *                                  weight, or a sharpness that is not
+     *                                  positive
+     */
+    public synchronized PayoutRoutingConfig updateConfig(PayoutRoutingConfig update) {
+        PayoutRoutingConfig current = config;
+        config = validate(new PayoutRoutingConfig(
+                update.pinned() != null ? update.pinned() : current.pinned(),
+                update.gatewayWeights() != null ? copyWeights(update.gatewayWeights()) : current.gatewayWeights(),
+                update.successWeight() != null ? update.successWeight() : current.successWeight(),
+                update.latencyWeight() != null ? update.latencyWeight() : current.latencyWeight(),
+                update.balanceWeight() != null ? update.balanceWeight() : current.balanceWeight(),
+                update.sharpness() != null ? update.sharpness() : current.sharpness()));
+        log.info("Payout routing updated: {}", config);
+        return config;
+    }
+
+    public synchronized PayoutRoutingConfig unpin() {
+        PayoutRoutingConfig current = config;
+        config = new PayoutRoutingConfig(null, current.gatewayWeights(), current.successWeight(),
+                current.latencyWeight(), current.balanceWeight(), current.sharpness());
+        log.info("Payout routing unpinned: {}", config);
+        return config;
+    }
+
+    // Map.copyOf would throw an NPE on a null weight before validate could reject it
+    private static Map<PaymentGateway, Double> copyWeights(Map<PaymentGateway, Double> weights) {
+        Map<PaymentGateway, Double> copy = new EnumMap<>(PaymentGateway.class);
+        copy.putAll(weights);
+        return Collections.unmodifiableMap(copy);
+    }
+
+    private static PayoutRoutingConfig validate(PayoutRoutingConfig config) {
+        config.gatewayWeights().forEach((gateway, weight) -> requireWeight("Weight of " + gateway, weight));
+        requireWeight("successWeight", config.successWeight());
+        requireWeight("latencyWeight", config.latencyWeight());
+        requireWeight("balanceWeight", config.balanceWeight());
+        if (config.successWeight() + config.latencyWeight() + config.balanceWeight() <= 0) {
+            throw new IllegalArgumentException("At least one of the factor weights must be positive");
+        }
+        // NaN fails this comparison too
+        if (!(config.sharpness() > 0) || config.sharpness().isInfinite()) {
+            throw new IllegalArgumentException("sharpness must be a positive number");
+        }
+        return config;
+    }
+
+    private static void requireWeight(String name, Double weight) {
+        if (weight == null || !Double.isFinite(weight) || weight < 0) {
+            throw new IllegalArgumentException(name + " must be a non-negative number");
+        }
+    }
+
+    /**
+     * Current stats and scores per gateway, for the admin routing view.
+     */
+    public Map<String, Object> snapshot() {
+        PayoutRoutingConfig current = config;
+        Map<PaymentGateway, Double> scores = scores(current, null);
+        Map<String, Object> gateways = new LinkedHashMap<>();
+        stats.forEach((gateway, gatewayStats) -> {
+            GatewayStats.View view = gatewayStats.view(System.nanoTime());
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("p50Millis", view.p50Millis());
+            entry.put("p99Millis", view.p99Millis());
+            entry.put("successRatio", view.successRatio());
+            entry.put("samples", view.samples());
+            entry.put("circuit", gatewayGuard.getState(PAYOUT_OPERATIONS.get(gateway)).name());
+            entry.put("score", scores.get(gateway));
+            gateways.put(gateway.name().toLowerCase(), entry);
+        });
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("config", current);
+        snapshot.put("gateways", gateways);
+        return snapshot;
+    }
+
+    private Map<PaymentGateway, Double> scores(PayoutRoutingConfig current, BigDecimal amount) {
+        long now = System.nanoTime();
+        long maxAvailable = 0;
+        for (PaymentGateway gateway : PaymentGateway.values()) {
+            if (balanceLedger.isSeeded(gateway)) {
+                maxAvailable = Math.max(maxAvailable, balanceLedger.getAvailablePaise(gateway));
+            }
+        }
+        double weightSum = current.successWeight() + current.latencyWeight() + current.balanceWeight();
+
+        Map<PaymentGateway, Double> scores = new EnumMap<>(PaymentGateway.class);
+        for (PaymentGateway gateway : PaymentGateway.values()) {
+            double gatewayWeight = current.gatewayWeights().getOrDefault(gateway, 1.0);
+            if (gatewayWeight <= 0 || weightSum <= 0 || !isAvailable(gateway, amount)) {
+                scores.put(gateway, 0.0);
+                continue;
+            }
+            GatewayStats.View view = stats.get(gateway).view(now);
+            double latencyScore = latencyTargetMillis / (latencyTargetMillis + view.p99Millis());
+            // Unknown balances count as full so a gateway is not penalised before its first reconcile
+            double balanceScore = !balanceLedger.isSeeded(gateway) || maxAvailable <= 0 ? 1.0
+                    : (double) balanceLedger.getAvailablePaise(gateway) / maxAvailable;
+            double score = (current.successWeight() * view.successRatio()
+                    + current.latencyWeight() * latencyScore
+                    + current.balanceWeight() * balanceScore) / weightSum;
+            scores.put(gateway, gatewayWeight * score);
+        }
+        return scores;
+    }
+
+    private boolean isAvailable(PaymentGateway gateway, BigDecimal amount) {
+        if (gatewayGuard.getState(PAYOUT_OPERATIONS.get(gateway)) == CircuitBreaker.State.OPEN) {
+            return false;
+        }
+        return amount == null || !balanceLedger.isSeeded(gateway)
+                || balanceLedger.getAvailablePaise(gateway) >= GatewayBalanceLedger.toPaise(amount);
+    }
+
+    /**
+     * Decaying latency histogram and success counts for one gateway. Buckets
+     * grow geometrically from 5 ms, so a quantile is at most 30% above the true
+     * value; decay is applied lazily whenever the stats are touched.
+     */
+    private static final class GatewayStats {
+
+        private static final int BUCKETS = 48;
+        private static final double FIRST_BOUND_MILLIS = 5;
+        private static final double GROWTH = 1.3;
+        private static final double LOG_GROWTH = Math.log(GROWTH);
+
+        private record View(double p50Millis, double p99Millis, double successRatio, double samples) {
+        }
+
+        private final long halfLifeNanos;
+        private final double[] latencyCounts = new double[BUCKETS];
+        private double latencyTotal;
+        private double successes;
+        private double failures;
+        private long lastDecayNanos = System.nanoTime();
+
+        private GatewayStats(long halfLifeNanos) {
+            this.halfLifeNanos = halfLifeNanos;
+        }
+
+        synchronized void record(long now, double latencyMillis, boolean success) {
+            decay(now);
+            if (success) {
+                successes++;
+            } else {
+                failures++;
+            }
+            if (latencyMillis > 0) {
+                latencyCounts[bucket(latencyMillis)]++;
+                latencyTotal++;
+            }
+        }
+
+        synchronized View view(long now) {
+            decay(now);
+            // One pseudo-success so an idle gateway starts out as healthy
+            double successRatio = (successes + 1) / (successes + failures + 1);
+            return new View(quantile(0.5), quantile(0.99), successRatio, successes + failures);
+        }
+
+        private void decay(long now) {
+            long elapsed = now - lastDecayNanos;
+            if (elapsed <= 0) {
+                return;
+            }
+            double factor = Math.pow(0.5, (double) elapsed / halfLifeNanos);
+            for (int i = 0; i < BUCKETS; i++) {
+                latencyCounts[i] *= factor;
+            }
+            latencyTotal *= factor;
+            successes *= factor;
+            failures *= factor;
+            lastDecayNanos = now;
+        }
+
+        private double quantile(double q) {
+            if (latencyTotal <= 0) {
+                return 0;
+            }
+            double target = q * latencyTotal;
+            double seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += latencyCounts[i];
+                if (seen >= target) {
+                    return upperBound(i);
+                }
+            }
+            return upperBound(BUCKETS - 1);
+        }
+
+        private static int bucket(double millis) {
+            if (millis <= FIRST_BOUND_MILLIS) {
+                return 0;
+            }
+            int bucket = (int) Math.ceil(Math.log(millis / FIRST_BOUND_MILLIS) / LOG_GROWTH);
+            return Math.min(bucket, BUCKETS - 1);
+        }
+
+        private static double upperBound(int bucket) {
+            return FIRST_BOUND_MILLIS * Math.pow(GROWTH, bucket);
+        }
+    }
+}
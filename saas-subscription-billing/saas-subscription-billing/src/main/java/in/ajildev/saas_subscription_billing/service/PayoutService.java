@@ -1,20 +1,37 @@
 package in.ajildev.saas_subscription_billing.service;
 
+import in.ajildev.saas_subscription_billing.dto.PayoutPage;
+import in.ajildev.saas_subscription_billing.dto.PayoutSummary;
+import in.ajildev.saas_subscription_billing.dto.paynpro.PaynproPayoutResponse;
+import in.ajildev.saas_subscription_billing.dto.razorpay.RazorpayPayoutResponse;
 import in.ajildev.saas_subscription_billing.entity.Payout;
+import in.ajildev.saas_subscription_billing.entity.PayoutOutbox;
 import in.ajildev.saas_subscription_billing.entity.Subscription;
 import in.ajildev.saas_subscription_billing.entity.User;
+import in.ajildev.saas_subscription_billing.enums.OutboxStatus;
 import in.ajildev.saas_subscription_billing.enums.PaymentGateway;
 import in.ajildev.saas_subscription_billing.enums.PayoutStatus;
+import in.ajildev.saas_subscription_billing.exception.GatewayClientException;
+import in.ajildev.saas_subscription_billing.exception.InsufficientGatewayBalanceException;
+import in.ajildev.saas_subscription_billing.repository.PayoutOutboxRepository;
 import in.ajildev.saas_subscription_billing.repository.PayoutRepository;
 import in.ajildev.saas_subscription_billing.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.json.JSONObject;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import tools.jackson.databind.json.JsonMapper;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.EnumMap;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
@@ -25,9 +42,19 @@ public class PayoutService {
     private final PaynProService paynProService;
     private final RazorpayService razorpayService;
     private final UserRepository userRepository;
+    private final RazorpayBeneficiaryCache beneficiaryCache;
+    private final PayoutOutboxRepository outboxRepository;
+    private final GatewayBalanceLedger balanceLedger;
+    private final PayoutRouter payoutRouter;
+    private final ReferenceGenerator referenceGenerator;
+    private final JsonMapper jsonMapper;
+
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
 
     /**
-     * Triggered when a subscription is activated.
+     * Triggered when a subscription is activated. Only records the payout and
+     * its outbox entry; the gateway is called after the activation commits.
      */
     @Transactional
     public void processPayoutForSubscription(Subscription subscription) {
@@ -37,113 +64,247 @@ public class PayoutService {
         }
 
         User user = subscription.getUser();
-        if (user.getPayoutAccountNo() == null || user.getPayoutIfsc() == null) {
-            log.warn("User {} has no payout details set. Skipping payout initiation.", user.getEmail());
-            // Create a pending record to be processed later when user updates details
-            savePayoutRecord(subscription, PayoutStatus.FAILED, "Missing bank details");
-            return;
-        }
-
+        java.math.BigDecimal amount = subscription.getPlan().getPayoutAmount();
         Payout payout = Payout.builder()
                 .user(user)
                 .subscription(subscription)
-                .amount(subscription.getPlan().getPayoutAmount())
-                .payoutRef("POUT_" + UUID.randomUUID().toString().substring(0, 8).toUpperCase())
+                .amount(amount)
+                .payoutRef(referenceGenerator.next("POUT_"))
                 .status(PayoutStatus.PENDING)
-                .gateway(subscription.getPayments().get(0).getGateway()) // Use same gateway as payment for now
-                .beneficiaryName(user.getPayoutBeneficiaryName())
-                .accountNo(user.getPayoutAccountNo())
-                .ifsc(user.getPayoutIfsc())
-                .bankName(user.getPayoutBankName())
+                .gateway(payoutRouter.choose(amount, subscription.getPayments().get(0).getGateway()))
                 .purpose("SaaS Plan Payout - " + subscription.getPlan().getName())
-                .mobile(user.getMobile())
                 .build();
 
+        if (!hasBankDetails(user)) {
+            log.warn("User {} has no payout details set. Parking payout until they are added.", user.getEmail());
+            payout.setStatus(PayoutStatus.AWAITING_BANK_DETAILS);
+            payoutRepository.save(payout);
+            return;
+        }
+
+        applyBeneficiary(payout, user);
         payout = payoutRepository.save(payout);
+        enqueue(payout);
+        log.info("Payout {} queued for subscription {}", payout.getPayoutRef(), subscription.getId());
+    }
 
-        try {
-            if (payout.getGateway() == PaymentGateway.PAYNPRO) {
-                initiatePaynProPayout(payout);
-            } else if (payout.getGateway() == PaymentGateway.RAZORPAY) {
-                initiateRazorpayPayout(payout);
+    /**
+     * Queues a persisted payout for {@link PayoutOutboxDispatcher}. Joins the
+     * caller's transaction, so the payout is sent only if the caller commits.
+     */
+    private void enqueue(Payout payout) {
+        outboxRepository.save(PayoutOutbox.builder()
+                .payoutId(payout.getId())
+                .gateway(payout.getGateway())
+                .status(OutboxStatus.PENDING)
+                .nextAttemptAt(LocalDateTime.now())
+                .build());
+    }
+
+    /**
+     * Reserves the amount against the gateway's float, sends the payout and
+     * records the gateway's answer. Errors, including
+     * {@link InsufficientGatewayBalanceException} when the float cannot cover
+     * it, are passed on untouched so the caller decides between failing,
+     * holding and retrying.
+     */
+    Mono<Payout> submitAsync(Payout payout) {
+        return Mono.defer(() -> {
+            GatewayBalanceLedger.Reservation reservation = balanceLedger.reserve(payout.getGateway(),
+                    payout.getAmount());
+            if (reservation == null) {
+                return Mono.error(new InsufficientGatewayBalanceException(
+                        "Insufficient " + payout.getGateway() + " balance for payout " + payout.getPayoutRef()));
             }
-        } catch (Exception e) {
-            log.error("Automatic payout initiation failed for subscription {}: {}", subscription.getId(),
-                    e.getMessage());
-            // We don't re-throw here to avoid rolling back the subscription activation
-        }
+            payout.setSentAt(Instant.now());
+            // Only the payout request itself is timed, not rate limiting, fund-account lookups or DB work
+            GatewayGuard.ExchangeTimer exchange = new GatewayGuard.ExchangeTimer();
+            return send(payout)
+                    .doOnNext(sent -> {
+                        payoutRouter.record(payout.getGateway(), exchange.elapsed(), true);
+                        if (sent.getStatus() == PayoutStatus.FAILED) {
+                            reservation.release();
+                        } else {
+                            reservation.commit();
+                        }
+                    })
+                    .doOnError(e -> {
+                        reservation.release();
+                        payoutRouter.record(payout.getGateway(), exchange.elapsed(), isGatewayAnswer(e));
+                    })
+                    .doOnCancel(reservation::release)
+                    .contextWrite(context -> context.put(GatewayGuard.ExchangeTimer.class, exchange));
+        });
     }
 
-    private void initiateRazorpayPayout(Payout payout) {
-        try {
-            JSONObject response = razorpayService.initiatePayout(payout);
-            log.info("Razorpay Payout Response: {}", response);
+    /**
+     * A 4xx is about the payout, not the gateway's health.
+     */
+    private static boolean isGatewayAnswer(Throwable e) {
+        return e instanceof GatewayClientException
+                || (e instanceof WebClientResponseException response && response.getStatusCode().is4xxClientError());
+    }
 
-            payout.setResponseJson(response.toString());
-            payout.setTxnId(response.optString("id"));
+    private Mono<Payout> send(Payout payout) {
+        return payout.getGateway() == PaymentGateway.RAZORPAY
+                ? razorpayService.initiatePayoutAsync(payout)
+                        .publishOn(Schedulers.boundedElastic())
+                        .map(response -> {
+                            applyRazorpayResponse(payout, response);
+                            return payout;
+                        })
+                : paynProService.initiatePayoutAsync(payout)
+                        .publishOn(Schedulers.boundedElastic())
+                        .map(response -> {
+                            applyPaynProResponse(payout, response);
+                            return payout;
+                        });
+    }
 
-            String status = response.optString("status");
-            if ("processed".equalsIgnoreCase(status) || "processing".equalsIgnoreCase(status)
-                    || "pending".equalsIgnoreCase(status)) {
-                payout.setStatus(PayoutStatus.PROCESSING);
-            } else if ("cancelled".equalsIgnoreCase(status) || "rejected".equalsIgnoreCase(status)) {
-                payout.setStatus(PayoutStatus.FAILED);
-            }
-            payoutRepository.save(payout);
-        } catch (Exception e) {
-            log.error("Razorpay Payout failed to initiate: {}", e.getMessage());
+    private void applyRazorpayResponse(Payout payout, RazorpayPayoutResponse response) {
+        log.info("Razorpay Payout Response: {}", response);
+
+        payout.setResponseJson(jsonMapper.writeValueAsString(response));
+        payout.setTxnId(response.id());
+
+        String status = response.status();
+        if ("processed".equalsIgnoreCase(status) || "processing".equalsIgnoreCase(status)
+                || "pending".equalsIgnoreCase(status)) {
+            payout.setStatus(PayoutStatus.PROCESSING);
+        } else if ("cancelled".equalsIgnoreCase(status) || "rejected".equalsIgnoreCase(status)) {
             payout.setStatus(PayoutStatus.FAILED);
-            payout.setResponseJson(new JSONObject().put("error", e.getMessage()).toString());
-            payoutRepository.save(payout);
-            throw e;
         }
+        payoutRepository.save(payout);
     }
 
-    private void initiatePaynProPayout(Payout payout) {
-        try {
-            JSONObject response = paynProService.initiatePayout(payout);
-            log.info("PaynPro Payout Response: {}", response);
+    private void applyPaynProResponse(Payout payout, PaynproPayoutResponse response) {
+        log.info("PaynPro Payout Response: {}", response);
 
-            payout.setResponseJson(response.toString());
-            if (response.has("statusCode") && response.getInt("statusCode") == 200) {
-                if (response.has("Data")) {
-                    payout.setTxnId(response.getJSONObject("Data").optString("txn_id"));
-                    payout.setStatus(PayoutStatus.PROCESSING);
-                }
-            } else {
-                payout.setStatus(PayoutStatus.FAILED);
+        payout.setResponseJson(jsonMapper.writeValueAsString(response));
+        if (response.isAccepted()) {
+            if (response.data() != null) {
+                payout.setTxnId(response.data().txnId());
+                payout.setStatus(PayoutStatus.PROCESSING);
             }
-            payoutRepository.save(payout);
-        } catch (Exception e) {
-            log.error("PaynPro Payout failed to initiate: {}", e.getMessage());
+        } else {
             payout.setStatus(PayoutStatus.FAILED);
-            payout.setResponseJson(new JSONObject().put("error", e.getMessage()).toString());
-            payoutRepository.save(payout);
-            throw e;
         }
+        payoutRepository.save(payout);
     }
 
-    private void savePayoutRecord(Subscription subscription, PayoutStatus status, String purpose) {
-        Payout payout = Payout.builder()
-                .user(subscription.getUser())
-                .subscription(subscription)
-                .amount(subscription.getPlan().getPayoutAmount())
-                .payoutRef("POUT_ERR_" + System.currentTimeMillis())
-                .status(status)
-                .gateway(PaymentGateway.PAYNPRO)
-                .purpose(purpose)
-                .build();
+    /**
+     * Looks a PaynPro payout up by reference before it is sent again. PaynPro
+     * has no idempotency key, so a transfer accepted by an attempt that lost
+     * its lease would otherwise be paid twice. Completes empty when PaynPro
+     * does not know the reference; a failed lookup is passed on, so the
+     * payout is retried rather than resent blind. The ledger is not charged
+     * here, its next reconcile picks the spend up from the gateway balance.
+     */
+    Mono<Payout> recoverPaynProAsync(Payout payout) {
+        return paynProService.getPayoutStatusAsync(payout.getPayoutRef())
+                .filter(response -> (response.statusCode() == null || response.statusCode() == 200)
+                        && response.data() != null)
+                .publishOn(Schedulers.boundedElastic())
+                .map(response -> {
+                    log.info("PaynPro already has payout {}: {}", payout.getPayoutRef(), response.data().status());
+                    payout.setResponseJson(jsonMapper.writeValueAsString(response));
+                    payout.setTxnId(response.data().txnId());
+                    if ("Success".equalsIgnoreCase(response.data().status())) {
+                        payout.setStatus(PayoutStatus.SUCCESS);
+                    } else if ("Failed".equalsIgnoreCase(response.data().status())) {
+                        payout.setStatus(PayoutStatus.FAILED);
+                    } else {
+                        payout.setStatus(PayoutStatus.PROCESSING);
+                    }
+                    return payoutRepository.save(payout);
+                });
+    }
+
+    void markFailed(Payout payout, Throwable e) {
+        payout.setStatus(PayoutStatus.FAILED);
+        payout.setResponseJson(jsonMapper.createObjectNode().put("error", e.getMessage()).toString());
         payoutRepository.save(payout);
     }
 
+    /**
+     * Hands a payout whose attempts all failed transiently to the reconciler.
+     * Any of them may have reached the gateway, so it is not failed here.
+     */
+    void markUnresolved(Payout payout, Throwable e) {
+        if (payout.getStatus() != PayoutStatus.PENDING) {
+            return;
+        }
+        payout.setStatus(PayoutStatus.PROCESSING);
+        payout.setResponseJson(jsonMapper.createObjectNode().put("error", e.getMessage()).toString());
+        payoutRepository.save(payout);
+    }
+
+    private static boolean hasBankDetails(User user) {
+        return user.getPayoutAccountNo() != null && !user.getPayoutAccountNo().isBlank()
+                && user.getPayoutIfsc() != null && !user.getPayoutIfsc().isBlank();
+    }
+
+    private static void applyBeneficiary(Payout payout, User user) {
+        payout.setBeneficiaryName(user.getPayoutBeneficiaryName());
+        payout.setAccountNo(user.getPayoutAccountNo());
+        payout.setIfsc(user.getPayoutIfsc());
+        payout.setBankName(user.getPayoutBankName());
+        payout.setMobile(user.getMobile());
+    }
+
     public List<Payout> getUserPayouts(String email) {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("User not found"));
         return payoutRepository.findByUserOrderByCreatedAtDesc(user);
     }
 
-    public List<Payout> getAllPayouts() {
-        return payoutRepository.findAll();
+    /**
+     * One page of the admin listing, newest first. The cursor carries the
+     * (createdAt, id) of the last row returned, so every page is an index
+     * range scan no matter how deep it is.
+     */
+    public PayoutPage listPayouts(PayoutStatus status, PaymentGateway gateway, Long userId, LocalDateTime from,
+            LocalDateTime to, String cursor, Integer limit) {
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        LocalDateTime afterCreatedAt = null;
+        Long afterId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                String[] parts = decoded.split("\\|");
+                afterCreatedAt = LocalDateTime.parse(parts[0]);
+                afterId = Long.parseLong(parts[1]);
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+
+        // One extra row tells whether there is a next page
+        List<PayoutSummary> rows = payoutRepository.findSummaries(status, gateway, userId, from, to, afterCreatedAt,
+                afterId, pageSize + 1);
+        if (rows.size() <= pageSize) {
+            return new PayoutPage(rows, null);
+        }
+        List<PayoutSummary> items = rows.subList(0, pageSize);
+        PayoutSummary last = items.get(pageSize - 1);
+        String nextCursor = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((last.createdAt() + "|" + last.id()).getBytes(StandardCharsets.UTF_8));
+        return new PayoutPage(List.copyOf(items), nextCursor);
+    }
+
+    /**
+     * Number of payouts in each status, zero for statuses with none; the
+     * dashboard totals come from here rather than from a page of the listing.
+     */
+    public Map<PayoutStatus, Long> countByStatus() {
+        Map<PayoutStatus, Long> counts = new EnumMap<>(PayoutStatus.class);
+        for (PayoutStatus status : PayoutStatus.values()) {
+            counts.put(status, 0L);
+        }
+        for (Object[] row : payoutRepository.countGroupedByStatus()) {
+            counts.put((PayoutStatus) row[0], (Long) row[1]);
+        }
+        return counts;
     }
 
     @Transactional
@@ -157,10 +318,52 @@ public class PayoutService {
         user.setPayoutBeneficiaryName(beneficiaryName);
         user.setPayoutBankName(bankName);
         userRepository.save(user);
+        beneficiaryCache.evictUser(user.getId());
+
+        if (hasBankDetails(user)) {
+            redriveParkedPayouts(user);
+        }
     }
 
+    /**
+     * Fills in the new bank details and queues the user's parked payouts. Runs
+     * in the caller's transaction, so they are sent only once the details are
+     * committed.
+     */
+    private void redriveParkedPayouts(User user) {
+        List<Payout> parked = payoutRepository.findParkedByUserId(user.getId());
+        for (Payout payout : parked) {
+            applyBeneficiary(payout, user);
+            payout.setStatus(PayoutStatus.PENDING);
+            Subscription subscription = payout.getSubscription();
+            if (subscription != null && !subscription.getPayments().isEmpty()) {
+                // Legacy records were saved with a fixed gateway and a placeholder purpose
+                payout.setGateway(payoutRouter.choose(payout.getAmount(),
+                        subscription.getPayments().get(0).getGateway()));
+                payout.setPurpose("SaaS Plan Payout - " + subscription.getPlan().getName());
+            }
+            payoutRepository.save(payout);
+            enqueue(payout);
+        }
+        if (!parked.isEmpty()) {
+            log.info("Queued {} parked payout(s) for user {}", parked.size(), user.getEmail());
+        }
+    }
+
+    /**
+     * Records a manual payout together with its outbox entry, so a crash
+     * before it is sent leaves it queued rather than stranded.
+     * {@link PayoutOutboxDispatcher#dispatchNow} sends it straight away.
+     */
     @Transactional
-    public Payout initiateManualPayout(String email, java.math.BigDecimal amount, String purpose,
+    public Payout queueManualPayout(String email, java.math.BigDecimal amount, String purpose,
+            PaymentGateway gateway) {
+        Payout payout = createManualPayout(email, amount, purpose, gateway);
+        enqueue(payout);
+        return payout;
+    }
+
+    private Payout createManualPayout(String email, java.math.BigDecimal amount, String purpose,
             PaymentGateway gateway) {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("User not found"));
@@ -172,9 +375,9 @@ public class PayoutService {
         Payout payout = Payout.builder()
                 .user(user)
                 .amount(amount)
-                .payoutRef("MAN_" + UUID.randomUUID().toString().substring(0, 8).toUpperCase())
+                .payoutRef(referenceGenerator.next("MAN_"))
                 .status(PayoutStatus.PENDING)
-                .gateway(gateway != null ? gateway : PaymentGateway.PAYNPRO)
+                .gateway(gateway != null ? gateway : payoutRouter.choose(amount, PaymentGateway.PAYNPRO))
                 .beneficiaryName(user.getPayoutBeneficiaryName())
                 .accountNo(user.getPayoutAccountNo())
                 .ifsc(user.getPayoutIfsc())
@@ -183,14 +386,6 @@ public class PayoutService {
                 .mobile(user.getMobile())
                 .build();
 
-        payout = payoutRepository.save(payout);
-
-        if (payout.getGateway() == PaymentGateway.RAZORPAY) {
-            initiateRazorpayPayout(payout);
-        } else {
-            initiatePaynProPayout(payout);
-        }
-
-        return payout;
+        return payoutRepository.save(payout);
     }
 }
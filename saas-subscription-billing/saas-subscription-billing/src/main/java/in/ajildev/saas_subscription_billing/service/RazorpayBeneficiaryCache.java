@@ -0,0 +1,107 @@
+package in.ajildev.saas_subscription_billing.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import in.ajildev.saas_subscription_billing.entity.RazorpayFundAccount;
+import in.ajildev.saas_subscription_billing.repository.RazorpayFundAccountRepository;
+import in.ajildev.saas_subscription_billing.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Read-through cache of RazorpayX contact and fund-account ids per user and
+ * bank-detail snapshot, persisted in {@code razorpay_fund_accounts}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RazorpayBeneficiaryCache {
+
+    private final RazorpayFundAccountRepository fundAccountRepository;
+    private final UserRepository userRepository;
+
+    @Value("${razorpay.fundAccountCache.maxSize:10000}")
+    private long maxSize;
+
+    private Cache<Key, FundAccountIds> cache;
+
+    @PostConstruct
+    public void init() {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    public record FundAccountIds(String contactId, String fundAccountId) {
+    }
+
+    private record Key(Long userId, String bankFingerprint) {
+    }
+
+    /**
+     * In-memory lookup only; safe to call from an event-loop thread.
+     */
+    public FundAccountIds getIfCached(Long userId, String bankFingerprint) {
+        return cache.getIfPresent(new Key(userId, bankFingerprint));
+    }
+
+    /**
+     * Falls back to the database on a cache miss. Blocking.
+     */
+    public FundAccountIds load(Long userId, String bankFingerprint) {
+        return cache.get(new Key(userId, bankFingerprint),
+                key -> fundAccountRepository.findByUserIdAndBankFingerprint(key.userId(), key.bankFingerprint())
+                        .map(f -> new FundAccountIds(f.getContactId(), f.getFundAccountId()))
+                        .orElse(null));
+    }
+
+    /**
+     * Blocking.
+     */
+    public void save(Long userId, String bankFingerprint, FundAccountIds ids) {
+        try {
+            fundAccountRepository.save(RazorpayFundAccount.builder()
+                    .user(userRepository.getReferenceById(userId))
+                    .bankFingerprint(bankFingerprint)
+                    .contactId(ids.contactId())
+                    .fundAccountId(ids.fundAccountId())
+                    .build());
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent payout for the same account stored it first; either pair is valid
+            log.debug("Fund account for user {} already stored", userId);
+        }
+        cache.put(new Key(userId, bankFingerprint), ids);
+    }
+
+    /**
+     * Drops every stored id pair for the user; called when bank details change.
+     * In-memory entries are left to age out: they are keyed by the old bank
+     * fingerprint, so new details never hit them, and a pair that is hit again
+     * still names a valid fund account for exactly those details.
+     */
+    @Transactional
+    public void evictUser(Long userId) {
+        fundAccountRepository.deleteByUserId(userId);
+    }
+
+    public static String fingerprint(String beneficiaryName, String ifsc, String accountNo) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest((beneficiaryName + "|" + ifsc + "|" + accountNo)
+                    .getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -1,15 +1,29 @@
 package in.ajildev.saas_subscription_billing.service;
 
-import com.razorpay.Order;
-import com.razorpay.RazorpayClient;
 import com.razorpay.RazorpayException;
 import com.razorpay.Utils;
-import org.json.JSONObject;
+import in.ajildev.saas_subscription_billing.dto.razorpay.RazorpayContactRequest;
+import in.ajildev.saas_subscription_billing.dto.razorpay.RazorpayEntityRef;
+import in.ajildev.saas_subscription_billing.dto.razorpay.RazorpayErrorResponse;
+import in.ajildev.saas_subscription_billing.dto.razorpay.RazorpayFundAccountRequest;
+import in.ajildev.saas_subscription_billing.dto.razorpay.RazorpayOrder;
+import in.ajildev.saas_subscription_billing.dto.razorpay.RazorpayOrderRequest;
+import in.ajildev.saas_subscription_billing.dto.razorpay.RazorpayPayoutRequest;
+import in.ajildev.saas_subscription_billing.dto.razorpay.RazorpayPayoutResponse;
+import in.ajildev.saas_subscription_billing.enums.GatewayOperation;
+import in.ajildev.saas_subscription_billing.exception.GatewayClientException;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import in.ajildev.saas_subscription_billing.dto.razorpay.RazorpayBalanceResponse;
+import tools.jackson.databind.json.JsonMapper;
 
-import jakarta.annotation.PostConstruct;
 import java.math.BigDecimal;
+import java.util.Optional;
 
 @Service
 public class RazorpayService {
@@ -23,16 +37,18 @@ public class RazorpayService {
     @Value("${razorpay.account.number}")
     private String accountNumber;
 
-    private RazorpayClient razorpayClient;
     private final org.springframework.web.reactive.function.client.WebClient webClient;
+    private final RazorpayBeneficiaryCache beneficiaryCache;
+    private final GatewayGuard gatewayGuard;
+    private final JsonMapper jsonMapper;
 
-    public RazorpayService(org.springframework.web.reactive.function.client.WebClient.Builder builder) {
-        this.webClient = builder.baseUrl("https://api.razorpay.com").build();
-    }
-
-    @PostConstruct
-    public void init() throws RazorpayException {
-        this.razorpayClient = new RazorpayClient(apiKey, apiSecret);
+    public RazorpayService(
+            @Qualifier("razorpayWebClient") org.springframework.web.reactive.function.client.WebClient webClient,
+            RazorpayBeneficiaryCache beneficiaryCache, GatewayGuard gatewayGuard, JsonMapper jsonMapper) {
+        this.webClient = webClient;
+        this.beneficiaryCache = beneficiaryCache;
+        this.gatewayGuard = gatewayGuard;
+        this.jsonMapper = jsonMapper;
     }
 
     /**
@@ -40,144 +56,196 @@ public class RazorpayService {
      * 1. Create/Identify Contact
      * 2. Create Fund Account
      * 3. Trigger Payout
+     * Steps 1 and 2 are skipped when a fund account already exists for the
+     * user's current bank details.
      */
-    public JSONObject initiatePayout(in.ajildev.saas_subscription_billing.entity.Payout payout) {
-        String authBase64 = java.util.Base64.getEncoder().encodeToString((apiKey + ":" + apiSecret).getBytes());
-        String authHeader = "Basic " + authBase64;
+    public RazorpayPayoutResponse initiatePayout(in.ajildev.saas_subscription_billing.entity.Payout payout) {
+        return initiatePayoutAsync(payout).block();
+    }
 
-        // 1. Create Contact
-        JSONObject contactReq = new JSONObject();
-        contactReq.put("name", payout.getUser().getName());
-        contactReq.put("email", payout.getUser().getEmail());
-        contactReq.put("contact", payout.getMobile() != null ? payout.getMobile() : "9999999999");
-        contactReq.put("type", "customer");
-        contactReq.put("reference_id", "USER_" + payout.getUser().getId());
-
-        String contactUrl = "https://api.razorpay.com/v1/contacts";
-        System.out.println("Razorpay Contact URL: " + contactUrl);
-
-        String contactRes = webClient.post()
-                .uri(contactUrl)
-                .header("Authorization", authHeader)
-                .header("Content-Type", "application/json")
-                .bodyValue(contactReq.toString())
-                .retrieve()
-                .onStatus(status -> status.is4xxClientError() || status.is5xxServerError(), clientResponse -> {
-                    return clientResponse.bodyToMono(String.class).flatMap(body -> {
-                        return reactor.core.publisher.Mono
-                                .error(new RuntimeException("Razorpay Contact API Error: " + body));
-                    });
-                })
-                .bodyToMono(String.class)
-                .block();
+    /**
+     * Non-blocking variant of {@link #initiatePayout}. Request bodies are built
+     * eagerly on the caller's thread; the calls are chained on subscription.
+     */
+    public Mono<RazorpayPayoutResponse> initiatePayoutAsync(
+            in.ajildev.saas_subscription_billing.entity.Payout payout) {
+        String authHeader = basicAuthHeader();
+        Long userId = payout.getUser().getId();
+        String bankFingerprint = RazorpayBeneficiaryCache.fingerprint(
+                payout.getBeneficiaryName(), payout.getIfsc(), payout.getAccountNo());
 
-        JSONObject contactJson = new JSONObject(contactRes);
-        String contactId = contactJson.getString("id");
+        // 1. Create Contact
+        RazorpayContactRequest contactReq = new RazorpayContactRequest(
+                payout.getUser().getName(),
+                payout.getUser().getEmail(),
+                payout.getMobile() != null ? payout.getMobile() : "9999999999",
+                "customer",
+                "USER_" + userId);
 
         // 2. Create Fund Account
-        JSONObject fundAccReq = new JSONObject();
-        fundAccReq.put("contact_id", contactId);
-        fundAccReq.put("account_type", "bank_account");
+        RazorpayFundAccountRequest.BankAccount bankAccount = new RazorpayFundAccountRequest.BankAccount(
+                payout.getBeneficiaryName(), payout.getIfsc(), payout.getAccountNo());
 
-        JSONObject bankAccount = new JSONObject();
-        bankAccount.put("name", payout.getBeneficiaryName());
-        bankAccount.put("ifsc", payout.getIfsc());
-        bankAccount.put("account_number", payout.getAccountNo());
+        // 3. Trigger Payout
+        RazorpayPayoutRequest payoutReq = RazorpayPayoutRequest.builder()
+                .accountNumber(accountNumber)
+                .amount(payout.getAmount().multiply(new BigDecimal("100")).longValue())
+                .currency("INR")
+                .mode("IMPS")
+                .purpose(payout.getPurpose())
+                .queueIfLowBalance(true)
+                .referenceId(payout.getPayoutRef())
+                .narration("Manual Payout")
+                .build();
 
-        fundAccReq.put("bank_account", bankAccount);
+        // Only the HTTP calls are guarded, so fund-account lookups in our own DB never trip the breaker
+        return resolveFundAccountId(userId, bankFingerprint, contactReq, bankAccount, authHeader)
+                .flatMap(fundAccountId -> gatewayGuard.protect(GatewayOperation.RAZORPAY_PAYOUT, webClient.post()
+                        .uri("/v1/payouts")
+                        .header("Authorization", authHeader)
+                        .header("X-Payout-Idempotency", payoutReq.referenceId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(payoutReq.withFundAccountId(fundAccountId))
+                        .retrieve()
+                        .onStatus(status -> status.is4xxClientError() || status.is5xxServerError(),
+                                clientResponse -> clientResponse.bodyToMono(String.class)
+                                        .flatMap(body -> Mono.error(gatewayError(clientResponse.statusCode(),
+                                                extractErrorDescription(body)))))
+                        .bodyToMono(RazorpayPayoutResponse.class)));
+    }
 
-        String fundAccUrl = "https://api.razorpay.com/v1/fund_accounts";
-        System.out.println("Razorpay Fund Account URL: " + fundAccUrl);
+    /**
+     * Returns the stored fund account for these bank details, or creates the
+     * contact and fund account and stores them for the next payout.
+     */
+    private Mono<String> resolveFundAccountId(Long userId, String bankFingerprint,
+            RazorpayContactRequest contactReq, RazorpayFundAccountRequest.BankAccount bankAccount,
+            String authHeader) {
+        RazorpayBeneficiaryCache.FundAccountIds cached = beneficiaryCache.getIfCached(userId, bankFingerprint);
+        if (cached != null) {
+            return Mono.just(cached.fundAccountId());
+        }
 
-        String fundAccRes = webClient.post()
-                .uri(fundAccUrl)
+        Mono<RazorpayBeneficiaryCache.FundAccountIds> created = gatewayGuard.protect(
+                GatewayOperation.RAZORPAY_PAYOUT, webClient.post()
+                .uri("/v1/contacts")
                 .header("Authorization", authHeader)
-                .header("Content-Type", "application/json")
-                .bodyValue(fundAccReq.toString())
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(contactReq)
                 .retrieve()
                 .onStatus(status -> status.is4xxClientError() || status.is5xxServerError(), clientResponse -> {
                     return clientResponse.bodyToMono(String.class).flatMap(body -> {
-                        return reactor.core.publisher.Mono
-                                .error(new RuntimeException("Razorpay Fund Account API Error: " + body));
+                        return Mono.error(gatewayError(clientResponse.statusCode(),
+                                "Razorpay Contact API Error: " + body));
                     });
                 })
-                .bodyToMono(String.class)
-                .block();
+                .bodyToMono(RazorpayEntityRef.class)
+                .map(RazorpayEntityRef::id)
+                .flatMap(contactId -> webClient.post()
+                        .uri("/v1/fund_accounts")
+                        .header("Authorization", authHeader)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(new RazorpayFundAccountRequest(contactId, "bank_account", bankAccount))
+                        .retrieve()
+                        .onStatus(status -> status.is4xxClientError() || status.is5xxServerError(),
+                                clientResponse -> clientResponse.bodyToMono(String.class).flatMap(body -> {
+                                    return Mono.error(gatewayError(clientResponse.statusCode(),
+                                            "Razorpay Fund Account API Error: " + body));
+                                }))
+                        .bodyToMono(RazorpayEntityRef.class)
+                        .map(fundAccount -> new RazorpayBeneficiaryCache.FundAccountIds(contactId,
+                                fundAccount.id()))))
+                .publishOn(Schedulers.boundedElastic())
+                .doOnNext(ids -> beneficiaryCache.save(userId, bankFingerprint, ids));
 
-        JSONObject fundAccJson = new JSONObject(fundAccRes);
-        String fundAccountId = fundAccJson.getString("id");
+        // Cache miss: check the table before going to Razorpay
+        return Mono.fromCallable(() -> Optional.ofNullable(beneficiaryCache.load(userId, bankFingerprint)))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(stored -> stored.map(Mono::just).orElse(created))
+                .map(RazorpayBeneficiaryCache.FundAccountIds::fundAccountId);
+    }
 
-        // 3. Trigger Payout
-        JSONObject payoutReq = new JSONObject();
-        payoutReq.put("account_number", accountNumber);
-        payoutReq.put("fund_account_id", fundAccountId);
-        payoutReq.put("amount", payout.getAmount().multiply(new BigDecimal("100")).intValue());
-        payoutReq.put("currency", "INR");
-        payoutReq.put("mode", "IMPS");
-        payoutReq.put("purpose", payout.getPurpose());
-        payoutReq.put("queue_if_low_balance", true);
-        payoutReq.put("reference_id", payout.getPayoutRef());
-        payoutReq.put("narration", "Manual Payout");
-
-        String payoutUrl = "https://api.razorpay.com/v1/payouts";
-        System.out.println("Razorpay URL: " + payoutUrl);
-
-        String payoutRes = webClient.post()
-                .uri(payoutUrl)
-                .header("Authorization", authHeader)
-                .header("Content-Type", "application/json")
-                .header("X-Payout-Idempotency", payout.getPayoutRef())
-                .bodyValue(payoutReq.toString())
+    public RazorpayOrder createOrder(BigDecimal amount, String receipt) {
+        return createOrderAsync(amount, receipt).block();
+    }
+
+    /**
+     * Creates the order over WebClient rather than the SDK client, so it shares
+     * the gateway's connection pool, timeouts and circuit breaker.
+     */
+    public Mono<RazorpayOrder> createOrderAsync(BigDecimal amount, String receipt) {
+        RazorpayOrderRequest orderRequest = new RazorpayOrderRequest(
+                amount.multiply(new BigDecimal("100")).longValue(), "INR", receipt, 1);
+
+        return gatewayGuard.protect(GatewayOperation.RAZORPAY_ORDER, webClient.post()
+                .uri("/v1/orders")
+                .header("Authorization", basicAuthHeader())
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(orderRequest)
                 .retrieve()
                 .onStatus(status -> status.is4xxClientError() || status.is5xxServerError(), clientResponse -> {
-                    return clientResponse.bodyToMono(String.class).flatMap(body -> {
-                        String errorMessage = "Razorpay API Error";
-                        try {
-                            JSONObject errorJson = new JSONObject(body);
-                            if (errorJson.has("error")) {
-                                JSONObject innerError = errorJson.getJSONObject("error");
-                                errorMessage = innerError.optString("description", errorMessage);
-                            }
-                        } catch (Exception e) {
-                            // fallback to body if parsing fails
-                        }
-                        return reactor.core.publisher.Mono.error(new RuntimeException(errorMessage));
-                    });
+                    return clientResponse.bodyToMono(String.class)
+                            .flatMap(body -> Mono.error(gatewayError(clientResponse.statusCode(),
+                                    extractErrorDescription(body))));
                 })
-                .bodyToMono(String.class)
-                .block();
-
-        return new JSONObject(payoutRes);
+                .bodyToMono(RazorpayOrder.class));
     }
 
-    public Order createOrder(BigDecimal amount, String receipt) throws RazorpayException {
-        JSONObject orderRequest = new JSONObject();
-
-        orderRequest.put("amount", amount.multiply(new BigDecimal("100")).intValue());
-        orderRequest.put("currency", "INR");
-        orderRequest.put("receipt", receipt);
-        orderRequest.put("payment_capture", 1);
-
-        return razorpayClient.orders.create(orderRequest);
+    public RazorpayBalanceResponse fetchBalance() {
+        return fetchBalanceAsync().block();
     }
 
-    public JSONObject fetchBalance() {
-        String auth = java.util.Base64.getEncoder().encodeToString((apiKey + ":" + apiSecret).getBytes());
-
-        String response = webClient.get()
+    public Mono<RazorpayBalanceResponse> fetchBalanceAsync() {
+        return gatewayGuard.protect(GatewayOperation.RAZORPAY_QUERY, webClient.get()
                 .uri("/v1/payouts/accounts/" + accountNumber + "/balance")
-                .header("Authorization", "Basic " + auth)
+                .header("Authorization", basicAuthHeader())
                 .retrieve()
                 .onStatus(status -> status.is4xxClientError() || status.is5xxServerError(), clientResponse -> {
                     return clientResponse.bodyToMono(String.class).flatMap(body -> {
-                        return reactor.core.publisher.Mono
-                                .error(new RuntimeException("Razorpay Balance API Error: " + body));
+                        return Mono.error(gatewayError(clientResponse.statusCode(),
+                                "Razorpay Balance API Error: " + body));
                     });
                 })
-                .bodyToMono(String.class)
-                .block();
+                .bodyToMono(RazorpayBalanceResponse.class));
+    }
 
-        return new JSONObject(response);
+    /**
+     * Current state of a payout, by Razorpay payout id.
+     */
+    public Mono<RazorpayPayoutResponse> fetchPayoutAsync(String payoutId) {
+        return gatewayGuard.protect(GatewayOperation.RAZORPAY_QUERY, webClient.get()
+                .uri("/v1/payouts/{id}", payoutId)
+                .header("Authorization", basicAuthHeader())
+                .retrieve()
+                .onStatus(status -> status.is4xxClientError() || status.is5xxServerError(), clientResponse -> {
+                    return clientResponse.bodyToMono(String.class)
+                            .flatMap(body -> Mono.error(gatewayError(clientResponse.statusCode(),
+                                    extractErrorDescription(body))));
+                })
+                .bodyToMono(RazorpayPayoutResponse.class));
+    }
+
+    private String basicAuthHeader() {
+        return "Basic " + java.util.Base64.getEncoder().encodeToString((apiKey + ":" + apiSecret).getBytes());
+    }
+
+    private static RuntimeException gatewayError(HttpStatusCode status, String message) {
+        return status.is4xxClientError()
+                ? new GatewayClientException(status.value(), message)
+                : new RuntimeException(message);
+    }
+
+    private String extractErrorDescription(String body) {
+        String errorMessage = "Razorpay API Error";
+        try {
+            RazorpayErrorResponse errorJson = jsonMapper.readValue(body, RazorpayErrorResponse.class);
+            if (errorJson.error() != null && errorJson.error().description() != null) {
+                errorMessage = errorJson.error().description();
+            }
+        } catch (Exception e) {
+            // fallback to default message if parsing fails
+        }
+        return errorMessage;
     }
 
     public boolean verifyWebhookSignature(String payload, String signature, String webhookSecret) {
@@ -0,0 +1,78 @@
+package in.ajildev.saas_subscription_billing.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Snowflake-style generator for external references (order receipts, trade
+ * numbers, payout refs).
+ * <p>
+ * An id is 41 bits of milliseconds since 2025-01-01, 10 bits of node id and
+ * 12 bits of sequence. The timestamp and sequence share one {@link AtomicLong}
+ * updated by CAS, so no thread ever blocks. When a millisecond's 4096
+ * sequence numbers run out, the sequence carries into the timestamp, so the
+ * generator borrows the next millisecond instead of spinning. If the clock
+ * steps back, it keeps counting from the last timestamp it issued. Ids from
+ * one node therefore always increase, and ids from different nodes never
+ * collide as long as each instance is given its own {@code reference.nodeId};
+ * there is no default, so an instance without one fails to start.
+ * <p>
+ * References are the id in Crockford base32, fixed at 13 characters, so they
+ * sort in creation order and new rows land at the right-hand end of the
+ * unique index.
+ */
+@Component
+public class ReferenceGenerator {
+
+    static final long EPOCH_MILLIS = Instant.parse("2025-01-01T00:00:00Z").toEpochMilli();
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final char[] CROCKFORD = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int ENCODED_LENGTH = 13;
+
+    private final long nodeId;
+    // (millis since EPOCH_MILLIS << SEQUENCE_BITS) | sequence of the last id issued
+    private final AtomicLong last = new AtomicLong();
+
+    public ReferenceGenerator(@Value("${reference.nodeId}") long nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("reference.nodeId must be between 0 and " + MAX_NODE_ID);
+        }
+        this.nodeId = nodeId;
+    }
+
+    /**
+     * @return {@code prefix} followed by a new id in base32
+     */
+    public String next(String prefix) {
+        return prefix + encode(nextId());
+    }
+
+    public long nextId() {
+        long now = System.currentTimeMillis() - EPOCH_MILLIS;
+        long previous;
+        long next;
+        do {
+            previous = last.get();
+            next = Math.max(now << SEQUENCE_BITS, previous + 1);
+        } while (!last.compareAndSet(previous, next));
+
+        long timestamp = next >>> SEQUENCE_BITS;
+        return (timestamp << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | (next & SEQUENCE_MASK);
+    }
+
+    static String encode(long id) {
+        char[] chars = new char[ENCODED_LENGTH];
+        for (int i = ENCODED_LENGTH - 1; i >= 0; i--) {
+            chars[i] = CROCKFORD[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(chars);
+    }
+}
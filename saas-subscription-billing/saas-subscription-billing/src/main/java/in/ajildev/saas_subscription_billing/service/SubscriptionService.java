@@ -1,8 +1,8 @@
 package in.ajildev.saas_subscription_billing.service;
 
-import com.razorpay.Order;
-import com.razorpay.RazorpayException;
 import com.razorpay.Utils;
+import in.ajildev.saas_subscription_billing.dto.paynpro.PaynproOrderResponse;
+import in.ajildev.saas_subscription_billing.dto.razorpay.RazorpayOrder;
 import in.ajildev.saas_subscription_billing.entity.Payment;
 import in.ajildev.saas_subscription_billing.entity.Plan;
 import in.ajildev.saas_subscription_billing.entity.Subscription;
@@ -18,6 +18,9 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
@@ -34,6 +37,8 @@ public class SubscriptionService {
     private final PlanRepository planRepository;
     private final UserRepository userRepository;
     private final PayoutService payoutService;
+    private final TransactionTemplate transactionTemplate;
+    private final ReferenceGenerator referenceGenerator;
 
     @Value("${razorpay.api.key}")
     private String razorpayKey;
@@ -42,50 +47,114 @@ public class SubscriptionService {
     private String razorpaySecret;
 
     @Transactional
-    public Map<String, Object> initiateSubscription(Long planId, String email, String gateway)
-            throws RazorpayException {
-        User user = userRepository.findByEmail(email)
+    public Map<String, Object> initiateSubscription(Long planId, Long userId, String gateway) {
+        User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found"));
         Plan plan = planRepository.findById(planId)
                 .orElseThrow(() -> new RuntimeException("Plan not found"));
 
         PaymentGateway selectedGateway = PaymentGateway.valueOf(gateway.toUpperCase());
-        Map<String, Object> response = new HashMap<>();
-        String txnId = "";
+        Checkout checkout;
 
         if (selectedGateway == PaymentGateway.RAZORPAY) {
             // 1. Create Razorpay Order
-            String receiptId = "txn_" + System.currentTimeMillis();
-            Order razorpayOrder = razorpayService.createOrder(plan.getPrice(), receiptId);
-            txnId = razorpayOrder.get("id");
-
-            response.put("orderId", txnId);
-            response.put("amount", razorpayOrder.get("amount"));
-            response.put("currency", "INR");
-            response.put("key", razorpayKey);
-            response.put("name", "SaaS Subcription");
-            response.put("description", "Subscription for " + plan.getName());
-        } else if (selectedGateway == PaymentGateway.PAYNPRO) {
+            String receiptId = referenceGenerator.next("txn_");
+            RazorpayOrder razorpayOrder = razorpayService.createOrder(plan.getPrice(), receiptId);
+            checkout = razorpayCheckout(razorpayOrder, plan);
+        } else {
             // 1. Create Paynpro Order
-            String tradeNo = "PNP_" + System.currentTimeMillis();
-            org.json.JSONObject paynproOrder = paynProService.createOrder(
+            String tradeNo = referenceGenerator.next("PNP_");
+            PaynproOrderResponse paynproOrder = paynProService.createOrder(
                     plan.getPrice().doubleValue(),
                     tradeNo,
                     user.getName(),
                     user.getEmail(),
                     "0000000000" // Placeholder for missing mobile
             );
+            checkout = paynproCheckout(paynproOrder, tradeNo);
+        }
 
-            // Based on expected Paynpro response structure
-            if (paynproOrder.has("data") && paynproOrder.getJSONObject("data").has("payUrl")) {
-                txnId = tradeNo;
-                response.put("payUrl", paynproOrder.getJSONObject("data").getString("payUrl"));
-                response.put("tradeNo", tradeNo);
-            } else {
-                throw new RuntimeException("Paynpro initiation failed: " + paynproOrder.toString());
-            }
+        createPendingSubscription(user, plan, selectedGateway, checkout.txnId());
+        return checkout.response();
+    }
+
+    /**
+     * Non-blocking variant of {@link #initiateSubscription}. Lookups and inserts run
+     * on bounded-elastic threads; the request thread is free while the gateway
+     * order is being created.
+     */
+    public Mono<Map<String, Object>> initiateSubscriptionAsync(Long planId, Long userId, String gateway) {
+        PaymentGateway selectedGateway = PaymentGateway.valueOf(gateway.toUpperCase());
+
+        return Mono.fromCallable(() -> {
+                    User user = userRepository.findById(userId)
+                            .orElseThrow(() -> new RuntimeException("User not found"));
+                    Plan plan = planRepository.findById(planId)
+                            .orElseThrow(() -> new RuntimeException("Plan not found"));
+                    return Map.entry(user, plan);
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(ctx -> {
+                    User user = ctx.getKey();
+                    Plan plan = ctx.getValue();
+
+                    Mono<Checkout> checkout;
+                    if (selectedGateway == PaymentGateway.RAZORPAY) {
+                        String receiptId = referenceGenerator.next("txn_");
+                        checkout = razorpayService.createOrderAsync(plan.getPrice(), receiptId)
+                                .map(order -> razorpayCheckout(order, plan));
+                    } else {
+                        String tradeNo = referenceGenerator.next("PNP_");
+                        checkout = paynProService.createOrderAsync(
+                                plan.getPrice().doubleValue(),
+                                tradeNo,
+                                user.getName(),
+                                user.getEmail(),
+                                "0000000000" // Placeholder for missing mobile
+                        ).map(order -> paynproCheckout(order, tradeNo));
+                    }
+
+                    return checkout
+                            .publishOn(Schedulers.boundedElastic())
+                            .map(result -> {
+                                transactionTemplate.executeWithoutResult(tx -> createPendingSubscription(
+                                        user, plan, selectedGateway, result.txnId()));
+                                return result.response();
+                            });
+                });
+    }
+
+    /**
+     * Gateway transaction id to record on the payment, plus the checkout payload for the client.
+     */
+    private record Checkout(String txnId, Map<String, Object> response) {
+    }
+
+    private Checkout razorpayCheckout(RazorpayOrder razorpayOrder, Plan plan) {
+        Map<String, Object> response = new HashMap<>();
+        String txnId = razorpayOrder.id();
+
+        response.put("orderId", txnId);
+        response.put("amount", razorpayOrder.amount());
+        response.put("currency", "INR");
+        response.put("key", razorpayKey);
+        response.put("name", "SaaS Subcription");
+        response.put("description", "Subscription for " + plan.getName());
+        return new Checkout(txnId, response);
+    }
+
+    private Checkout paynproCheckout(PaynproOrderResponse paynproOrder, String tradeNo) {
+        // Based on expected Paynpro response structure
+        if (paynproOrder.payUrl() != null) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("payUrl", paynproOrder.payUrl());
+            response.put("tradeNo", tradeNo);
+            return new Checkout(tradeNo, response);
         }
+        throw new RuntimeException("Paynpro initiation failed: " + paynproOrder);
+    }
 
+    private void createPendingSubscription(User user, Plan plan, PaymentGateway gateway, String txnId) {
         // 2. Create Pending Subscription
         Subscription subscription = Subscription.builder()
                 .user(user)
@@ -98,14 +167,12 @@ public class SubscriptionService {
         Payment payment = Payment.builder()
                 .user(user)
                 .subscription(subscription)
-                .gateway(selectedGateway)
+                .gateway(gateway)
                 .txnId(txnId)
                 .amount(plan.getPrice())
                 .status(PaymentStatus.PENDING)
                 .build();
         paymentRepository.save(payment);
-
-        return response;
     }
 
     @Transactional
@@ -113,10 +180,7 @@ public class SubscriptionService {
         // 1. Verify Signature
         try {
             String secret = razorpaySecret;
-            boolean isValid = Utils.verifyPaymentSignature(new org.json.JSONObject()
-                    .put("razorpay_order_id", orderId)
-                    .put("razorpay_payment_id", paymentId)
-                    .put("razorpay_signature", signature), secret);
+            boolean isValid = Utils.verifySignature(orderId + "|" + paymentId, signature, secret);
 
             if (!isValid) {
                 throw new RuntimeException("Invalid payment signature");
@@ -126,30 +190,41 @@ public class SubscriptionService {
         }
 
         // 2. Update status
-        Payment payment = paymentRepository.findByTxnId(orderId)
-                .orElseThrow(() -> new RuntimeException("Payment record not found"));
-
-        if (payment.getStatus() == PaymentStatus.PENDING) {
-            payment.setStatus(PaymentStatus.SUCCESS);
-            paymentRepository.save(payment);
+        activatePaidSubscription(orderId);
+    }
 
-            Subscription subscription = payment.getSubscription();
-            subscription.setStatus(SubscriptionStatus.ACTIVE);
-            subscription.setStartDate(LocalDateTime.now());
-            subscription.setEndDate(LocalDateTime.now().plusDays(30)); // Default 30 days
-            subscriptionRepository.save(subscription);
+    /**
+     * Marks the payment with this gateway transaction id paid, activates its
+     * subscription and queues the payout, all in one transaction, so a
+     * failure part way leaves the payment pending for the gateway's retry.
+     *
+     * @return false if the payment was not pending any more
+     */
+    @Transactional
+    public boolean activatePaidSubscription(String txnId) {
+        Payment payment = paymentRepository.findByTxnId(txnId)
+                .orElseThrow(() -> new RuntimeException("Payment record not found for transaction: " + txnId));
 
-            // 3. Trigger Payout
-            payoutService.processPayoutForSubscription(subscription);
+        if (payment.getStatus() != PaymentStatus.PENDING) {
+            return false;
         }
-    }
+        payment.setStatus(PaymentStatus.SUCCESS);
+        paymentRepository.save(payment);
 
-    public Subscription getCurrentSubscription(String email) {
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found"));
+        Subscription subscription = payment.getSubscription();
+        subscription.setStatus(SubscriptionStatus.ACTIVE);
+        subscription.setStartDate(LocalDateTime.now());
+        subscription.setEndDate(LocalDateTime.now().plusDays(30)); // Default 30 days
+        subscriptionRepository.save(subscription);
+
+        // 3. Queue Payout; sent by the outbox dispatcher after commit
+        payoutService.processPayoutForSubscription(subscription);
+        return true;
+    }
 
+    public Subscription getCurrentSubscription(Long userId) {
         // Find the latest active subscription
-        return subscriptionRepository.findByUserAndStatus(user, SubscriptionStatus.ACTIVE)
+        return subscriptionRepository.findByUserIdAndStatus(userId, SubscriptionStatus.ACTIVE)
                 .stream()
                 .findFirst()
                 .orElse(null);
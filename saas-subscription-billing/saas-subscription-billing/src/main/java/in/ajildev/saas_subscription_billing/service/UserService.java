@@ -0,0 +1,43 @@
+package in.ajildev.saas_subscription_billing.service;
+
+import in.ajildev.saas_subscription_billing.entity.User;
+import in.ajildev.saas_subscription_billing.repository.UserRepository;
+import in.ajildev.saas_subscription_billing.security.TokenVersionService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Locale;
+import java.util.Set;
+
+@Service
+@RequiredArgsConstructor
+public class UserService {
+
+    private static final Set<String> ROLES = Set.of("USER", "ADMIN");
+
+    private final UserRepository userRepository;
+    private final TokenVersionService tokenVersionService;
+
+    /**
+     * Changes a user's role and revokes their outstanding access tokens,
+     * since the old role is baked into those tokens.
+     *
+     * @throws IllegalArgumentException if {@code role} is not USER or ADMIN
+     */
+    @Transactional
+    public User updateRole(Long userId, String role) {
+        String normalized = role != null ? role.trim().toUpperCase(Locale.ROOT) : null;
+        if (normalized == null || !ROLES.contains(normalized)) {
+            throw new IllegalArgumentException("Role must be USER or ADMIN");
+        }
+
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+
+        user.setRole(normalized);
+        user = userRepository.save(user);
+        tokenVersionService.revokeTokens(userId);
+        return user;
+    }
+}
@@ -0,0 +1,74 @@
+package in.ajildev.saas_subscription_billing.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * CSV field splitting and escaping shared by uploads and exports.
+ */
+public final class CsvUtil {
+
+    private static final Pattern NUMBER = Pattern.compile("[+-]?\\d+(\\.\\d+)?");
+
+    private CsvUtil() {
+    }
+
+    /**
+     * Splits one CSV record. Fields may be double-quoted, with {@code ""} for a
+     * literal quote; quoted line breaks are not supported.
+     */
+    public static List<String> split(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * Quotes a field if it contains a comma, quote or line break; null becomes an empty field.
+     * A field a spreadsheet would run as a formula (leading {@code = + - @}, tab or carriage return)
+     * is prefixed with {@code '} so it opens as text; plain numbers such as {@code -10.50} are kept.
+     */
+    public static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (isFormula(value)) {
+            return "\"'" + value.replace("\"", "\"\"") + '"';
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+                && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static boolean isFormula(String value) {
+        if (value.isEmpty() || "=+-@\t\r".indexOf(value.charAt(0)) < 0) {
+            return false;
+        }
+        return !NUMBER.matcher(value).matches();
+    }
+}
@@ -0,0 +1,13 @@
+-- Time a payout was last handed to its gateway, used by PayoutReconciler to pick the PaynPro report day.
+-- Rows sent before this column existed are read with created_at in its place.
+-- Flyway runs before Hibernate: on a new database there is no payouts table yet and Hibernate creates the column,
+-- so the ALTER only runs on an existing table that lacks it.
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.tables
+               WHERE table_schema = DATABASE() AND table_name = 'payouts') = 1
+              AND (SELECT COUNT(*) FROM information_schema.columns
+                   WHERE table_schema = DATABASE() AND table_name = 'payouts' AND column_name = 'sent_at') = 0,
+              'ALTER TABLE payouts ADD COLUMN sent_at DATETIME(6) NULL',
+              'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
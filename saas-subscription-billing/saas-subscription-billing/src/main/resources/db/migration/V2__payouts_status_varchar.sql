@@ -0,0 +1,10 @@
+-- payouts.status was created by Hibernate as a MySQL ENUM without AWAITING_BANK_DETAILS; inserting a parked
+-- payout fails with "Data truncated for column 'status'" until this has run. VARCHAR(32) matches the entity mapping.
+-- Skipped on a new database, where Hibernate creates the table afterwards with the VARCHAR column.
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.tables
+               WHERE table_schema = DATABASE() AND table_name = 'payouts') = 1,
+              'ALTER TABLE payouts MODIFY COLUMN status VARCHAR(32) NOT NULL',
+              'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
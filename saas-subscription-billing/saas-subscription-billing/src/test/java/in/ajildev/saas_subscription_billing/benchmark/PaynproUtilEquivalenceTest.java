@@ -0,0 +1,164 @@
+package in.ajildev.saas_subscription_billing.benchmark;
+
+import in.ajildev.saas_subscription_billing.security.PaynproUtil;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Checks that {@link PaynproUtil} produces exactly what {@link LegacyPaynproUtil}
+ * did. The legacy code encoded with the platform charset, so inputs beyond
+ * ASCII are compared with an explicit UTF-8 reference instead.
+ */
+class PaynproUtilEquivalenceTest {
+
+    private static final String SECRET = "sk_test_5f1d2c3b4a596877";
+    private static final String KEY_16 = "0123456789abcdef";
+    private static final String KEY_32 = "0123456789abcdef0123456789abcdef";
+    private static final String SALT = "fedcba9876543210";
+
+    // The per-thread encode buffer is 512 bytes; these straddle it
+    private static final String AT_BUFFER = "a".repeat(512);
+    private static final String PAST_BUFFER = "b".repeat(513);
+    private static final String LONG = "c".repeat(5_000);
+
+    @Test
+    void signatureMatchesLegacyOnEdgeCases() {
+        String[][] cases = {
+                {},
+                { "" },
+                { "", "", "" },
+                { null },
+                { "a", null, "b" },
+                { AT_BUFFER },
+                { PAST_BUFFER },
+                { AT_BUFFER, PAST_BUFFER, LONG },
+                { "Ravi Kumar", "ravi@example.com", "9876543210", "1499.00", "POUT_1", "IMPS" },
+        };
+        for (String[] params : cases) {
+            assertThat(PaynproUtil.generateSignature(SECRET, params))
+                    .as("params %s", (Object) params)
+                    .isEqualTo(LegacyPaynproUtil.generateSignature(SECRET, params));
+        }
+    }
+
+    @Test
+    void signatureFollowsSecretChanges() {
+        String first = PaynproUtil.generateSignature("secret-one", "x");
+        String second = PaynproUtil.generateSignature("secret-two", "x");
+        String again = PaynproUtil.generateSignature("secret-one", "x");
+
+        assertThat(first).isEqualTo(LegacyPaynproUtil.generateSignature("secret-one", "x"));
+        assertThat(second).isEqualTo(LegacyPaynproUtil.generateSignature("secret-two", "x"));
+        assertThat(again).isEqualTo(first);
+    }
+
+    @Test
+    void signatureEncodesNonAsciiAsUtf8() throws Exception {
+        String[][] cases = {
+                { "Rāvi Kümar", "₹1499" },
+                // A surrogate pair right at the 512-byte chunk boundary
+                { "a".repeat(510) + "😀" + "z" },
+                { "é".repeat(300) },
+                // A lone surrogate is replaced, as String.getBytes does
+                { "x\uD800y" },
+        };
+        for (String[] params : cases) {
+            assertThat(PaynproUtil.generateSignature(SECRET, params))
+                    .isEqualTo(hmacUtf8(SECRET, String.join("", params)));
+        }
+    }
+
+    @Test
+    void md5SignatureMatchesLegacyOnEdgeCases() {
+        Map<String, Object> mixed = new LinkedHashMap<>();
+        mixed.put("orderNo", "PNP_1");
+        mixed.put("amount", new BigDecimal("1499.00"));
+        mixed.put("count", 3);
+        mixed.put("sign", "must-be-skipped");
+        mixed.put("empty", "");
+        mixed.put("missing", null);
+        // Keys differing only in case sort by code point, upper case first
+        mixed.put("Amount", "X");
+        mixed.put("a", "lower");
+        mixed.put("long", LONG);
+
+        Map<String, Object> onlySign = new HashMap<>();
+        onlySign.put("sign", "abc");
+
+        for (Map<String, Object> params : new Map[] { Map.of(), onlySign, mixed }) {
+            assertThat(PaynproUtil.generateMD5Signature(SECRET, params))
+                    .isEqualTo(LegacyPaynproUtil.generateMD5Signature(SECRET, params));
+        }
+        assertThat(PaynproUtil.generateMD5Signature("", Map.of()))
+                .isEqualTo(LegacyPaynproUtil.generateMD5Signature("", Map.of()));
+    }
+
+    @Test
+    void md5SignatureEncodesNonAsciiAsUtf8() throws Exception {
+        Map<String, Object> params = Map.of("name", "Rāvi", "city", "Kochi");
+        String expected = HexFormat.of().formatHex(MessageDigest.getInstance("MD5")
+                .digest(("Kochi" + "Rāvi" + SECRET).getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(PaynproUtil.generateMD5Signature(SECRET, params)).isEqualTo(expected);
+    }
+
+    @Test
+    void aesMatchesLegacyAroundBlockBoundaries() {
+        for (int length : new int[] { 0, 1, 15, 16, 17, 32, 1_000 }) {
+            String plainText = "p".repeat(length);
+            for (String key : new String[] { KEY_16, KEY_32 }) {
+                assertThat(PaynproUtil.encryptAES(plainText, key, SALT))
+                        .as("length %d, key length %d", length, key.length())
+                        .isEqualTo(LegacyPaynproUtil.encryptAES(plainText, key, SALT));
+            }
+        }
+    }
+
+    @Test
+    void aesFollowsKeyAndSaltChanges() {
+        String otherSalt = "0000000000000000";
+
+        assertThat(PaynproUtil.encryptAES("payload", KEY_16, SALT))
+                .isEqualTo(LegacyPaynproUtil.encryptAES("payload", KEY_16, SALT));
+        assertThat(PaynproUtil.encryptAES("payload", KEY_16, otherSalt))
+                .isEqualTo(LegacyPaynproUtil.encryptAES("payload", KEY_16, otherSalt));
+        assertThat(PaynproUtil.encryptAES("payload", KEY_32, otherSalt))
+                .isEqualTo(LegacyPaynproUtil.encryptAES("payload", KEY_32, otherSalt));
+    }
+
+    @Test
+    void failuresMatchAndLeaveTheThreadUsable() {
+        assertThatThrownBy(() -> PaynproUtil.encryptAES("payload", "short", SALT))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessage("Error encrypting AES");
+        assertThatThrownBy(() -> LegacyPaynproUtil.encryptAES("payload", "short", SALT))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessage("Error encrypting AES");
+        assertThatThrownBy(() -> PaynproUtil.generateSignature("", "x"))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessage("Error generating signature");
+
+        assertThat(PaynproUtil.encryptAES("payload", KEY_16, SALT))
+                .isEqualTo(LegacyPaynproUtil.encryptAES("payload", KEY_16, SALT));
+        assertThat(PaynproUtil.generateSignature(SECRET, "x"))
+                .isEqualTo(LegacyPaynproUtil.generateSignature(SECRET, "x"));
+    }
+
+    private static String hmacUtf8(String secret, String message) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        return HexFormat.of().formatHex(mac.doFinal(message.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,24 @@
+package in.ajildev.saas_subscription_billing.fakegateway;
+
+import lombok.Builder;
+
+import java.time.Duration;
+
+/**
+ * How a fake endpoint responds. Rates are probabilities between 0 and 1;
+ * {@code webhookDelay} is how long after the response the callback is sent.
+ */
+@Builder(toBuilder = true)
+public record EndpointBehavior(
+        LatencyDistribution latency,
+        double serverErrorRate,
+        double clientErrorRate,
+        Duration webhookDelay) {
+
+    public static EndpointBehavior healthy() {
+        return EndpointBehavior.builder()
+                .latency(LatencyDistribution.none())
+                .webhookDelay(Duration.ofMillis(100))
+                .build();
+    }
+}
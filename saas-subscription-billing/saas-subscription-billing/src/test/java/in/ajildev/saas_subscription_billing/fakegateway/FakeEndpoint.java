@@ -0,0 +1,18 @@
+package in.ajildev.saas_subscription_billing.fakegateway;
+
+/**
+ * Every gateway endpoint the application calls.
+ */
+public enum FakeEndpoint {
+    RAZORPAY_ORDERS,
+    RAZORPAY_CONTACTS,
+    RAZORPAY_FUND_ACCOUNTS,
+    RAZORPAY_PAYOUTS,
+    RAZORPAY_BALANCE,
+    PAYNPRO_BALANCE,
+    PAYNPRO_TRANSFER,
+    PAYNPRO_STATUS,
+    PAYNPRO_TXN_REPORT,
+    PAYNPRO_STATEMENT,
+    PAYNPRO_PAYIN
+}
@@ -0,0 +1,577 @@
+package in.ajildev.saas_subscription_billing.fakegateway;
+
+import in.ajildev.saas_subscription_billing.security.PaynproUtil;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Mono;
+import reactor.netty.ByteBufFlux;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.databind.node.ArrayNode;
+import tools.jackson.databind.node.ObjectNode;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process stand-in for the Razorpay and PaynPro endpoints the application
+ * calls. All of them are served from one port, so {@code razorpay.base.url},
+ * {@code paynpro.base.url} and {@code paynpro.payout.url} can all point at
+ * {@link #baseUrl()}.
+ * <p>
+ * Each endpoint has an {@link EndpointBehavior} with a latency distribution and
+ * error rates that can be changed while the server runs. Accepted payouts and
+ * orders are followed by the gateway's webhook, posted to
+ * {@code webhookBaseUrl} and signed like the real one where applicable.
+ * <p>
+ * For load tests against a running application, start it standalone with
+ * {@link #main(String[])}.
+ */
+@Slf4j
+public class FakeGatewayServer implements AutoCloseable {
+
+    private static final JsonMapper JSON = JsonMapper.builder().build();
+
+    private final int port;
+    private final String webhookBaseUrl;
+    private final String razorpayWebhookSecret;
+    private final String paynproEncryptionKey;
+    private final String paynproSaltKey;
+    private final long razorpayBalancePaise;
+    private final String paynproBalance;
+    private final int syntheticReportRows;
+
+    private final Map<FakeEndpoint, EndpointBehavior> behaviors = new ConcurrentHashMap<>();
+    private final Map<FakeEndpoint, AtomicLong> requestCounts = new EnumMap<>(FakeEndpoint.class);
+    private final AtomicLong webhooksDelivered = new AtomicLong();
+    private final AtomicLong webhooksFailed = new AtomicLong();
+
+    // reference_id / payout_ref -> last response entity, for idempotency and status lookups
+    private final Map<String, ObjectNode> razorpayPayouts = new ConcurrentHashMap<>();
+    private final Map<String, ObjectNode> paynproTransfers = new ConcurrentHashMap<>();
+
+    private DisposableServer server;
+    private HttpClient webhookClient;
+
+    private FakeGatewayServer(Builder builder) {
+        this.port = builder.port;
+        this.webhookBaseUrl = builder.webhookBaseUrl;
+        this.razorpayWebhookSecret = builder.razorpayWebhookSecret;
+        this.paynproEncryptionKey = builder.paynproEncryptionKey;
+        this.paynproSaltKey = builder.paynproSaltKey;
+        this.razorpayBalancePaise = builder.razorpayBalancePaise;
+        this.paynproBalance = builder.paynproBalance;
+        this.syntheticReportRows = builder.syntheticReportRows;
+        for (FakeEndpoint endpoint : FakeEndpoint.values()) {
+            behaviors.put(endpoint, builder.behaviors.getOrDefault(endpoint, builder.defaultBehavior));
+            requestCounts.put(endpoint, new AtomicLong());
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public FakeGatewayServer start() {
+        if (webhookBaseUrl != null) {
+            webhookClient = HttpClient.create().baseUrl(webhookBaseUrl);
+        }
+        server = HttpServer.create()
+                .port(port)
+                .route(routes -> routes
+                        .post("/v1/orders", (req, res) -> handle(FakeEndpoint.RAZORPAY_ORDERS, req, res,
+                                this::razorpayOrder))
+                        .post("/v1/contacts", (req, res) -> handle(FakeEndpoint.RAZORPAY_CONTACTS, req, res,
+                                this::razorpayContact))
+                        .post("/v1/fund_accounts", (req, res) -> handle(FakeEndpoint.RAZORPAY_FUND_ACCOUNTS, req,
+                                res, this::razorpayFundAccount))
+                        .post("/v1/payouts", (req, res) -> handle(FakeEndpoint.RAZORPAY_PAYOUTS, req, res,
+                                this::razorpayPayout))
+                        .get("/v1/payouts/accounts/{account}/balance", (req, res) -> handle(
+                                FakeEndpoint.RAZORPAY_BALANCE, req, res, this::razorpayBalance))
+                        .post("/payout/v1/fetchBalance", (req, res) -> handle(FakeEndpoint.PAYNPRO_BALANCE, req,
+                                res, this::paynproBalance))
+                        .post("/payout/v1/transfer", (req, res) -> handle(FakeEndpoint.PAYNPRO_TRANSFER, req, res,
+                                this::paynproTransfer))
+                        .post("/payout/v1/getStatus", (req, res) -> handle(FakeEndpoint.PAYNPRO_STATUS, req, res,
+                                this::paynproStatus))
+                        .post("/payout/v1/getTxnReport", (req, res) -> handle(FakeEndpoint.PAYNPRO_TXN_REPORT, req,
+                                res, this::paynproReport))
+                        .post("/payout/v1/getStatement", (req, res) -> handle(FakeEndpoint.PAYNPRO_STATEMENT, req,
+                                res, this::paynproReport))
+                        .post("/payment/gateway/test/request", (req, res) -> handle(FakeEndpoint.PAYNPRO_PAYIN,
+                                req, res, this::paynproPayin)))
+                .bindNow();
+        log.info("Fake gateway listening on {}", baseUrl());
+        return this;
+    }
+
+    public String baseUrl() {
+        return "http://localhost:" + server.port();
+    }
+
+    public void setBehavior(FakeEndpoint endpoint, EndpointBehavior behavior) {
+        behaviors.put(endpoint, behavior);
+    }
+
+    public long getRequestCount(FakeEndpoint endpoint) {
+        return requestCounts.get(endpoint).get();
+    }
+
+    public long getWebhooksDelivered() {
+        return webhooksDelivered.get();
+    }
+
+    public long getWebhooksFailed() {
+        return webhooksFailed.get();
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.disposeNow();
+        }
+    }
+
+    // ─── Request Pipeline ───────────────────────────────────────────────────────
+
+    /**
+     * Result of an endpoint: HTTP status, JSON body and an optional webhook
+     * sent after the response.
+     */
+    private record Reply(int status, JsonNode body, Webhook webhook) {
+
+        static Reply ok(JsonNode body) {
+            return new Reply(200, body, null);
+        }
+    }
+
+    private record Webhook(String path, String body, String signature) {
+    }
+
+    @FunctionalInterface
+    private interface EndpointLogic {
+        Reply apply(HttpServerRequest request, String body);
+    }
+
+    private Publisher<Void> handle(FakeEndpoint endpoint, HttpServerRequest request, HttpServerResponse response,
+            EndpointLogic logic) {
+        requestCounts.get(endpoint).incrementAndGet();
+        EndpointBehavior behavior = behaviors.get(endpoint);
+
+        return request.receive().aggregate().asString(StandardCharsets.UTF_8)
+                .defaultIfEmpty("")
+                .delayUntil(body -> Mono.delay(behavior.latency().sample()))
+                .flatMap(body -> {
+                    double roll = ThreadLocalRandom.current().nextDouble();
+                    if (roll < behavior.serverErrorRate()) {
+                        return send(response, 503, error("SERVER_ERROR", "Fake gateway failure"));
+                    }
+                    if (roll < behavior.serverErrorRate() + behavior.clientErrorRate()) {
+                        return send(response, 400, error("BAD_REQUEST_ERROR", "Fake validation failure"));
+                    }
+
+                    Reply reply;
+                    try {
+                        reply = logic.apply(request, body);
+                    } catch (RuntimeException e) {
+                        return send(response, 400, error("BAD_REQUEST_ERROR", e.getMessage()));
+                    }
+                    if (reply.webhook() != null) {
+                        scheduleWebhook(reply.webhook(), behavior.webhookDelay());
+                    }
+                    return send(response, reply.status(), reply.body());
+                });
+    }
+
+    private Mono<Void> send(HttpServerResponse response, int status, JsonNode body) {
+        return response.status(HttpResponseStatus.valueOf(status))
+                .header(HttpHeaderNames.CONTENT_TYPE, "application/json")
+                .sendString(Mono.just(body.toString()))
+                .then();
+    }
+
+    private void scheduleWebhook(Webhook webhook, Duration delay) {
+        if (webhookClient == null) {
+            return;
+        }
+        Mono.delay(delay != null ? delay : Duration.ZERO)
+                .then(webhookClient
+                        .headers(headers -> {
+                            headers.set(HttpHeaderNames.CONTENT_TYPE, "application/json");
+                            if (webhook.signature() != null) {
+                                headers.set("X-Razorpay-Signature", webhook.signature());
+                            }
+                        })
+                        .post()
+                        .uri(webhook.path())
+                        .send(ByteBufFlux.fromString(Mono.just(webhook.body())))
+                        .responseSingle((res, content) -> Mono.just(res.status().code())))
+                .subscribe(status -> {
+                    if (status >= 200 && status < 300) {
+                        webhooksDelivered.incrementAndGet();
+                    } else {
+                        webhooksFailed.incrementAndGet();
+                        log.warn("Webhook {} answered {}", webhook.path(), status);
+                    }
+                }, e -> {
+                    webhooksFailed.incrementAndGet();
+                    log.warn("Webhook {} failed: {}", webhook.path(), e.getMessage());
+                });
+    }
+
+    // ─── Razorpay ───────────────────────────────────────────────────────────────
+
+    private Reply razorpayOrder(HttpServerRequest request, String body) {
+        JsonNode req = JSON.readTree(body);
+        long amount = req.path("amount").asLong();
+        ObjectNode order = JSON.createObjectNode()
+                .put("id", id("order_"))
+                .put("entity", "order")
+                .put("amount", amount)
+                .put("amount_paid", 0)
+                .put("amount_due", amount)
+                .put("currency", req.path("currency").asString("INR"))
+                .put("receipt", req.path("receipt").asString())
+                .put("status", "created")
+                .put("attempts", 0)
+                .put("created_at", Instant.now().getEpochSecond());
+
+        ObjectNode paidOrder = order.deepCopy().put("status", "paid").put("amount_paid", amount).put("amount_due", 0);
+        ObjectNode payment = JSON.createObjectNode()
+                .put("id", id("pay_"))
+                .put("entity", "payment")
+                .put("amount", amount)
+                .put("currency", order.path("currency").asString())
+                .put("status", "captured")
+                .put("order_id", order.path("id").asString());
+        ObjectNode payload = JSON.createObjectNode();
+        payload.putObject("order").set("entity", paidOrder);
+        payload.putObject("payment").set("entity", payment);
+        return new Reply(200, order, razorpayWebhook("order.paid", payload));
+    }
+
+    private Reply razorpayContact(HttpServerRequest request, String body) {
+        ObjectNode contact = ((ObjectNode) JSON.readTree(body))
+                .put("id", id("cont_"))
+                .put("entity", "contact")
+                .put("active", true)
+                .put("created_at", Instant.now().getEpochSecond());
+        return Reply.ok(contact);
+    }
+
+    private Reply razorpayFundAccount(HttpServerRequest request, String body) {
+        ObjectNode fundAccount = ((ObjectNode) JSON.readTree(body))
+                .put("id", id("fa_"))
+                .put("entity", "fund_account")
+                .put("active", true)
+                .put("created_at", Instant.now().getEpochSecond());
+        return Reply.ok(fundAccount);
+    }
+
+    private Reply razorpayPayout(HttpServerRequest request, String body) {
+        JsonNode req = JSON.readTree(body);
+        String referenceId = req.path("reference_id").asString();
+        String idempotencyKey = request.requestHeaders().get("X-Payout-Idempotency", referenceId);
+
+        ObjectNode existing = razorpayPayouts.get(idempotencyKey);
+        if (existing != null) {
+            return Reply.ok(existing);
+        }
+
+        ObjectNode payout = JSON.createObjectNode()
+                .put("id", id("pout_"))
+                .put("entity", "payout")
+                .put("fund_account_id", req.path("fund_account_id").asString())
+                .put("amount", req.path("amount").asLong())
+                .put("currency", req.path("currency").asString("INR"))
+                .put("fees", 590)
+                .put("tax", 90)
+                .put("status", "processing")
+                .put("purpose", req.path("purpose").asString())
+                .put("mode", req.path("mode").asString())
+                .put("reference_id", referenceId)
+                .put("narration", req.path("narration").asString())
+                .putNull("utr")
+                .put("created_at", Instant.now().getEpochSecond());
+        razorpayPayouts.put(idempotencyKey, payout);
+
+        ObjectNode processed = payout.deepCopy()
+                .put("status", "processed")
+                .put("utr", "FAKEUTR" + ThreadLocalRandom.current().nextLong(1_000_000_000L, 9_999_999_999L));
+        ObjectNode payload = JSON.createObjectNode();
+        payload.putObject("payout").set("entity", processed);
+        return new Reply(200, payout, razorpayWebhook("payout.processed", payload));
+    }
+
+    private Reply razorpayBalance(HttpServerRequest request, String body) {
+        return Reply.ok(JSON.createObjectNode()
+                .put("id", "bacc_fake")
+                .put("account_number", request.param("account"))
+                .put("balance", razorpayBalancePaise)
+                .put("currency", "INR"));
+    }
+
+    private Webhook razorpayWebhook(String event, ObjectNode payload) {
+        ObjectNode envelope = JSON.createObjectNode()
+                .put("entity", "event")
+                .put("account_id", "acc_fake")
+                .put("event", event)
+                .put("created_at", Instant.now().getEpochSecond());
+        envelope.putArray("contains").add(event.substring(0, event.indexOf('.')));
+        envelope.set("payload", payload);
+        String body = envelope.toString();
+        // Razorpay signs the raw body with HMAC-SHA256, hex encoded
+        String signature = razorpayWebhookSecret != null
+                ? PaynproUtil.generateSignature(razorpayWebhookSecret, body)
+                : null;
+        return new Webhook("/api/webhook/razorpay", body, signature);
+    }
+
+    // ─── PaynPro ────────────────────────────────────────────────────────────────
+
+    private Reply paynproBalance(HttpServerRequest request, String body) {
+        return Reply.ok(JSON.createObjectNode()
+                .put("statusCode", 200)
+                .put("message", "Balance fetched successfully")
+                .put("balance", paynproBalance));
+    }
+
+    private Reply paynproTransfer(HttpServerRequest request, String body) {
+        JsonNode req = JSON.readTree(body);
+        String payoutRef = req.path("payout_ref").asString();
+        if (payoutRef.isEmpty()) {
+            throw new IllegalArgumentException("payout_ref is required");
+        }
+
+        ObjectNode data = paynproTransfers.computeIfAbsent(payoutRef, ref -> JSON.createObjectNode()
+                .put("txn_id", "PNPTXN" + ThreadLocalRandom.current().nextLong(100_000_000L, 999_999_999L))
+                .put("payout_ref", ref)
+                .put("amount", req.path("amount").asString())
+                .put("status", "Pending")
+                .put("txn_date", LocalDate.now().toString()));
+        ObjectNode reply = JSON.createObjectNode()
+                .put("statusCode", 200)
+                .put("message", "Transfer initiated successfully");
+        reply.set("Data", data.deepCopy());
+
+        String txnId = data.path("txn_id").asString();
+        ObjectNode callback = JSON.createObjectNode()
+                .put("PAYOUT_REF", payoutRef)
+                .put("STATUS", "Success")
+                .put("TXN_ID", txnId);
+        data.put("status", "Success");
+        return new Reply(200, reply, new Webhook("/api/payout/paynpro-payout-webhook-response",
+                callback.toString(), null));
+    }
+
+    private Reply paynproStatus(HttpServerRequest request, String body) {
+        String payoutRef = JSON.readTree(body).path("payout_ref").asString();
+        ObjectNode data = paynproTransfers.get(payoutRef);
+        if (data == null) {
+            return Reply.ok(JSON.createObjectNode()
+                    .put("statusCode", 404)
+                    .put("message", "Payout not found"));
+        }
+        ObjectNode reply = JSON.createObjectNode().put("statusCode", 200);
+        reply.set("Data", data.deepCopy());
+        return Reply.ok(reply);
+    }
+
+    private Reply paynproReport(HttpServerRequest request, String body) {
+        JsonNode req = JSON.readTree(body);
+        ObjectNode reply = JSON.createObjectNode()
+                .put("statusCode", 200)
+                .put("startDate", req.path("startDate").asString())
+                .put("endDate", req.path("endDate").asString());
+        ArrayNode rows = reply.putArray("Data");
+        paynproTransfers.values().forEach(row -> rows.add(row.deepCopy()));
+        for (int i = 0; i < syntheticReportRows; i++) {
+            rows.addObject()
+                    .put("txn_id", "PNPTXN" + (100_000_000L + i))
+                    .put("payout_ref", "SYN_" + i)
+                    .put("amount", "100.00")
+                    .put("status", "Success")
+                    .put("txn_date", req.path("startDate").asString());
+        }
+        return Reply.ok(reply);
+    }
+
+    private Reply paynproPayin(HttpServerRequest request, String body) {
+        Map<String, String> form = new HashMap<>();
+        for (String pair : body.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                form.put(pair.substring(0, eq), URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        String tradeNo = decryptTradeNo(form.get("data"));
+
+        ObjectNode reply = JSON.createObjectNode()
+                .put("status", "success")
+                .put("message", "Order created");
+        reply.putObject("data")
+                .put("payUrl", baseUrl() + "/pay/" + tradeNo)
+                .put("tradeNo", tradeNo);
+
+        ObjectNode callback = JSON.createObjectNode()
+                .put("status", "SUCCESS")
+                .put("tradeNo", tradeNo);
+        return new Reply(200, reply, new Webhook("/api/webhook/paynpro", callback.toString(), null));
+    }
+
+    private String decryptTradeNo(String data) {
+        if (data == null) {
+            throw new IllegalArgumentException("data is required");
+        }
+        if (paynproEncryptionKey == null) {
+            return id("PNP_");
+        }
+        try {
+            Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+            cipher.init(Cipher.DECRYPT_MODE,
+                    new SecretKeySpec(paynproEncryptionKey.getBytes(StandardCharsets.UTF_8), "AES"),
+                    new IvParameterSpec(paynproSaltKey.getBytes(StandardCharsets.UTF_8)));
+            byte[] plain = cipher.doFinal(Base64.getDecoder().decode(data));
+            return JSON.readTree(new String(plain, StandardCharsets.UTF_8)).path("tradeNo").asString();
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Cannot decrypt data: " + e.getMessage());
+        }
+    }
+
+    private static ObjectNode error(String code, String description) {
+        ObjectNode body = JSON.createObjectNode();
+        body.putObject("error")
+                .put("code", code)
+                .put("description", description);
+        return body;
+    }
+
+    private static String id(String prefix) {
+        return prefix + UUID.randomUUID().toString().replace("-", "").substring(0, 14);
+    }
+
+    // ─── Builder ────────────────────────────────────────────────────────────────
+
+    public static final class Builder {
+
+        private int port;
+        private String webhookBaseUrl;
+        private String razorpayWebhookSecret;
+        private String paynproEncryptionKey;
+        private String paynproSaltKey;
+        private long razorpayBalancePaise = 1_000_000_00L;
+        private String paynproBalance = "1000000.00";
+        private int syntheticReportRows;
+        private EndpointBehavior defaultBehavior = EndpointBehavior.healthy();
+        private final Map<FakeEndpoint, EndpointBehavior> behaviors = new EnumMap<>(FakeEndpoint.class);
+
+        /**
+         * 0 (the default) picks a free port.
+         */
+        public Builder port(int port) {
+            this.port = port;
+            return this;
+        }
+
+        /**
+         * Base URL of the application under test; without it no webhooks are sent.
+         */
+        public Builder webhookBaseUrl(String webhookBaseUrl) {
+            this.webhookBaseUrl = webhookBaseUrl;
+            return this;
+        }
+
+        public Builder razorpayWebhookSecret(String razorpayWebhookSecret) {
+            this.razorpayWebhookSecret = razorpayWebhookSecret;
+            return this;
+        }
+
+        /**
+         * Lets the payin endpoint decrypt the order and echo its real tradeNo.
+         */
+        public Builder paynproEncryption(String encryptionKey, String saltKey) {
+            this.paynproEncryptionKey = encryptionKey;
+            this.paynproSaltKey = saltKey;
+            return this;
+        }
+
+        public Builder razorpayBalancePaise(long razorpayBalancePaise) {
+            this.razorpayBalancePaise = razorpayBalancePaise;
+            return this;
+        }
+
+        public Builder paynproBalance(String paynproBalance) {
+            this.paynproBalance = paynproBalance;
+            return this;
+        }
+
+        /**
+         * Extra rows appended to every report and statement, for large-payload tests.
+         */
+        public Builder syntheticReportRows(int syntheticReportRows) {
+            this.syntheticReportRows = syntheticReportRows;
+            return this;
+        }
+
+        public Builder defaultBehavior(EndpointBehavior defaultBehavior) {
+            this.defaultBehavior = defaultBehavior;
+            return this;
+        }
+
+        public Builder behavior(FakeEndpoint endpoint, EndpointBehavior behavior) {
+            this.behaviors.put(endpoint, behavior);
+            return this;
+        }
+
+        public FakeGatewayServer build() {
+            return new FakeGatewayServer(this);
+        }
+    }
+
+    /**
+     * Runs the fake standalone. Arguments: port, application base URL for
+     * webhooks, Razorpay webhook secret, median and p99 latency in millis.
+     * Start the application with all three gateway base URLs pointing here.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8089;
+        String webhookBaseUrl = args.length > 1 ? args[1] : "http://localhost:8080";
+        String secret = args.length > 2 ? args[2] : null;
+        long medianMillis = args.length > 3 ? Long.parseLong(args[3]) : 80;
+        long p99Millis = args.length > 4 ? Long.parseLong(args[4]) : 600;
+
+        FakeGatewayServer server = FakeGatewayServer.builder()
+                .port(port)
+                .webhookBaseUrl(webhookBaseUrl)
+                .razorpayWebhookSecret(secret)
+                .defaultBehavior(EndpointBehavior.healthy().toBuilder()
+                        .latency(LatencyDistribution.logNormal(Duration.ofMillis(medianMillis),
+                                Duration.ofMillis(p99Millis)))
+                        .build())
+                .build()
+                .start();
+        server.server.onDispose().block();
+    }
+}
@@ -0,0 +1,226 @@
+package in.ajildev.saas_subscription_billing.fakegateway;
+
+import com.razorpay.Utils;
+import in.ajildev.saas_subscription_billing.config.GatewayRateLimitProperties;
+import in.ajildev.saas_subscription_billing.config.GatewayResilienceProperties;
+import in.ajildev.saas_subscription_billing.config.PaynproConfig;
+import in.ajildev.saas_subscription_billing.dto.paynpro.PaynproOrderResponse;
+import in.ajildev.saas_subscription_billing.dto.paynpro.PaynproPayoutResponse;
+import in.ajildev.saas_subscription_billing.dto.razorpay.RazorpayOrder;
+import in.ajildev.saas_subscription_billing.dto.razorpay.RazorpayPayoutResponse;
+import in.ajildev.saas_subscription_billing.entity.Payout;
+import in.ajildev.saas_subscription_billing.entity.User;
+import in.ajildev.saas_subscription_billing.enums.PaymentGateway;
+import in.ajildev.saas_subscription_billing.enums.PayoutStatus;
+import in.ajildev.saas_subscription_billing.exception.GatewayClientException;
+import in.ajildev.saas_subscription_billing.service.GatewayGuard;
+import in.ajildev.saas_subscription_billing.service.OutboundRateLimiter;
+import in.ajildev.saas_subscription_billing.service.PaynProService;
+import in.ajildev.saas_subscription_billing.service.RazorpayBeneficiaryCache;
+import in.ajildev.saas_subscription_billing.service.RazorpayService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Drives the real gateway services against {@link FakeGatewayServer} without a
+ * Spring context, checking responses, webhook delivery and error injection.
+ */
+class FakeGatewayServerTest {
+
+    private static final String WEBHOOK_SECRET = "whsec_fake";
+    private static final String ENCRYPTION_KEY = "0123456789abcdef0123456789abcdef";
+    private static final String SALT = "fedcba9876543210";
+
+    private record ReceivedWebhook(String path, String signature, String body) {
+    }
+
+    private final BlockingQueue<ReceivedWebhook> webhooks = new LinkedBlockingQueue<>();
+    private final JsonMapper jsonMapper = JsonMapper.builder().build();
+
+    private DisposableServer receiver;
+    private FakeGatewayServer gateway;
+    private RazorpayService razorpayService;
+    private PaynProService paynProService;
+
+    @BeforeEach
+    void setUp() {
+        receiver = HttpServer.create()
+                .port(0)
+                .handle((req, res) -> req.receive().aggregate().asString(StandardCharsets.UTF_8)
+                        .doOnNext(body -> webhooks.add(new ReceivedWebhook(req.uri(),
+                                req.requestHeaders().get("X-Razorpay-Signature"), body)))
+                        .then(res.status(200).send()))
+                .bindNow();
+
+        gateway = FakeGatewayServer.builder()
+                .webhookBaseUrl("http://localhost:" + receiver.port())
+                .razorpayWebhookSecret(WEBHOOK_SECRET)
+                .paynproEncryption(ENCRYPTION_KEY, SALT)
+                .defaultBehavior(EndpointBehavior.healthy().toBuilder()
+                        .latency(LatencyDistribution.uniform(Duration.ofMillis(1), Duration.ofMillis(5)))
+                        .webhookDelay(Duration.ofMillis(20))
+                        .build())
+                .build()
+                .start();
+
+        ObjectProvider<MeterRegistry> noMetrics = new DefaultListableBeanFactory().getBeanProvider(MeterRegistry.class);
+        GatewayGuard guard = new GatewayGuard(new GatewayResilienceProperties(),
+                new OutboundRateLimiter(new GatewayRateLimitProperties(), noMetrics), noMetrics);
+        WebClient client = new PaynproConfig(jsonMapper).gatewayBuilder(WebClient.builder())
+                .baseUrl(gateway.baseUrl()).build();
+
+        razorpayService = new RazorpayService(client, mock(RazorpayBeneficiaryCache.class), guard, jsonMapper);
+        ReflectionTestUtils.setField(razorpayService, "apiKey", "rzp_test_key");
+        ReflectionTestUtils.setField(razorpayService, "apiSecret", "rzp_test_secret");
+        ReflectionTestUtils.setField(razorpayService, "accountNumber", "2323230000000000");
+
+        paynProService = new PaynProService(client, client, guard, jsonMapper);
+        ReflectionTestUtils.setField(paynProService, "apiKey", "pk_test");
+        ReflectionTestUtils.setField(paynProService, "secretKey", "sk_test");
+        ReflectionTestUtils.setField(paynProService, "encryptionKey", ENCRYPTION_KEY);
+        ReflectionTestUtils.setField(paynProService, "saltKey", SALT);
+    }
+
+    @AfterEach
+    void tearDown() {
+        gateway.close();
+        receiver.disposeNow();
+    }
+
+    @Test
+    void razorpayPayoutIsAcceptedAndSignedWebhookFollows() throws Exception {
+        RazorpayPayoutResponse response = razorpayService.initiatePayout(payout(PaymentGateway.RAZORPAY, "POUT_RZP_1"));
+
+        assertThat(response.id()).startsWith("pout_");
+        assertThat(response.status()).isEqualTo("processing");
+        assertThat(response.referenceId()).isEqualTo("POUT_RZP_1");
+        assertThat(response.amount()).isEqualTo(149_900L);
+        assertThat(gateway.getRequestCount(FakeEndpoint.RAZORPAY_CONTACTS)).isEqualTo(1);
+        assertThat(gateway.getRequestCount(FakeEndpoint.RAZORPAY_FUND_ACCOUNTS)).isEqualTo(1);
+
+        ReceivedWebhook webhook = webhooks.poll(5, TimeUnit.SECONDS);
+        assertThat(webhook).isNotNull();
+        assertThat(webhook.path()).isEqualTo("/api/webhook/razorpay");
+        assertThat(Utils.verifyWebhookSignature(webhook.body(), webhook.signature(), WEBHOOK_SECRET)).isTrue();
+
+        JsonNode event = jsonMapper.readTree(webhook.body());
+        assertThat(event.path("event").asString()).isEqualTo("payout.processed");
+        assertThat(event.at("/payload/payout/entity/reference_id").asString()).isEqualTo("POUT_RZP_1");
+        assertThat(event.at("/payload/payout/entity/status").asString()).isEqualTo("processed");
+    }
+
+    @Test
+    void razorpayOrderAndBalance() throws Exception {
+        RazorpayOrder order = razorpayService.createOrder(new BigDecimal("499.00"), "txn_1");
+
+        assertThat(order.id()).startsWith("order_");
+        assertThat(order.amount()).isEqualTo(49_900L);
+        assertThat(razorpayService.fetchBalance().balancePaise()).isPositive();
+
+        ReceivedWebhook webhook = webhooks.poll(5, TimeUnit.SECONDS);
+        assertThat(webhook).isNotNull();
+        JsonNode event = jsonMapper.readTree(webhook.body());
+        assertThat(event.path("event").asString()).isEqualTo("order.paid");
+        assertThat(event.at("/payload/order/entity/id").asString()).isEqualTo(order.id());
+    }
+
+    @Test
+    void paynproTransferStatusAndWebhook() throws Exception {
+        PaynproPayoutResponse response = paynProService.initiatePayout(payout(PaymentGateway.PAYNPRO, "POUT_PNP_1"));
+
+        assertThat(response.isAccepted()).isTrue();
+        String txnId = response.data().txnId();
+        assertThat(txnId).startsWith("PNPTXN");
+
+        ReceivedWebhook webhook = webhooks.poll(5, TimeUnit.SECONDS);
+        assertThat(webhook).isNotNull();
+        assertThat(webhook.path()).isEqualTo("/api/payout/paynpro-payout-webhook-response");
+        JsonNode callback = jsonMapper.readTree(webhook.body());
+        assertThat(callback.path("PAYOUT_REF").asString()).isEqualTo("POUT_PNP_1");
+        assertThat(callback.path("TXN_ID").asString()).isEqualTo(txnId);
+
+        assertThat(paynProService.getPayoutStatus("POUT_PNP_1").data().status()).isEqualTo("Success");
+        assertThat(paynProService.getTxnReport("2026-01-01", "2026-01-31").data()).hasSize(1);
+        assertThat(paynProService.fetchBalance().balancePaise()).isPositive();
+    }
+
+    @Test
+    void paynproPayinEchoesEncryptedTradeNo() throws Exception {
+        PaynproOrderResponse order = paynProService.createOrder(499.0, "PNP_42", "Ravi", "ravi@example.com",
+                "9876543210");
+
+        assertThat(order.payUrl()).endsWith("/pay/PNP_42");
+
+        ReceivedWebhook webhook = webhooks.poll(5, TimeUnit.SECONDS);
+        assertThat(webhook).isNotNull();
+        assertThat(webhook.path()).isEqualTo("/api/webhook/paynpro");
+        assertThat(jsonMapper.readTree(webhook.body()).path("tradeNo").asString()).isEqualTo("PNP_42");
+    }
+
+    @Test
+    void injectedErrorsSurfaceAsGatewayFailures() {
+        gateway.setBehavior(FakeEndpoint.RAZORPAY_ORDERS, EndpointBehavior.healthy().toBuilder()
+                .clientErrorRate(1.0)
+                .build());
+        gateway.setBehavior(FakeEndpoint.PAYNPRO_BALANCE, EndpointBehavior.healthy().toBuilder()
+                .serverErrorRate(1.0)
+                .build());
+
+        assertThatThrownBy(() -> razorpayService.createOrder(new BigDecimal("10.00"), "txn_err"))
+                .isInstanceOf(GatewayClientException.class)
+                .hasMessage("Fake validation failure");
+        assertThatThrownBy(() -> paynProService.fetchBalance()).isInstanceOf(RuntimeException.class);
+    }
+
+    @Test
+    void latencyIsApplied() {
+        gateway.setBehavior(FakeEndpoint.RAZORPAY_BALANCE, EndpointBehavior.healthy().toBuilder()
+                .latency(LatencyDistribution.fixed(Duration.ofMillis(200)))
+                .build());
+
+        long start = System.nanoTime();
+        razorpayService.fetchBalance();
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThanOrEqualTo(Duration.ofMillis(200));
+    }
+
+    private static Payout payout(PaymentGateway gateway, String payoutRef) {
+        User user = new User();
+        user.setId(7L);
+        user.setName("Ravi Kumar");
+        user.setEmail("ravi.kumar@example.com");
+        return Payout.builder()
+                .user(user)
+                .amount(new BigDecimal("1499.00"))
+                .payoutRef(payoutRef)
+                .status(PayoutStatus.PROCESSING)
+                .gateway(gateway)
+                .beneficiaryName("Ravi Kumar")
+                .accountNo("50100123456789")
+                .ifsc("HDFC0001234")
+                .bankName("HDFC Bank")
+                .purpose("payout")
+                .mobile("9876543210")
+                .build();
+    }
+}
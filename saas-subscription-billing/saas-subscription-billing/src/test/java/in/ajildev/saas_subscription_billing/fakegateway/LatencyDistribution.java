@@ -0,0 +1,37 @@
+package in.ajildev.saas_subscription_billing.fakegateway;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Response delay of a fake endpoint.
+ */
+@FunctionalInterface
+public interface LatencyDistribution {
+
+    Duration sample();
+
+    static LatencyDistribution none() {
+        return () -> Duration.ZERO;
+    }
+
+    static LatencyDistribution fixed(Duration delay) {
+        return () -> delay;
+    }
+
+    static LatencyDistribution uniform(Duration min, Duration max) {
+        long minMicros = min.toNanos() / 1000;
+        long maxMicros = max.toNanos() / 1000;
+        return () -> Duration.ofNanos(ThreadLocalRandom.current().nextLong(minMicros, maxMicros + 1) * 1000);
+    }
+
+    /**
+     * Long-tailed latency as seen from real gateways, fitted to a median and p99.
+     */
+    static LatencyDistribution logNormal(Duration median, Duration p99) {
+        double mu = Math.log(median.toNanos());
+        // 2.3263 is the standard normal quantile at 0.99
+        double sigma = Math.max(0, (Math.log(p99.toNanos()) - mu) / 2.3263);
+        return () -> Duration.ofNanos((long) Math.exp(mu + sigma * ThreadLocalRandom.current().nextGaussian()));
+    }
+}
@@ -0,0 +1,150 @@
+package in.ajildev.saas_subscription_billing.security;
+
+import in.ajildev.saas_subscription_billing.config.SecurityConfig;
+import in.ajildev.saas_subscription_billing.controller.AdminController;
+import in.ajildev.saas_subscription_billing.controller.ExportController;
+import in.ajildev.saas_subscription_billing.controller.PayoutController;
+import in.ajildev.saas_subscription_billing.repository.UserRepository;
+import in.ajildev.saas_subscription_billing.service.BulkPayoutService;
+import in.ajildev.saas_subscription_billing.service.ExportService;
+import in.ajildev.saas_subscription_billing.service.GatewayBalanceLedger;
+import in.ajildev.saas_subscription_billing.service.GatewayBalanceService;
+import in.ajildev.saas_subscription_billing.service.GatewayResponseStreamer;
+import in.ajildev.saas_subscription_billing.service.PaynProService;
+import in.ajildev.saas_subscription_billing.service.PaynproReportCache;
+import in.ajildev.saas_subscription_billing.service.PayoutOutboxDispatcher;
+import in.ajildev.saas_subscription_billing.service.PayoutRouter;
+import in.ajildev.saas_subscription_billing.service.PayoutService;
+import in.ajildev.saas_subscription_billing.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.webmvc.test.autoconfigure.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import java.util.List;
+
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.authentication;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(controllers = { AdminController.class, PayoutController.class, ExportController.class })
+@Import(SecurityConfig.class)
+class AdminAccessTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private JwtUtil jwtUtil;
+    @MockitoBean
+    private TokenVersionService tokenVersionService;
+    @MockitoBean
+    private UserRepository userRepository;
+    @MockitoBean
+    private UserService userService;
+    @MockitoBean
+    private PayoutService payoutService;
+    @MockitoBean
+    private PaynProService paynProService;
+    @MockitoBean
+    private PaynproReportCache paynproReportCache;
+    @MockitoBean
+    private GatewayResponseStreamer gatewayResponseStreamer;
+    @MockitoBean
+    private GatewayBalanceService gatewayBalanceService;
+    @MockitoBean
+    private GatewayBalanceLedger gatewayBalanceLedger;
+    @MockitoBean
+    private BulkPayoutService bulkPayoutService;
+    @MockitoBean
+    private PayoutRouter payoutRouter;
+    @MockitoBean
+    private PayoutOutboxDispatcher payoutOutboxDispatcher;
+    @MockitoBean
+    private ExportService exportService;
+
+    @Test
+    void userTokenCannotReachAdminRoutes() throws Exception {
+        mockMvc.perform(get("/api/admin/users").with(as("USER"))).andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/admin/payouts").with(as("USER"))).andExpect(status().isForbidden());
+        mockMvc.perform(put("/api/admin/users/2/role").with(as("USER"))
+                .contentType(MediaType.APPLICATION_JSON).content("{\"role\":\"ADMIN\"}"))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/admin/users")).andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void userTokenCannotRunBulkPayouts() throws Exception {
+        mockMvc.perform(post("/api/admin/payouts/bulk").with(as("USER"))
+                .contentType("text/csv").content("email,amount\nuser@example.com,10\n"))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(post("/api/admin/payouts/bulk/job-1/resume").with(as("USER"))
+                .contentType("text/csv").content("email,amount\nuser@example.com,10\n"))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/admin/payouts/bulk/job-1/result").with(as("USER")))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void userTokenCannotChangeRouting() throws Exception {
+        mockMvc.perform(put("/api/admin/payouts/routing").with(as("USER"))
+                .contentType(MediaType.APPLICATION_JSON).content("{\"pinned\":\"RAZORPAY\"}"))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(delete("/api/admin/payouts/routing/pinned").with(as("USER")))
+                .andExpect(status().isForbidden());
+        verifyNoInteractions(payoutRouter);
+    }
+
+    @Test
+    void onlyAdminsCanExport() throws Exception {
+        mockMvc.perform(get("/api/admin/export/payouts").with(as("USER"))).andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/admin/export/payments").with(as("USER"))).andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/admin/export/payouts")).andExpect(status().isUnauthorized());
+        verifyNoInteractions(exportService);
+
+        mockMvc.perform(get("/api/admin/export/payouts").with(as("ADMIN"))).andExpect(status().isOk());
+    }
+
+    @Test
+    void adminTokenReachesAdminRoutes() throws Exception {
+        mockMvc.perform(get("/api/admin/users").with(as("ADMIN"))).andExpect(status().isOk());
+        mockMvc.perform(get("/api/admin/payouts/counts").with(as("ADMIN"))).andExpect(status().isOk());
+    }
+
+    @Test
+    void userManagesOnlyTheirOwnPayoutSettings() throws Exception {
+        mockMvc.perform(post("/api/admin/payouts/update-bank-details").with(as("USER"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"email\":\"someone-else@example.com\",\"accountNo\":\"123\",\"ifsc\":\"HDFC0001234\"}"))
+                .andExpect(status().isOk());
+        verify(payoutService).updateBeneficiaryDetails("user@example.com", "123", "HDFC0001234", null, null);
+
+        mockMvc.perform(get("/api/admin/payouts/history/someone-else@example.com").with(as("USER")))
+                .andExpect(status().isOk());
+        verify(payoutService).getUserPayouts("user@example.com");
+    }
+
+    @Test
+    void adminMayActForAnotherUser() throws Exception {
+        mockMvc.perform(get("/api/admin/payouts/history/someone-else@example.com").with(as("ADMIN")))
+                .andExpect(status().isOk());
+        verify(payoutService).getUserPayouts("someone-else@example.com");
+    }
+
+    static RequestPostProcessor as(String role) {
+        AuthenticatedUser principal = new AuthenticatedUser(1L, role.toLowerCase() + "@example.com", role,
+                List.of(new SimpleGrantedAuthority("ROLE_" + role)));
+        return authentication(new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+    }
+}
@@ -0,0 +1,99 @@
+package in.ajildev.saas_subscription_billing.security;
+
+import in.ajildev.saas_subscription_billing.exception.InvalidTokenException;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RefreshTokenStoreTest {
+
+    private static final long USER_ID = 7L;
+
+    @Test
+    void rotationConsumesTheTokenAndIssuesItsReplacement() {
+        RefreshTokenStore store = store(100);
+        long first = store.issue(USER_ID, inAnHour());
+
+        long second = store.rotate(first, USER_ID, inAnHour());
+        long third = store.rotate(second, USER_ID, inAnHour());
+
+        assertThat(second).isNotEqualTo(first);
+        assertThat(third).isNotIn(first, second);
+    }
+
+    @Test
+    void reuseRevokesTheWholeFamily() {
+        RefreshTokenStore store = store(100);
+        long first = store.issue(USER_ID, inAnHour());
+        long second = store.rotate(first, USER_ID, inAnHour());
+
+        assertThatThrownBy(() -> store.rotate(first, USER_ID, inAnHour()))
+                .isInstanceOf(InvalidTokenException.class)
+                .hasMessageContaining("already been used");
+        assertThatThrownBy(() -> store.rotate(second, USER_ID, inAnHour()))
+                .isInstanceOf(InvalidTokenException.class)
+                .hasMessageContaining("revoked");
+    }
+
+    @Test
+    void otherFamiliesSurviveARevocation() {
+        RefreshTokenStore store = store(100);
+        long stolen = store.issue(USER_ID, inAnHour());
+        long otherDevice = store.issue(USER_ID, inAnHour());
+        store.rotate(stolen, USER_ID, inAnHour());
+
+        assertThatThrownBy(() -> store.rotate(stolen, USER_ID, inAnHour()))
+                .isInstanceOf(InvalidTokenException.class);
+        assertThat(store.rotate(otherDevice, USER_ID, inAnHour())).isPositive();
+    }
+
+    @Test
+    void unknownExpiredAndForeignTokensAreRejected() {
+        RefreshTokenStore store = store(100);
+        long expired = store.issue(USER_ID, System.currentTimeMillis() - 1);
+        long valid = store.issue(USER_ID, inAnHour());
+
+        assertThatThrownBy(() -> store.rotate(12345L, USER_ID, inAnHour()))
+                .isInstanceOf(InvalidTokenException.class);
+        assertThatThrownBy(() -> store.rotate(expired, USER_ID, inAnHour()))
+                .isInstanceOf(InvalidTokenException.class);
+        assertThatThrownBy(() -> store.rotate(valid, USER_ID + 1, inAnHour()))
+                .isInstanceOf(InvalidTokenException.class);
+    }
+
+    @Test
+    void sweepDropsExpiredTokens() {
+        RefreshTokenStore store = store(100);
+        store.issue(USER_ID, System.currentTimeMillis() - 1);
+        store.issue(USER_ID, inAnHour());
+
+        store.sweepExpired();
+
+        assertThat(store.size()).isEqualTo(1);
+    }
+
+    @Test
+    void sizeIsBounded() {
+        RefreshTokenStore store = store(50);
+        for (int i = 0; i < 1_000; i++) {
+            store.issue(USER_ID, inAnHour());
+        }
+
+        store.sweepExpired();
+
+        assertThat(store.size()).isLessThanOrEqualTo(50);
+    }
+
+    private static RefreshTokenStore store(long maxTokens) {
+        RefreshTokenStore store = new RefreshTokenStore();
+        ReflectionTestUtils.setField(store, "maxTokens", maxTokens);
+        store.init();
+        return store;
+    }
+
+    private static long inAnHour() {
+        return System.currentTimeMillis() + 3_600_000;
+    }
+}
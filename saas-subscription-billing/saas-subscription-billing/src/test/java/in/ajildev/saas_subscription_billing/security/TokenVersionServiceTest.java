@@ -0,0 +1,91 @@
+package in.ajildev.saas_subscription_billing.security;
+
+import in.ajildev.saas_subscription_billing.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TokenVersionServiceTest {
+
+    private static final long USER_ID = 42L;
+
+    // Stands in for the users.token_version column
+    private final AtomicInteger committedVersion = new AtomicInteger();
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private TokenVersionService service;
+
+    @BeforeEach
+    void setUp() {
+        when(userRepository.findTokenVersionById(anyLong()))
+                .thenAnswer(invocation -> Optional.of(committedVersion.get()));
+        service = new TokenVersionService(userRepository);
+        ReflectionTestUtils.setField(service, "cacheTtlSeconds", 3600L);
+        ReflectionTestUtils.setField(service, "cacheMaxSize", 100L);
+        service.init();
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    void revocationTakesEffectOnCommit() {
+        assertThat(service.isCurrent(USER_ID, 0)).isTrue();
+
+        service.revokeTokens(USER_ID);
+        committedVersion.incrementAndGet();
+        commit();
+
+        assertThat(service.isCurrent(USER_ID, 0)).isFalse();
+        assertThat(service.isCurrent(USER_ID, 1)).isTrue();
+    }
+
+    @Test
+    void readBeforeCommitIsNotCachedPastIt() {
+        assertThat(service.isCurrent(USER_ID, 0)).isTrue();
+
+        service.revokeTokens(USER_ID);
+        // A concurrent request still sees the committed version until the bump commits
+        assertThat(service.isCurrent(USER_ID, 0)).isTrue();
+        committedVersion.incrementAndGet();
+        commit();
+
+        assertThat(service.isCurrent(USER_ID, 0)).isFalse();
+    }
+
+    @Test
+    void rolledBackRevocationKeepsTokensValid() {
+        assertThat(service.isCurrent(USER_ID, 0)).isTrue();
+
+        service.revokeTokens(USER_ID);
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        assertThat(service.isCurrent(USER_ID, 0)).isTrue();
+    }
+
+    @Test
+    void unknownUserIsNeverCurrent() {
+        when(userRepository.findTokenVersionById(7L)).thenReturn(Optional.empty());
+
+        assertThat(service.isCurrent(7L, -1)).isFalse();
+        assertThat(service.isCurrent(7L, 0)).isFalse();
+    }
+
+    private static void commit() {
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+    }
+}
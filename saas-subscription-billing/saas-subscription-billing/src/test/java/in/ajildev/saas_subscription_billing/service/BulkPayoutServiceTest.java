@@ -0,0 +1,202 @@
+package in.ajildev.saas_subscription_billing.service;
+
+import in.ajildev.saas_subscription_billing.entity.BulkPayoutJob;
+import in.ajildev.saas_subscription_billing.enums.BulkPayoutJobStatus;
+import in.ajildev.saas_subscription_billing.enums.PaymentGateway;
+import in.ajildev.saas_subscription_billing.repository.BulkPayoutJobRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BulkPayoutServiceTest {
+
+    private static final long JOB_ID = 42L;
+    private static final String UPLOAD = """
+            email,amount,purpose
+            ravi@example.com,1499.00,Refund
+            asha@example.com,250
+            ravi@example.com,abc
+            ,100
+            nobody@example.com,100
+            asha@example.com,10.001
+            "asha@example.com","1,000"
+            """;
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final NamedParameterJdbcTemplate namedJdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+    private final BulkPayoutJobRepository jobRepository = mock(BulkPayoutJobRepository.class);
+    private final BulkPayoutJob job = BulkPayoutJob.builder()
+            .id(JOB_ID)
+            .status(BulkPayoutJobStatus.INGESTING)
+            .createdBy("admin@example.com")
+            .build();
+
+    private BulkPayoutService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        doAnswer(invocation -> {
+            invocation.<Consumer<Object>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+
+        PayoutRouter router = mock(PayoutRouter.class);
+        when(router.choose(any(), any())).thenReturn(PaymentGateway.PAYNPRO);
+        when(jobRepository.findById(JOB_ID)).thenReturn(Optional.of(job));
+
+        doAnswer(invocation -> {
+            Collection<?> emails = (Collection<?>) invocation.<Map<String, ?>>getArgument(1).get("emails");
+            RowCallbackHandler handler = invocation.getArgument(2);
+            long id = 1;
+            for (String email : List.of("ravi@example.com", "asha@example.com")) {
+                if (emails.contains(email)) {
+                    handler.processRow(user(id, email));
+                }
+                id++;
+            }
+            return null;
+        }).when(namedJdbcTemplate).query(anyString(), anyMap(), any(RowCallbackHandler.class));
+
+        service = new BulkPayoutService(jobRepository, jdbcTemplate, namedJdbcTemplate, transactionTemplate, router,
+                JsonMapper.builder().build());
+        ReflectionTestUtils.setField(service, "batchSize", 500);
+        ReflectionTestUtils.setField(service, "maxAmount", new BigDecimal("100000"));
+    }
+
+    @Test
+    void malformedLinesAreRejectedWithTheirReasonAndValidOnesQueued() {
+        service.ingest(JOB_ID, upload(UPLOAD), false);
+
+        assertThat(refs(payoutBatches())).containsExactly("BULK_42_1", "BULK_42_2");
+        assertThat(rejections()).containsExactly(
+                "3:Invalid amount",
+                "4:Email is required",
+                "5:User not found",
+                "6:Invalid amount",
+                "7:Invalid amount");
+        verify(jdbcTemplate).update(startsWith("INSERT INTO payout_outbox"), any(), any(), any(), eq(JOB_ID), eq(1),
+                eq(7));
+    }
+
+    @Test
+    void malformedNdjsonLineIsRejectedWithoutStoppingTheUpload() {
+        service.ingest(JOB_ID, upload("""
+                {"email":"ravi@example.com","amount":"10"}
+                {"email":
+                {"email":"asha@example.com","amount":"20","gateway":"RAZORPAY"}
+                """), true);
+
+        List<Object[]> payouts = payoutBatches();
+        assertThat(refs(payouts)).containsExactly("BULK_42_1", "BULK_42_3");
+        assertThat(payouts.get(1)[4]).isEqualTo("RAZORPAY");
+        assertThat(rejections()).containsExactly("2:Malformed JSON");
+    }
+
+    @Test
+    void reuploadSkipsLinesAlreadyCommitted() {
+        job.setLinesCommitted(4);
+
+        service.ingest(JOB_ID, upload(UPLOAD), false);
+
+        assertThat(payoutBatches()).isEmpty();
+        assertThat(rejections()).containsExactly("5:User not found", "6:Invalid amount", "7:Invalid amount");
+        verify(jdbcTemplate).update(startsWith("UPDATE bulk_payout_jobs SET lines_committed"), eq(7), any(),
+                eq(JOB_ID));
+    }
+
+    @Test
+    void fullyUploadedJobIsNotReadAgain() {
+        job.setStatus(BulkPayoutJobStatus.QUEUED);
+
+        assertThatThrownBy(() -> service.ingest(JOB_ID, upload(UPLOAD), false))
+                .hasMessageContaining("already been fully uploaded");
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), ArgumentMatchers.<List<Object[]>>any());
+    }
+
+    @Test
+    void duplicateInsertsAreNoOpsRatherThanIgnoredErrors() {
+        service.ingest(JOB_ID, upload(UPLOAD), false);
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate, atLeastOnce()).batchUpdate(sql.capture(),
+                ArgumentMatchers.<List<Object[]>>any());
+        assertThat(sql.getAllValues())
+                .allSatisfy(statement -> assertThat(statement).doesNotContain("IGNORE").contains("ON DUPLICATE KEY"));
+    }
+
+    private List<Object[]> payoutBatches() {
+        return batches("INSERT INTO payouts");
+    }
+
+    private List<String> rejections() {
+        return batches("INSERT INTO bulk_payout_rejections").stream()
+                .map(args -> args[1] + ":" + args[4])
+                .toList();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object[]> batches(String prefix) {
+        ArgumentCaptor<List<Object[]>> captor = ArgumentCaptor.forClass(List.class);
+        List<Object[]> rows = new ArrayList<>();
+        try {
+            verify(jdbcTemplate, atLeastOnce()).batchUpdate(startsWith(prefix), captor.capture());
+        } catch (AssertionError notCalled) {
+            return rows;
+        }
+        captor.getAllValues().forEach(rows::addAll);
+        return rows;
+    }
+
+    private static List<String> refs(List<Object[]> payouts) {
+        return payouts.stream().map(args -> (String) args[2]).toList();
+    }
+
+    private static ByteArrayInputStream upload(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static ResultSet user(long id, String email) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong("id")).thenReturn(id);
+        when(rs.getString("email")).thenReturn(email);
+        when(rs.getString("payout_beneficiary_name")).thenReturn("Beneficiary " + id);
+        when(rs.getString("payout_account_no")).thenReturn("5010012345678" + id);
+        when(rs.getString("payout_ifsc")).thenReturn("HDFC0001234");
+        when(rs.getString("payout_bank_name")).thenReturn("HDFC Bank");
+        when(rs.getString("mobile")).thenReturn("987654321" + id);
+        return rs;
+    }
+}
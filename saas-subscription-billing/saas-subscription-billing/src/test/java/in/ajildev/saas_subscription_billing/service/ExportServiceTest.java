@@ -0,0 +1,64 @@
+package in.ajildev.saas_subscription_billing.service;
+
+import in.ajildev.saas_subscription_billing.enums.ExportFormat;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ExportServiceTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final ExportService exportService = new ExportService(jdbcTemplate, JsonMapper.builder().build());
+
+    @Test
+    void csvWithNoRowsStillHasItsHeader() throws Exception {
+        ResultSet rs = resultSet();
+        when(rs.next()).thenReturn(false);
+
+        assertThat(exportCsv(rs)).isEqualTo("id,payout_ref,amount\n");
+    }
+
+    @Test
+    void csvRowsFollowTheHeader() throws Exception {
+        ResultSet rs = resultSet();
+        when(rs.next()).thenReturn(true, false);
+        when(rs.getObject(1)).thenReturn(7L);
+        when(rs.getObject(2)).thenReturn("POUT,1");
+        when(rs.getObject(3)).thenReturn(new BigDecimal("1499.00"));
+
+        assertThat(exportCsv(rs)).isEqualTo("id,payout_ref,amount\n7,\"POUT,1\",1499.00\n");
+    }
+
+    private String exportCsv(ResultSet rs) {
+        doAnswer(invocation -> invocation.<ResultSetExtractor<?>>getArgument(1).extractData(rs))
+                .when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(ResultSetExtractor.class));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.exportPayouts(null, null, null, null, ExportFormat.CSV, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static ResultSet resultSet() throws Exception {
+        ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+        when(metaData.getColumnCount()).thenReturn(3);
+        when(metaData.getColumnLabel(1)).thenReturn("id");
+        when(metaData.getColumnLabel(2)).thenReturn("payout_ref");
+        when(metaData.getColumnLabel(3)).thenReturn("amount");
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getMetaData()).thenReturn(metaData);
+        return rs;
+    }
+}
@@ -0,0 +1,152 @@
+package in.ajildev.saas_subscription_billing.service;
+
+import in.ajildev.saas_subscription_billing.dto.paynpro.PaynproBalanceResponse;
+import in.ajildev.saas_subscription_billing.dto.razorpay.RazorpayBalanceResponse;
+import in.ajildev.saas_subscription_billing.enums.PaymentGateway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+class GatewayBalanceLedgerTest {
+
+    // Stub-only, so the reseeding loop below does not pile up recorded invocations
+    private final GatewayBalanceService balanceService = mock(GatewayBalanceService.class, withSettings().stubOnly());
+    private final GatewayBalanceLedger ledger = new GatewayBalanceLedger(balanceService);
+
+    @BeforeEach
+    void setUp() {
+        ledger.init();
+        when(balanceService.refresh(PaymentGateway.RAZORPAY))
+                .thenReturn(Mono.just(new RazorpayBalanceResponse(0L, "INR", null)));
+    }
+
+    @Test
+    void unseededGatewayFailsOpenWithoutCounting() {
+        GatewayBalanceLedger.Reservation reservation = ledger.reserve(PaymentGateway.PAYNPRO, new BigDecimal("500"));
+
+        assertThat(reservation).isNotNull();
+        reservation.commit();
+        assertThat(ledger.isSeeded(PaymentGateway.PAYNPRO)).isFalse();
+        assertThat(ledger.getAvailablePaise(PaymentGateway.PAYNPRO)).isZero();
+    }
+
+    @Test
+    void reservationsNeverTakeTheFloatBelowZero() {
+        seedPaynpro("1000.00");
+
+        assertThat(ledger.reserve(PaymentGateway.PAYNPRO, new BigDecimal("600"))).isNotNull();
+        assertThat(ledger.reserve(PaymentGateway.PAYNPRO, new BigDecimal("400.01"))).isNull();
+        assertThat(ledger.reserve(PaymentGateway.PAYNPRO, new BigDecimal("400"))).isNotNull();
+        assertThat(ledger.getAvailablePaise(PaymentGateway.PAYNPRO)).isZero();
+    }
+
+    @Test
+    void releaseReturnsFundsOnceAndCommitKeepsThemSpent() {
+        seedPaynpro("1000.00");
+        GatewayBalanceLedger.Reservation refused = ledger.reserve(PaymentGateway.PAYNPRO, new BigDecimal("300"));
+        GatewayBalanceLedger.Reservation accepted = ledger.reserve(PaymentGateway.PAYNPRO, new BigDecimal("200"));
+
+        refused.release();
+        refused.release();
+        refused.commit();
+        accepted.commit();
+        accepted.release();
+
+        assertThat(ledger.getAvailablePaise(PaymentGateway.PAYNPRO)).isEqualTo(80_000);
+        assertThat(paynpro().get("inFlightPaise")).isEqualTo(0L);
+
+        ledger.credit(PaymentGateway.PAYNPRO, new BigDecimal("200"));
+        assertThat(ledger.getAvailablePaise(PaymentGateway.PAYNPRO)).isEqualTo(100_000);
+    }
+
+    @Test
+    void reseedSubtractsPayoutsStillInFlight() {
+        seedPaynpro("1000.00");
+        GatewayBalanceLedger.Reservation reservation = ledger.reserve(PaymentGateway.PAYNPRO, new BigDecimal("300"));
+
+        // The gateway has not seen the payout yet
+        seedPaynpro("1000.00");
+        assertThat(ledger.getAvailablePaise(PaymentGateway.PAYNPRO)).isEqualTo(70_000);
+
+        reservation.commit();
+        seedPaynpro("700.00");
+        assertThat(ledger.getAvailablePaise(PaymentGateway.PAYNPRO)).isEqualTo(70_000);
+        assertThat(paynpro().get("inFlightPaise")).isEqualTo(0L);
+    }
+
+    @Test
+    void concurrentReseedsNeverLoseOrDoubleCountReservations() throws Exception {
+        seedPaynpro("1000.00");
+        int threads = 8;
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger reserved = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                workers.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 20_000; i++) {
+                        GatewayBalanceLedger.Reservation reservation = ledger.reserve(PaymentGateway.PAYNPRO,
+                                BigDecimal.valueOf(ThreadLocalRandom.current().nextInt(1, 50)));
+                        if (reservation != null) {
+                            reserved.incrementAndGet();
+                            reservation.release();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            Future<?> seeder = executor.submit(() -> {
+                start.await();
+                while (running.get()) {
+                    ledger.reconcile();
+                }
+                return null;
+            });
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get(60, TimeUnit.SECONDS);
+            }
+            running.set(false);
+            seeder.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Every reservation was released, so the float is back to exactly the gateway balance
+        assertThat(reserved.get()).isPositive();
+        assertThat(paynpro().get("inFlightPaise")).isEqualTo(0L);
+        assertThat(ledger.getAvailablePaise(PaymentGateway.PAYNPRO)).isEqualTo(100_000);
+    }
+
+    private void seedPaynpro(String rupees) {
+        when(balanceService.refresh(PaymentGateway.PAYNPRO))
+                .thenReturn(Mono.just(new PaynproBalanceResponse(200, null, new BigDecimal(rupees), null)));
+        ledger.reconcile();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> paynpro() {
+        return (Map<String, Object>) ledger.snapshot().get("paynpro");
+    }
+}
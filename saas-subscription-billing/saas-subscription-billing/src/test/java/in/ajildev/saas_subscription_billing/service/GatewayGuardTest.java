@@ -0,0 +1,111 @@
+package in.ajildev.saas_subscription_billing.service;
+
+import in.ajildev.saas_subscription_billing.config.GatewayRateLimitProperties;
+import in.ajildev.saas_subscription_billing.config.GatewayResilienceProperties;
+import in.ajildev.saas_subscription_billing.enums.GatewayOperation;
+import in.ajildev.saas_subscription_billing.exception.GatewayClientException;
+import in.ajildev.saas_subscription_billing.exception.GatewayUnavailableException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GatewayGuardTest {
+
+    @Test
+    void exchangeTimerLeavesOutTimeQueuedInTheRateLimiter() {
+        GatewayGuard guard = guard(5, 1);
+        guard.protect(GatewayOperation.PAYNPRO_PAYOUT, Mono.just(1)).block();
+
+        // The second call waits ~200 ms for its slot, then takes ~20 ms
+        GatewayGuard.ExchangeTimer timer = new GatewayGuard.ExchangeTimer();
+        guard.protect(GatewayOperation.PAYNPRO_PAYOUT, Mono.delay(Duration.ofMillis(20)))
+                .contextWrite(context -> context.put(GatewayGuard.ExchangeTimer.class, timer))
+                .block();
+
+        assertThat(timer.elapsed()).isGreaterThanOrEqualTo(Duration.ofMillis(20)).isLessThan(Duration.ofMillis(150));
+    }
+
+    @Test
+    void rejectedCallHasNoExchangeTime() {
+        GatewayGuard guard = guard(5, 0);
+
+        GatewayGuard.ExchangeTimer timer = new GatewayGuard.ExchangeTimer();
+        assertThatThrownBy(() -> guard.protect(GatewayOperation.PAYNPRO_PAYOUT, Mono.just(1))
+                .contextWrite(context -> context.put(GatewayGuard.ExchangeTimer.class, timer))
+                .block())
+                .isInstanceOf(GatewayUnavailableException.class);
+
+        assertThat(timer.elapsed()).isZero();
+    }
+
+    @Test
+    void rateLimitedAnswersOpenTheCircuitButOtherRejectionsDoNot() {
+        GatewayGuard guard = guard(1000, 5);
+        for (int i = 0; i < 10; i++) {
+            assertThatThrownBy(() -> guard.protect(GatewayOperation.PAYNPRO_QUERY,
+                    Mono.error(new GatewayClientException(400, "bad request"))).block())
+                    .isInstanceOf(GatewayClientException.class);
+        }
+        assertThat(guard.getState(GatewayOperation.PAYNPRO_QUERY)).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        for (int i = 0; i < 10; i++) {
+            assertThatThrownBy(() -> guard.protect(GatewayOperation.PAYNPRO_QUERY,
+                    Mono.error(new GatewayClientException(429, "slow down"))).block())
+                    .isInstanceOf(GatewayClientException.class);
+        }
+        assertThat(guard.getState(GatewayOperation.PAYNPRO_QUERY)).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void openStreamHoldsOnlyAStreamPermit() {
+        GatewayGuard guard = guard(1000, 1);
+
+        // First buffer arrived, the rest of the body is still coming
+        Disposable download = guard.protectMany(GatewayOperation.PAYNPRO_STREAM,
+                Flux.concat(Flux.just(1), Flux.never())).subscribe();
+
+        assertThat(guard.protect(GatewayOperation.PAYNPRO_QUERY, Mono.just(2)).block()).isEqualTo(2);
+        assertThatThrownBy(() -> guard.protectMany(GatewayOperation.PAYNPRO_STREAM, Flux.just(3)).blockLast())
+                .isInstanceOf(GatewayUnavailableException.class)
+                .hasMessageContaining("busy");
+
+        download.dispose();
+        assertThat(guard.protectMany(GatewayOperation.PAYNPRO_STREAM, Flux.just(4)).blockLast()).isEqualTo(4);
+    }
+
+    @Test
+    void streamFailingBeforeItsFirstElementCountsAgainstTheCircuit() {
+        GatewayGuard guard = guard(1000, 5);
+        for (int i = 0; i < 10; i++) {
+            assertThatThrownBy(() -> guard.protectMany(GatewayOperation.PAYNPRO_STREAM,
+                    Flux.error(new IllegalStateException("connection reset"))).blockLast())
+                    .isInstanceOf(IllegalStateException.class);
+        }
+
+        assertThat(guard.getState(GatewayOperation.PAYNPRO_STREAM)).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(guard.getState(GatewayOperation.PAYNPRO_QUERY)).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThatThrownBy(() -> guard.protectMany(GatewayOperation.PAYNPRO_STREAM, Flux.just(1)).blockLast())
+                .isInstanceOf(GatewayUnavailableException.class)
+                .hasMessageContaining("temporarily unavailable");
+    }
+
+    private static GatewayGuard guard(double permitsPerSecond, int maxConcurrentCalls) {
+        GatewayRateLimitProperties rateLimits = new GatewayRateLimitProperties();
+        rateLimits.getDefaults().setPermitsPerSecond(permitsPerSecond);
+        rateLimits.getDefaults().setBurst(1);
+        GatewayResilienceProperties resilience = new GatewayResilienceProperties();
+        resilience.getDefaults().setMaxConcurrentCalls(maxConcurrentCalls);
+        ObjectProvider<MeterRegistry> noMetrics = new DefaultListableBeanFactory().getBeanProvider(MeterRegistry.class);
+        return new GatewayGuard(resilience, new OutboundRateLimiter(rateLimits, noMetrics), noMetrics);
+    }
+}
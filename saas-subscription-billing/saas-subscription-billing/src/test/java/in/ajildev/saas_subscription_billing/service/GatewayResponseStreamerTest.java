@@ -0,0 +1,62 @@
+package in.ajildev.saas_subscription_billing.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GatewayResponseStreamerTest {
+
+    private static final String REPORT = "{\"StatusCode\":200,\"Message\":\"ok\",\"Data\":["
+            + "{\"payout_ref\":\"P1\",\"status\":\"Success\",\"amount\":\"10.00\",\"meta\":{\"utr\":\"U1\"}},"
+            + "{\"payout_ref\":\"P2\",\"status\":\"Failed\",\"amount\":\"20.00\",\"meta\":{\"utr\":null}}]}";
+
+    private final GatewayResponseStreamer streamer = new GatewayResponseStreamer(JsonMapper.builder().build());
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(streamer, "prefetch", 2);
+    }
+
+    @Test
+    void bodyWithoutFieldsIsCopiedAsIs() throws Exception {
+        assertThat(write(null)).isEqualTo(REPORT);
+        assertThat(write(Set.of())).isEqualTo(REPORT);
+    }
+
+    @Test
+    void fieldsKeepTheEnvelopeAndOnlyThoseRowProperties() throws Exception {
+        assertThat(write(Set.of("payout_ref", "status"))).isEqualTo("{\"StatusCode\":200,\"Message\":\"ok\",\"Data\":["
+                + "{\"payout_ref\":\"P1\",\"status\":\"Success\"},"
+                + "{\"payout_ref\":\"P2\",\"status\":\"Failed\"}]}");
+    }
+
+    private String write(Set<String> fields) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        streamer.write(chunks(REPORT, 7), fields, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    // Small buffers, so tokens are split across them as they would be off the wire
+    private static Flux<DataBuffer> chunks(String json, int size) {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        List<DataBuffer> buffers = new ArrayList<>();
+        for (int i = 0; i < bytes.length; i += size) {
+            byte[] chunk = new byte[Math.min(size, bytes.length - i)];
+            System.arraycopy(bytes, i, chunk, 0, chunk.length);
+            buffers.add(DefaultDataBufferFactory.sharedInstance.wrap(chunk));
+        }
+        return Flux.fromIterable(buffers);
+    }
+}
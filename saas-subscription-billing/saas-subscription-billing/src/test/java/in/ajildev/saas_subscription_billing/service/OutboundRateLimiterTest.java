@@ -0,0 +1,135 @@
+package in.ajildev.saas_subscription_billing.service;
+
+import in.ajildev.saas_subscription_billing.config.GatewayRateLimitProperties;
+import in.ajildev.saas_subscription_billing.enums.GatewayOperation;
+import in.ajildev.saas_subscription_billing.exception.GatewayUnavailableException;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OutboundRateLimiterTest {
+
+    private static final long INTERVAL = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+
+    @Test
+    void burstIsAdmittedWithoutWaitingThenCallsAreSpaced() {
+        OutboundRateLimiter.Bucket bucket = bucket(limit(10, 3, 10, Duration.ofSeconds(5)));
+
+        assertThat(bucket.reserve()).isZero();
+        assertThat(bucket.reserve()).isZero();
+        assertThat(bucket.reserve()).isZero();
+        assertThat(bucket.reserve()).isEqualTo(INTERVAL);
+        assertThat(bucket.reserve()).isEqualTo(2 * INTERVAL);
+    }
+
+    @Test
+    void slotsRefillAtTheConfiguredRate() {
+        OutboundRateLimiter.Bucket bucket = bucket(limit(10, 3, 10, Duration.ofSeconds(5)));
+        for (int i = 0; i < 3; i++) {
+            bucket.reserve();
+        }
+
+        clock.addAndGet(INTERVAL);
+        assertThat(bucket.reserve()).isZero();
+        assertThat(bucket.reserve()).isEqualTo(INTERVAL);
+
+        // A long idle period refills the burst, but never beyond it
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(60));
+        for (int i = 0; i < 3; i++) {
+            assertThat(bucket.reserve()).isZero();
+        }
+        assertThat(bucket.reserve()).isEqualTo(INTERVAL);
+    }
+
+    @Test
+    void slotBeyondMaxWaitIsRejectedWithoutBeingClaimed() {
+        OutboundRateLimiter.Bucket bucket = bucket(limit(10, 1, 10, Duration.ofMillis(150)));
+
+        assertThat(bucket.reserve()).isZero();
+        assertThat(bucket.reserve()).isEqualTo(INTERVAL);
+        assertThatThrownBy(bucket::reserve).isInstanceOf(GatewayUnavailableException.class)
+                .hasMessageContaining("rate limit");
+
+        clock.addAndGet(INTERVAL);
+        assertThat(bucket.reserve()).isEqualTo(INTERVAL);
+    }
+
+    @Test
+    void callsBeyondQueueDepthAreRejected() {
+        OutboundRateLimiter.Bucket bucket = bucket(limit(10, 1, 2, Duration.ofSeconds(5)));
+
+        assertThat(bucket.reserve()).isZero();
+        assertThat(bucket.reserve()).isEqualTo(INTERVAL);
+        assertThat(bucket.reserve()).isEqualTo(2 * INTERVAL);
+        assertThatThrownBy(bucket::reserve).isInstanceOf(GatewayUnavailableException.class)
+                .hasMessageContaining("busy");
+    }
+
+    @Test
+    void throttledCallRunsAfterItsSlotAndReleasesItsQueuePlace() {
+        GatewayRateLimitProperties properties = new GatewayRateLimitProperties();
+        properties.getOperations().put(GatewayOperation.PAYNPRO_QUERY, limit(5, 1, 10, Duration.ofSeconds(1)));
+        properties.getDefaults().setPermitsPerSecond(0);
+        ObjectProvider<MeterRegistry> noMetrics = new DefaultListableBeanFactory().getBeanProvider(MeterRegistry.class);
+        OutboundRateLimiter limiter = new OutboundRateLimiter(properties, noMetrics);
+
+        assertThat(limiter.throttle(GatewayOperation.PAYNPRO_QUERY, Mono.just(1)).block()).isEqualTo(1);
+        long started = System.nanoTime();
+        assertThat(limiter.throttle(GatewayOperation.PAYNPRO_QUERY, Mono.just(2)).block()).isEqualTo(2);
+        assertThat(System.nanoTime() - started).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+        assertThat(limiter.getQueueDepth(GatewayOperation.PAYNPRO_QUERY)).isZero();
+
+        // Disabled operations are not limited at all
+        Mono<Integer> call = Mono.just(3);
+        assertThat(limiter.throttle(GatewayOperation.RAZORPAY_QUERY, call)).isSameAs(call);
+    }
+
+    @Test
+    void callerDeadlineShortensTheWait() {
+        GatewayRateLimitProperties properties = new GatewayRateLimitProperties();
+        properties.getDefaults().setPermitsPerSecond(5);
+        properties.getDefaults().setBurst(1);
+        properties.getDefaults().setMaxWait(Duration.ofSeconds(5));
+        ObjectProvider<MeterRegistry> noMetrics = new DefaultListableBeanFactory().getBeanProvider(MeterRegistry.class);
+        OutboundRateLimiter limiter = new OutboundRateLimiter(properties, noMetrics);
+        limiter.throttle(GatewayOperation.PAYNPRO_QUERY, Mono.just(1)).block();
+
+        // The next slot is ~200 ms away, past a 50 ms deadline but well inside maxWait
+        assertThatThrownBy(() -> limiter.throttle(GatewayOperation.PAYNPRO_QUERY, Mono.just(2))
+                .contextWrite(context -> context.put(OutboundRateLimiter.DEADLINE, Instant.now().plusMillis(50)))
+                .block())
+                .isInstanceOf(GatewayUnavailableException.class)
+                .hasMessageContaining("rate limit");
+        assertThat(limiter.getQueueDepth(GatewayOperation.PAYNPRO_QUERY)).isZero();
+
+        assertThat(limiter.throttle(GatewayOperation.PAYNPRO_QUERY, Mono.just(3))
+                .contextWrite(context -> context.put(OutboundRateLimiter.DEADLINE, Instant.now().plusSeconds(1)))
+                .block()).isEqualTo(3);
+    }
+
+    private OutboundRateLimiter.Bucket bucket(GatewayRateLimitProperties.Limit limit) {
+        return new OutboundRateLimiter.Bucket(GatewayOperation.PAYNPRO_QUERY, limit, null, clock::get);
+    }
+
+    private static GatewayRateLimitProperties.Limit limit(double permitsPerSecond, int burst, int maxQueueDepth,
+            Duration maxWait) {
+        GatewayRateLimitProperties.Limit limit = new GatewayRateLimitProperties.Limit();
+        limit.setPermitsPerSecond(permitsPerSecond);
+        limit.setBurst(burst);
+        limit.setMaxQueueDepth(maxQueueDepth);
+        limit.setMaxWait(maxWait);
+        return limit;
+    }
+}
@@ -0,0 +1,152 @@
+package in.ajildev.saas_subscription_billing.service;
+
+import in.ajildev.saas_subscription_billing.dto.paynpro.PaynproReportResponse;
+import in.ajildev.saas_subscription_billing.dto.paynpro.PaynproReportRow;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PaynproReportCacheTest {
+
+    private final JsonMapper jsonMapper = JsonMapper.builder().build();
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final PaynProService paynProService = mock(PaynProService.class);
+    private final PaynproReportCache cache = new PaynproReportCache(paynProService, jdbcTemplate, jsonMapper);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(cache, "dateFormat", "yyyy-MM-dd");
+        ReflectionTestUtils.setField(cache, "zone", "Asia/Kolkata");
+        ReflectionTestUtils.setField(cache, "settleDays", 1);
+        ReflectionTestUtils.setField(cache, "maxDays", 366);
+        ReflectionTestUtils.setField(cache, "maxSpanDays", 31);
+        ReflectionTestUtils.setField(cache, "dateColumn", "txn_date");
+        ReflectionTestUtils.setField(cache, "fetchConcurrency", 4);
+    }
+
+    @Test
+    void eachRunOfMissingDaysIsFetchedOnceAndSplitByDay() {
+        stored(LocalDate.of(2025, 3, 3), List.of(row("P3", "2025-03-03")));
+        report("2025-03-01", "2025-03-02", ok(row("P1", "2025-03-01 09:15:00"), row("P2b", "2025-03-02"),
+                row("P2a", "2025-03-02")));
+        report("2025-03-04", "2025-03-05", ok(row("P5", "2025-03-05")));
+
+        PaynproReportResponse answer = cache.getTxnReport("2025-03-01", "2025-03-05").block();
+
+        assertThat(answer.data()).extracting(PaynproReportRow::payoutRef)
+                .containsExactly("P1", "P2b", "P2a", "P3", "P5");
+        verify(paynProService, never()).getTxnReportAsync("2025-03-03", "2025-03-03");
+        assertThat(storedDays()).containsExactlyInAnyOrder("2025-03-01:1", "2025-03-02:2", "2025-03-04:0",
+                "2025-03-05:1");
+    }
+
+    @Test
+    void noDataAnswerIsAnEmptyDayAndIsStored() {
+        stored(null, List.of());
+        report("2025-03-01", "2025-03-02", new PaynproReportResponse(404, "No Data Found", null, null, null, null));
+
+        PaynproReportResponse answer = cache.getTxnReport("2025-03-01", "2025-03-02").block();
+
+        assertThat(answer.isOk()).isTrue();
+        assertThat(answer.data()).isEmpty();
+        assertThat(storedDays()).containsExactlyInAnyOrder("2025-03-01:0", "2025-03-02:0");
+    }
+
+    @Test
+    void rowsWithoutADateAreFetchedAgainDayByDay() {
+        stored(null, List.of());
+        report("2025-03-01", "2025-03-02", ok(row("P1", null), row("P2", null)));
+        report("2025-03-01", "2025-03-01", ok(row("P1", null)));
+        report("2025-03-02", "2025-03-02", ok(row("P2", null)));
+
+        PaynproReportResponse answer = cache.getTxnReport("2025-03-01", "2025-03-02").block();
+
+        assertThat(answer.data()).extracting(PaynproReportRow::payoutRef).containsExactly("P1", "P2");
+        assertThat(storedDays()).containsExactlyInAnyOrder("2025-03-01:1", "2025-03-02:1");
+    }
+
+    @Test
+    void missingDatesArePassedThrough() {
+        PaynproReportResponse passthrough = new PaynproReportResponse(400, "startDate is required", null, null, null,
+                null);
+        when(paynProService.getTxnReportAsync(null, "2025-03-01")).thenReturn(Mono.just(passthrough));
+
+        assertThat(cache.getTxnReport(null, "2025-03-01").block()).isSameAs(passthrough);
+    }
+
+    private void stored(LocalDate day, List<PaynproReportRow> rows) {
+        doAnswer(invocation -> {
+            if (day != null) {
+                ResultSet rs = mock(ResultSet.class);
+                when(rs.getDate("day")).thenReturn(Date.valueOf(day));
+                when(rs.getBytes("rows_gzip")).thenReturn(gzip(rows));
+                invocation.<RowCallbackHandler>getArgument(1).processRow(rs);
+            }
+            return null;
+        }).when(jdbcTemplate).query(startsWith("SELECT day, rows_gzip"), any(RowCallbackHandler.class), anyString(),
+                any(), any());
+    }
+
+    private void report(String startDate, String endDate, PaynproReportResponse response) {
+        when(paynProService.getTxnReportAsync(startDate, endDate)).thenReturn(Mono.just(response));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> storedDays() {
+        ArgumentCaptor<List<Object[]>> batches = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, atLeastOnce()).batchUpdate(startsWith("INSERT INTO paynpro_report"),
+                batches.capture());
+        List<String> days = new ArrayList<>();
+        batches.getAllValues().forEach(batch -> batch.forEach(args -> days.add(args[1] + ":" + args[2])));
+        return days;
+    }
+
+    private static PaynproReportResponse ok(PaynproReportRow... rows) {
+        return new PaynproReportResponse(200, null, null, null, List.of(rows), null);
+    }
+
+    private static PaynproReportRow row(String payoutRef, String txnDate) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("payout_ref", payoutRef);
+        fields.put("status", "Success");
+        if (txnDate != null) {
+            fields.put("txn_date", txnDate);
+        }
+        return new PaynproReportRow(fields);
+    }
+
+    private byte[] gzip(List<PaynproReportRow> rows) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(bytes)) {
+            jsonMapper.writeValue(out, rows);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,134 @@
+package in.ajildev.saas_subscription_billing.service;
+
+import in.ajildev.saas_subscription_billing.entity.Payout;
+import in.ajildev.saas_subscription_billing.entity.PayoutOutbox;
+import in.ajildev.saas_subscription_billing.enums.OutboxStatus;
+import in.ajildev.saas_subscription_billing.enums.PaymentGateway;
+import in.ajildev.saas_subscription_billing.enums.PayoutStatus;
+import in.ajildev.saas_subscription_billing.exception.GatewayClientException;
+import in.ajildev.saas_subscription_billing.exception.GatewayUnavailableException;
+import in.ajildev.saas_subscription_billing.repository.PayoutOutboxRepository;
+import in.ajildev.saas_subscription_billing.repository.PayoutRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PayoutOutboxDispatcherTest {
+
+    private final PayoutOutboxRepository outboxRepository = mock(PayoutOutboxRepository.class);
+    private final PayoutRepository payoutRepository = mock(PayoutRepository.class);
+    private final PayoutService payoutService = mock(PayoutService.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    private final PayoutOutboxDispatcher dispatcher = new PayoutOutboxDispatcher(outboxRepository, payoutRepository,
+            payoutService, transactionTemplate);
+
+    private Payout payout;
+    private PayoutOutbox row;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(dispatcher, "leaseSeconds", 120L);
+        ReflectionTestUtils.setField(dispatcher, "maxAttempts", 3);
+        ReflectionTestUtils.setField(dispatcher, "baseBackoffMillis", 1000L);
+        ReflectionTestUtils.setField(dispatcher, "maxBackoffMillis", 60_000L);
+        ReflectionTestUtils.setField(dispatcher, "holdMillis", 60_000L);
+        dispatcher.init();
+        when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+
+    @Test
+    void rejectedPayoutIsFailed() {
+        queued(PaymentGateway.RAZORPAY, 0);
+        when(payoutService.submitAsync(payout)).thenReturn(Mono.error(new GatewayClientException(400, "bad ifsc")));
+
+        dispatcher.dispatchNow(payout.getId()).block();
+
+        assertThat(row.getStatus()).isEqualTo(OutboxStatus.DEAD);
+        verify(payoutService).markFailed(any(), any());
+    }
+
+    @Test
+    void transientFailureIsRetriedAndFinallyLeftToTheReconciler() {
+        queued(PaymentGateway.RAZORPAY, 0);
+        when(payoutService.submitAsync(payout)).thenReturn(Mono.error(new GatewayUnavailableException("busy", 1)));
+
+        dispatcher.dispatchNow(payout.getId()).block();
+
+        assertThat(row.getStatus()).isEqualTo(OutboxStatus.PENDING);
+        assertThat(row.getNextAttemptAt()).isAfter(LocalDateTime.now());
+
+        // Last attempt: a rate-limited answer is transient too
+        row.setAttempts(2);
+        when(payoutService.submitAsync(payout)).thenReturn(Mono.error(new GatewayClientException(429, "slow down")));
+        dispatcher.dispatchNow(payout.getId()).block();
+
+        assertThat(row.getStatus()).isEqualTo(OutboxStatus.DEAD);
+        verify(payoutService).markUnresolved(any(), any());
+        verify(payoutService, never()).markFailed(any(), any());
+    }
+
+    @Test
+    void attemptThatLostItsLeaseLeavesTheRowAndPayoutAlone() {
+        queued(PaymentGateway.RAZORPAY, 0);
+        when(payoutService.submitAsync(payout)).thenReturn(Mono.defer(() -> {
+            // Lease ran out mid-call and another worker claimed the row
+            row.setAttempts(row.getAttempts() + 1);
+            return Mono.error(new GatewayClientException(400, "bad ifsc"));
+        }));
+
+        dispatcher.dispatchNow(payout.getId()).block();
+
+        assertThat(row.getStatus()).isEqualTo(OutboxStatus.IN_FLIGHT);
+        assertThat(row.getLastError()).isNull();
+        verify(payoutService, never()).markFailed(any(), any());
+    }
+
+    @Test
+    void paynproRetryIsNotResentWhenPaynproAlreadyHasIt() {
+        queued(PaymentGateway.PAYNPRO, 1);
+        when(payoutService.recoverPaynProAsync(payout)).thenReturn(Mono.just(payout));
+        when(payoutService.submitAsync(payout)).thenReturn(Mono.just(payout));
+
+        dispatcher.dispatchNow(payout.getId()).block();
+
+        assertThat(row.getStatus()).isEqualTo(OutboxStatus.DONE);
+        verify(payoutService, never()).submitAsync(any());
+    }
+
+    @Test
+    void failedPaynproLookupIsRetriedNotFailed() {
+        queued(PaymentGateway.PAYNPRO, 1);
+        when(payoutService.recoverPaynProAsync(payout))
+                .thenReturn(Mono.error(new GatewayClientException(404, "unknown endpoint")));
+
+        dispatcher.dispatchNow(payout.getId()).block();
+
+        assertThat(row.getStatus()).isEqualTo(OutboxStatus.PENDING);
+        verify(payoutService, never()).submitAsync(any());
+        verify(payoutService, never()).markFailed(any(), any());
+    }
+
+    private void queued(PaymentGateway gateway, int attempts) {
+        payout = Payout.builder().id(7L).gateway(gateway).status(PayoutStatus.PENDING).build();
+        row = PayoutOutbox.builder().id(70L).payoutId(payout.getId()).gateway(gateway).status(OutboxStatus.PENDING)
+                .attempts(attempts).nextAttemptAt(LocalDateTime.now()).build();
+        when(outboxRepository.lockPendingByPayoutId(payout.getId())).thenAnswer(invocation -> Optional.of(row));
+        when(outboxRepository.findById(row.getId())).thenAnswer(invocation -> Optional.of(row));
+        when(payoutRepository.findWithUserById(payout.getId())).thenReturn(Optional.of(payout));
+        when(payoutRepository.findById(payout.getId())).thenReturn(Optional.of(payout));
+    }
+}
@@ -0,0 +1,112 @@
+package in.ajildev.saas_subscription_billing.service;
+
+import in.ajildev.saas_subscription_billing.dto.paynpro.PaynproReportResponse;
+import in.ajildev.saas_subscription_billing.dto.paynpro.PaynproReportRow;
+import in.ajildev.saas_subscription_billing.enums.PaymentGateway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PayoutReconcilerTest {
+
+    private static final BigDecimal AMOUNT = new BigDecimal("1499.00");
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final PaynProService paynProService = mock(PaynProService.class);
+    private final GatewayBalanceLedger balanceLedger = mock(GatewayBalanceLedger.class);
+
+    private PayoutReconciler reconciler;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        reconciler = new PayoutReconciler(jdbcTemplate, paynProService, mock(RazorpayService.class), balanceLedger);
+        ReflectionTestUtils.setField(reconciler, "minAgeMinutes", 15L);
+        ReflectionTestUtils.setField(reconciler, "pageSize", 500);
+        ReflectionTestUtils.setField(reconciler, "razorpayConcurrency", 4);
+        ReflectionTestUtils.setField(reconciler, "paynproDateFormat", "yyyy-MM-dd");
+        ReflectionTestUtils.setField(reconciler, "paynproZone", "Asia/Kolkata");
+
+        // Created on the 1st, held in the outbox, sent late on the 3rd UTC, which is the 4th in India
+        ResultSet page = mock(ResultSet.class);
+        when(page.getLong("id")).thenReturn(7L);
+        when(page.getString("payout_ref")).thenReturn("POUT_1");
+        when(page.getString("gateway")).thenReturn("PAYNPRO");
+        when(page.getBigDecimal("amount")).thenReturn(AMOUNT);
+        when(page.getTimestamp("created_at")).thenReturn(Timestamp.valueOf(LocalDateTime.of(2026, 1, 1, 10, 0)));
+        when(page.getTimestamp("sent_at")).thenReturn(Timestamp.from(Instant.parse("2026-01-03T20:00:00Z")));
+        doAnswer(invocation -> List.of(invocation.<RowMapper<?>>getArgument(1).mapRow(page, 0)))
+                .when(jdbcTemplate).query(startsWith("SELECT id, payout_ref"), any(RowMapper.class),
+                        any(Object[].class));
+
+        when(paynProService.getTxnReport(anyString(), anyString()))
+                .thenReturn(new PaynproReportResponse(200, null, null, null, List.of(), null));
+        when(paynProService.getTxnReport("2026-01-04", "2026-01-04")).thenReturn(new PaynproReportResponse(200,
+                null, "2026-01-04", "2026-01-04",
+                List.of(new PaynproReportRow(Map.of("payout_ref", "POUT_1", "status", "Failed", "txn_id", "T1"))),
+                null));
+    }
+
+    @Test
+    void paynproPayoutIsLookedUpOnTheDayItWasSent() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[] { 1 });
+
+        assertThat(reconciler.reconcile()).isEqualTo(1);
+
+        verify(paynProService).getTxnReport("2026-01-04", "2026-01-04");
+        verify(paynProService, never()).getTxnReport("2026-01-01", "2026-01-01");
+        verify(balanceLedger).credit(PaymentGateway.PAYNPRO, AMOUNT);
+    }
+
+    @Test
+    void successNoInfoCountsOnlyWhenTheRowNowHasTheResolvedStatus() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[] { Statement.SUCCESS_NO_INFO });
+        currentStatus("FAILED");
+
+        assertThat(reconciler.reconcile()).isEqualTo(1);
+        verify(balanceLedger).credit(PaymentGateway.PAYNPRO, AMOUNT);
+    }
+
+    @Test
+    void successNoInfoIsNotCountedWhenAWebhookGotThereFirst() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[] { Statement.SUCCESS_NO_INFO });
+        currentStatus("SUCCESS");
+
+        assertThat(reconciler.reconcile()).isZero();
+        verify(balanceLedger, never()).credit(any(), any());
+    }
+
+    private void currentStatus(String status) {
+        doAnswer(invocation -> {
+            ResultSet rs = mock(ResultSet.class);
+            when(rs.getLong("id")).thenReturn(7L);
+            when(rs.getString("status")).thenReturn(status);
+            invocation.<RowCallbackHandler>getArgument(1).processRow(rs);
+            return null;
+        }).when(jdbcTemplate).query(startsWith("SELECT id, status FROM payouts"), any(RowCallbackHandler.class),
+                eq(7L));
+    }
+}
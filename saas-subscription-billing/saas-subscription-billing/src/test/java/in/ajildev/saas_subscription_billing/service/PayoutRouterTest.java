@@ -0,0 +1,127 @@
+package in.ajildev.saas_subscription_billing.service;
+
+import in.ajildev.saas_subscription_billing.dto.PayoutRoutingConfig;
+import in.ajildev.saas_subscription_billing.enums.GatewayOperation;
+import in.ajildev.saas_subscription_billing.enums.PaymentGateway;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PayoutRouterTest {
+
+    private final GatewayBalanceLedger balanceLedger = mock(GatewayBalanceLedger.class);
+    private final GatewayGuard gatewayGuard = mock(GatewayGuard.class);
+    private final PayoutRouter router = new PayoutRouter(balanceLedger, gatewayGuard);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(router, "halfLifeSeconds", 300L);
+        ReflectionTestUtils.setField(router, "latencyTargetMillis", 2000.0);
+        ReflectionTestUtils.setField(router, "sharpness", 4.0);
+        ReflectionTestUtils.setField(router, "successWeight", 0.5);
+        ReflectionTestUtils.setField(router, "latencyWeight", 0.3);
+        ReflectionTestUtils.setField(router, "balanceWeight", 0.2);
+        router.init();
+        when(gatewayGuard.getState(any())).thenReturn(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void invalidWeightsAndSharpnessAreRejectedAndLeaveTheConfigUnchanged() {
+        PayoutRoutingConfig before = router.updateConfig(update(null, null, null, null));
+
+        // With an even sharpness a negative weight would have been squared into a large share
+        assertThatThrownBy(() -> router.updateConfig(update(null, Map.of(PaymentGateway.RAZORPAY, -1.0), null, null)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> router.updateConfig(update(null, null, -0.5, null)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> router.updateConfig(update(null, null, Double.NaN, null)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> router.updateConfig(update(null, null, null, Double.NaN)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> router.updateConfig(update(null, null, null, 0.0)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> router.updateConfig(
+                new PayoutRoutingConfig(null, null, 0.0, 0.0, 0.0, null)))
+                .isInstanceOf(IllegalArgumentException.class);
+        Map<PaymentGateway, Double> nullWeight = new HashMap<>();
+        nullWeight.put(PaymentGateway.PAYNPRO, null);
+        assertThatThrownBy(() -> router.updateConfig(update(null, nullWeight, null, null)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("PAYNPRO");
+
+        assertThat(router.snapshot().get("config")).isEqualTo(before);
+    }
+
+    @Test
+    void omittedPinKeepsTheCurrentOneUntilUnpinned() {
+        router.updateConfig(update(PaymentGateway.RAZORPAY, null, null, null));
+
+        PayoutRoutingConfig updated = router.updateConfig(update(null, null, 0.7, null));
+
+        assertThat(updated.pinned()).isEqualTo(PaymentGateway.RAZORPAY);
+        assertThat(updated.successWeight()).isEqualTo(0.7);
+        assertThat(router.choose(null, PaymentGateway.PAYNPRO)).isEqualTo(PaymentGateway.RAZORPAY);
+
+        assertThat(router.unpin().pinned()).isNull();
+        assertThat(router.unpin().successWeight()).isEqualTo(0.7);
+    }
+
+    @Test
+    void slowAndFailingGatewayGetsLittleTraffic() {
+        for (int i = 0; i < 200; i++) {
+            router.record(PaymentGateway.PAYNPRO, Duration.ofMillis(200), true);
+            router.record(PaymentGateway.RAZORPAY, Duration.ofMillis(8000), i % 2 == 0);
+        }
+
+        Map<PaymentGateway, Integer> picks = pick(2000);
+
+        assertThat(picks.get(PaymentGateway.PAYNPRO)).isGreaterThan(1600);
+        // Still sampled now and then, so its stats can recover
+        assertThat(picks.get(PaymentGateway.RAZORPAY)).isPositive();
+    }
+
+    @Test
+    void openCircuitZeroWeightAndShortBalanceTakeAGatewayOutOfRotation() {
+        when(gatewayGuard.getState(GatewayOperation.RAZORPAY_PAYOUT)).thenReturn(CircuitBreaker.State.OPEN);
+        assertThat(pick(200).get(PaymentGateway.RAZORPAY)).isZero();
+
+        when(gatewayGuard.getState(GatewayOperation.RAZORPAY_PAYOUT)).thenReturn(CircuitBreaker.State.CLOSED);
+        router.updateConfig(update(null, Map.of(PaymentGateway.PAYNPRO, 0.0), null, null));
+        assertThat(pick(200).get(PaymentGateway.PAYNPRO)).isZero();
+
+        when(balanceLedger.isSeeded(PaymentGateway.RAZORPAY)).thenReturn(true);
+        when(balanceLedger.getAvailablePaise(PaymentGateway.RAZORPAY)).thenReturn(10_000L);
+        assertThat(router.choose(new BigDecimal("100.01"), PaymentGateway.PAYNPRO)).isEqualTo(PaymentGateway.PAYNPRO);
+        assertThat(router.choose(new BigDecimal("100.00"), PaymentGateway.PAYNPRO))
+                .isEqualTo(PaymentGateway.RAZORPAY);
+    }
+
+    private Map<PaymentGateway, Integer> pick(int times) {
+        Map<PaymentGateway, Integer> picks = new EnumMap<>(PaymentGateway.class);
+        for (PaymentGateway gateway : PaymentGateway.values()) {
+            picks.put(gateway, 0);
+        }
+        for (int i = 0; i < times; i++) {
+            picks.merge(router.choose(null, PaymentGateway.PAYNPRO), 1, Integer::sum);
+        }
+        return picks;
+    }
+
+    private static PayoutRoutingConfig update(PaymentGateway pinned, Map<PaymentGateway, Double> gatewayWeights,
+            Double successWeight, Double sharpness) {
+        return new PayoutRoutingConfig(pinned, gatewayWeights, successWeight, null, null, sharpness);
+    }
+}
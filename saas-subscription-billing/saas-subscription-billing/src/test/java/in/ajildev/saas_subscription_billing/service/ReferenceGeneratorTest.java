@@ -0,0 +1,104 @@
+package in.ajildev.saas_subscription_billing.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReferenceGeneratorTest {
+
+    private static final int THREADS = 16;
+    private static final int IDS_PER_THREAD = 100_000;
+
+    @Test
+    void idsAreUniqueAndIncreasingAcrossThreads() throws Exception {
+        ReferenceGenerator generator = new ReferenceGenerator(7);
+        Set<Long> seen = ConcurrentHashMap.newKeySet(THREADS * IDS_PER_THREAD);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    long previous = Long.MIN_VALUE;
+                    boolean increasing = true;
+                    for (int i = 0; i < IDS_PER_THREAD; i++) {
+                        long id = generator.nextId();
+                        increasing &= id > previous;
+                        previous = id;
+                        seen.add(id);
+                    }
+                    return increasing;
+                }));
+            }
+            start.countDown();
+            for (Future<Boolean> result : results) {
+                assertThat(result.get(30, TimeUnit.SECONDS)).isTrue();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(seen).hasSize(THREADS * IDS_PER_THREAD);
+    }
+
+    @Test
+    void nodesNeverCollide() {
+        ReferenceGenerator first = new ReferenceGenerator(1);
+        ReferenceGenerator second = new ReferenceGenerator(2);
+        Set<Long> seen = ConcurrentHashMap.newKeySet();
+        for (int i = 0; i < 50_000; i++) {
+            assertThat(seen.add(first.nextId())).isTrue();
+            assertThat(seen.add(second.nextId())).isTrue();
+        }
+    }
+
+    @Test
+    void idCarriesNodeAndCurrentTime() {
+        long before = System.currentTimeMillis();
+        long id = new ReferenceGenerator(1023).nextId();
+
+        long nodeId = (id >>> ReferenceGenerator.SEQUENCE_BITS) & ReferenceGenerator.MAX_NODE_ID;
+        long millis = (id >>> (ReferenceGenerator.NODE_BITS + ReferenceGenerator.SEQUENCE_BITS))
+                + ReferenceGenerator.EPOCH_MILLIS;
+        assertThat(nodeId).isEqualTo(1023);
+        assertThat(millis).isBetween(before, System.currentTimeMillis());
+    }
+
+    @Test
+    void referencesAreFixedWidthAndSortInCreationOrder() {
+        ReferenceGenerator generator = new ReferenceGenerator(3);
+        String previous = generator.next("POUT_");
+        for (int i = 0; i < 10_000; i++) {
+            String reference = generator.next("POUT_");
+            assertThat(reference).matches("POUT_[0-9A-HJKMNP-TV-Z]{13}");
+            assertThat(reference).isGreaterThan(previous);
+            previous = reference;
+        }
+    }
+
+    @Test
+    void encodesCrockfordBase32() {
+        assertThat(ReferenceGenerator.encode(0)).isEqualTo("0000000000000");
+        assertThat(ReferenceGenerator.encode(31)).isEqualTo("000000000000Z");
+        assertThat(ReferenceGenerator.encode(32)).isEqualTo("0000000000010");
+        assertThat(ReferenceGenerator.encode(Long.MAX_VALUE)).isEqualTo("7ZZZZZZZZZZZZ");
+    }
+
+    @Test
+    void rejectsNodeIdOutOfRange() {
+        assertThatThrownBy(() -> new ReferenceGenerator(1024)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new ReferenceGenerator(-1)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,27 @@
+package in.ajildev.saas_subscription_billing.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CsvUtilTest {
+
+    @Test
+    void formulaCellsAreNeutralised() {
+        assertThat(CsvUtil.escape("=HYPERLINK(\"http://x\")")).isEqualTo("\"'=HYPERLINK(\"\"http://x\"\")\"");
+        assertThat(CsvUtil.escape("+1+1")).isEqualTo("\"'+1+1\"");
+        assertThat(CsvUtil.escape("-2+3")).isEqualTo("\"'-2+3\"");
+        assertThat(CsvUtil.escape("@SUM(A1)")).isEqualTo("\"'@SUM(A1)\"");
+        assertThat(CsvUtil.escape("\tcmd")).isEqualTo("\"'\tcmd\"");
+    }
+
+    @Test
+    void plainValuesAndNumbersAreKept() {
+        assertThat(CsvUtil.escape("-10.50")).isEqualTo("-10.50");
+        assertThat(CsvUtil.escape("+91")).isEqualTo("+91");
+        assertThat(CsvUtil.escape("user@example.com")).isEqualTo("user@example.com");
+        assertThat(CsvUtil.escape("a,b")).isEqualTo("\"a,b\"");
+        assertThat(CsvUtil.escape(null)).isEmpty();
+        assertThat(CsvUtil.escape("")).isEmpty();
+    }
+}